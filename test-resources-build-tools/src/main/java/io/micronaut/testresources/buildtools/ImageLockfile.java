@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.buildtools;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads and writes image lockfiles. An image lockfile records the digest
+ * that each configured image was resolved to, so that the test resources
+ * server uses the same images on every run, and doesn't need to contact
+ * the registry once they are available locally. Each line maps an image,
+ * as configured, to its locked reference, separated by a space:
+ * <pre>postgres:16 postgres@sha256:4ec37d2a07a0067f176fdcc9d4bb633a5724d2cc4f892c7a2046d054bb6939e5</pre>
+ */
+public final class ImageLockfile {
+    private static final String HEADER = "# Image digests locked by Micronaut Test Resources, do not edit";
+
+    private ImageLockfile() {
+
+    }
+
+    /**
+     * Reads an image lockfile.
+     *
+     * @param lockfile the lockfile
+     * @return the locked references, by image, or an empty map if the lockfile doesn't exist
+     * @throws IOException if an error occurs
+     */
+    public static Map<String, String> read(Path lockfile) throws IOException {
+        if (!Files.exists(lockfile)) {
+            return Collections.emptyMap();
+        }
+        return parse(Files.readAllLines(lockfile));
+    }
+
+    /**
+     * Parses the contents of an image lockfile.
+     *
+     * @param lines the lines of the lockfile
+     * @return the locked references, by image
+     */
+    public static Map<String, String> parse(List<String> lines) {
+        Map<String, String> entries = new TreeMap<>();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            if (parts.length == 2) {
+                entries.put(parts[0], parts[1]);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes an image lockfile. Entries are sorted by image, so that the
+     * lockfile only changes when the locked images change.
+     *
+     * @param lockfile the lockfile
+     * @param entries the locked references, by image
+     * @throws IOException if an error occurs
+     */
+    public static void write(Path lockfile, Map<String, String> entries) throws IOException {
+        Path parent = lockfile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (PrintWriter prn = new PrintWriter(Files.newBufferedWriter(lockfile))) {
+            prn.print(HEADER + "\n");
+            new TreeMap<>(entries).forEach((image, reference) -> prn.print(image + " " + reference + "\n"));
+        }
+    }
+
+    static Map<String, String> parse(String contents) {
+        return parse(Arrays.asList(contents.split("\n")));
+    }
+}
@@ -41,6 +41,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -71,6 +72,7 @@ public class ServerUtils {
     private static final String SERVER_ACCESS_TOKEN = "server.access.token";
     private static final String SERVER_CLIENT_READ_TIMEOUT = "server.client.read.timeout";
     private static final String SERVER_IDLE_TIMEOUT_MINUTES = "server.idle.timeout.minutes";
+    private static final String SERVER_SETTINGS_DIRECTORY = "server.settings.directory";
     private static final String SERVER_ENTRY_POINT =
         "io.micronaut.testresources.server.TestResourcesService";
     private static final String MICRONAUT_SERVER_PORT = "micronaut.server.port";
@@ -80,6 +82,17 @@ public class ServerUtils {
     private static final String CDS_CLASS_LST = "cds.classlist";
     private static final String FLAT_JAR = "flat.jar";
 
+    private static final String PULL_POLICY_PROPERTY = "test.resources.pull.policy";
+    private static final String PULL_POLICY_ENV = "TEST_RESOURCES_PULL_POLICY";
+    private static final String SERVER_PULL_POLICY = "server.pull.policy";
+    private static final String IMAGE_LOCKFILE_PROPERTY = "test.resources.image.lockfile";
+    private static final String IMAGE_LOCKFILE_ENV = "TEST_RESOURCES_IMAGE_LOCKFILE";
+    private static final String SERVER_PULL_LOCKFILE = "server.pull.lockfile";
+
+    // The server cleans up the containers it starts itself, see io.micronaut.testresources.testcontainers.ContainerReaper
+    private static final String RYUK_DISABLED_ENV = "TESTCONTAINERS_RYUK_DISABLED";
+    private static final String REUSE_ENABLE_ENV = "TESTCONTAINERS_REUSE_ENABLE";
+
     // See io.micronaut.testresources.testcontainers.DockerSupport.TIMEOUT
     private static final String DOCKER_CHECK_TIMEOUT_SECONDS_ENV = "TEST_RESOURCES_DOCKER_CHECK_TIMEOUT_SECONDS";
     private static final String DOCKER_CHECK_TIMEOUT_SECONDS_PROPERTY = "docker.check.timeout.seconds";
@@ -201,7 +214,7 @@ public class ServerUtils {
 
         Files.createDirectories(portFilePath.getParent());
         startAndWait(serverFactory, explicitPort, serverIdleTimeoutMinutes, portFilePath,
-            accessToken, serverClasspath, cdsDirectory);
+            serverSettingsDirectory, accessToken, serverClasspath, cdsDirectory);
         int port;
         if (explicitPort == null) {
             List<String> lines = Files.readAllLines(portFilePath);
@@ -290,6 +303,45 @@ public class ServerUtils {
         }
     }
 
+    /**
+     * Writes the digests of the images used by a running server to an image
+     * lockfile. Entries of an existing lockfile for images which were not used
+     * by the server are kept. The server will be contacted thanks to the
+     * settings in the given directory.
+     *
+     * @param serverSettingsDirectory the settings directory
+     * @param lockfile the image lockfile
+     * @return the entries of the lockfile
+     * @throws IOException if an error occurs
+     */
+    public static Map<String, String> writeImageLockfile(Path serverSettingsDirectory, Path lockfile) throws IOException {
+        Optional<ServerSettings> maybeServerSettings = readServerSettings(serverSettingsDirectory);
+        if (maybeServerSettings.isEmpty()) {
+            throw new IllegalStateException("No test resources server settings found in " + serverSettingsDirectory);
+        }
+        ServerSettings serverSettings = maybeServerSettings.get();
+        URL url = new URL("http://localhost:" + serverSettings.getPort() + "/images/lock");
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        serverSettings.getAccessToken()
+            .ifPresent(token -> conn.setRequestProperty("Access-Token", token));
+        String contents;
+        try (InputStream is = conn.getInputStream()) {
+            contents = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Map<String, String> entries = new HashMap<>(ImageLockfile.read(lockfile));
+        entries.putAll(ImageLockfile.parse(contents));
+        ImageLockfile.write(lockfile, entries);
+        return entries;
+    }
+
+    private static String systemPropertyOrEnv(String property, String env) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(env);
+        }
+        return value;
+    }
+
     /**
      * Returns the default path to the settings directory for the test
      * resources server in case it needs to be shared between builds.
@@ -318,18 +370,19 @@ public class ServerUtils {
                                      Integer explicitPort,
                                      Integer idleTimeoutMinutes,
                                      Path portFilePath,
+                                     Path serverSettingsDirectory,
                                      String accessToken,
                                      Collection<File> serverClasspath,
                                      Path cdsDirectory) throws IOException {
         ProcessParameters processParameters =
-            createProcessParameters(explicitPort, idleTimeoutMinutes, portFilePath, accessToken,
-                serverClasspath, cdsDirectory);
+            createProcessParameters(explicitPort, idleTimeoutMinutes, portFilePath, serverSettingsDirectory,
+                accessToken, serverClasspath, cdsDirectory);
         serverFactory.startServer(processParameters);
         // If the call is a CDS dump, we need to perform a second invocation
         // which doesn't dump
         if (processParameters.isCDSDumpInvocation()) {
-            startAndWait(serverFactory, explicitPort, idleTimeoutMinutes, portFilePath, accessToken,
-                serverClasspath, cdsDirectory);
+            startAndWait(serverFactory, explicitPort, idleTimeoutMinutes, portFilePath,
+                serverSettingsDirectory, accessToken, serverClasspath, cdsDirectory);
             return;
         }
         waitForServerToBeAvailable(serverFactory, explicitPort, portFilePath);
@@ -372,11 +425,13 @@ public class ServerUtils {
 
     private static ProcessParameters createProcessParameters(Integer explicitPort,
                                                              Integer serverIdleTimeoutMinutes,
-                                                             Path portFilePath, String accessToken,
+                                                             Path portFilePath,
+                                                             Path serverSettingsDirectory,
+                                                             String accessToken,
                                                              Collection<File> serverClasspath,
                                                              Path cdsDirectory) {
         return new DefaultProcessParameters(explicitPort, serverIdleTimeoutMinutes, accessToken,
-            cdsDirectory, serverClasspath, portFilePath);
+            cdsDirectory, serverClasspath, portFilePath, serverSettingsDirectory);
 
     }
 
@@ -419,6 +474,15 @@ public class ServerUtils {
          */
         List<String> getJvmArguments();
 
+        /**
+         * The environment variables to add to the environment of the server process.
+         *
+         * @return the environment variables.
+         */
+        default Map<String, String> getEnvironmentVariables() {
+            return Collections.emptyMap();
+        }
+
         default boolean isCDSDumpInvocation() {
             return false;
         }
@@ -430,6 +494,7 @@ public class ServerUtils {
         private final Path cdsDirectory;
         private final Collection<File> serverClasspath;
         private final Path portFilePath;
+        private final Path serverSettingsDirectory;
         private final Integer idleTimeoutMinutes;
         private List<String> jvmArgs;
         private List<File> classpath;
@@ -440,13 +505,15 @@ public class ServerUtils {
                                         String accessToken,
                                         Path cdsDirectory,
                                         Collection<File> serverClasspath,
-                                        Path portFilePath) {
+                                        Path portFilePath,
+                                        Path serverSettingsDirectory) {
             this.explicitPort = explicitPort;
             this.idleTimeoutMinutes = idleTimeoutMinutes;
             this.accessToken = accessToken;
             this.cdsDirectory = cdsDirectory;
             this.serverClasspath = serverClasspath;
             this.portFilePath = portFilePath;
+            this.serverSettingsDirectory = serverSettingsDirectory;
         }
 
         @Override
@@ -472,6 +539,14 @@ public class ServerUtils {
             if (dockerCheckTimeout != null) {
                 systemProperties.put(DOCKER_CHECK_TIMEOUT_SECONDS_PROPERTY, dockerCheckTimeout);
             }
+            String pullPolicy = systemPropertyOrEnv(PULL_POLICY_PROPERTY, PULL_POLICY_ENV);
+            if (pullPolicy != null) {
+                systemProperties.put(SERVER_PULL_POLICY, pullPolicy);
+            }
+            String imageLockfile = systemPropertyOrEnv(IMAGE_LOCKFILE_PROPERTY, IMAGE_LOCKFILE_ENV);
+            if (imageLockfile != null) {
+                systemProperties.put(SERVER_PULL_LOCKFILE, Path.of(imageLockfile).toAbsolutePath().toString());
+            }
             if (explicitPort != null) {
                 systemProperties.put(MICRONAUT_SERVER_PORT, String.valueOf(explicitPort));
             }
@@ -482,9 +557,27 @@ public class ServerUtils {
                 systemProperties.put(SERVER_IDLE_TIMEOUT_MINUTES,
                     String.valueOf(idleTimeoutMinutes));
             }
+            if (serverSettingsDirectory != null) {
+                systemProperties.put(SERVER_SETTINGS_DIRECTORY,
+                    serverSettingsDirectory.toAbsolutePath().toString());
+            }
             return systemProperties;
         }
 
+        @Override
+        public Map<String, String> getEnvironmentVariables() {
+            Map<String, String> env = new LinkedHashMap<>();
+            // explicitly configured variables are inherited by the server process
+            if (System.getenv(RYUK_DISABLED_ENV) == null) {
+                env.put(RYUK_DISABLED_ENV, "true");
+            }
+            // lets the server reuse the containers kept by the previous server
+            if (System.getenv(REUSE_ENABLE_ENV) == null) {
+                env.put(REUSE_ENABLE_ENV, "true");
+            }
+            return env;
+        }
+
         @Override
         public List<File> getClasspath() {
             if (classpath != null) {
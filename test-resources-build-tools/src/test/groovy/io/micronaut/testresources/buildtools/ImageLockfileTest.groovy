@@ -0,0 +1,40 @@
+package io.micronaut.testresources.buildtools
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ImageLockfileTest extends Specification {
+    @TempDir
+    Path tmpDir
+
+    def "writes sorted entries and reads them back"() {
+        def lockfile = tmpDir.resolve("nested/images.lock")
+
+        when:
+        ImageLockfile.write(lockfile, [
+                'redis:7'    : 'redis@sha256:redis',
+                'postgres:16': 'postgres@sha256:postgres'
+        ])
+
+        then:
+        def lines = Files.readAllLines(lockfile)
+        lines[0].startsWith("#")
+        lines.drop(1) == [
+                'postgres:16 postgres@sha256:postgres',
+                'redis:7 redis@sha256:redis'
+        ]
+        ImageLockfile.read(lockfile) == [
+                'postgres:16': 'postgres@sha256:postgres',
+                'redis:7'    : 'redis@sha256:redis'
+        ]
+    }
+
+    def "ignores comments, blank and malformed lines"() {
+        expect:
+        ImageLockfile.parse("# header\n\n  mysql:8   mysql@sha256:mysql  \nmalformed\n") == ['mysql:8': 'mysql@sha256:mysql']
+        ImageLockfile.read(tmpDir.resolve("missing.lock")) == [:]
+    }
+}
@@ -1,7 +1,9 @@
 package io.micronaut.testresources.buildtools
 
 import io.micronaut.context.ApplicationContext
+import io.micronaut.http.MediaType
 import io.micronaut.http.annotation.Controller
+import io.micronaut.http.annotation.Get
 import io.micronaut.http.annotation.Post
 import io.micronaut.runtime.server.EmbeddedServer
 import jakarta.inject.Inject
@@ -58,11 +60,18 @@ class ServerUtilsTest extends Specification {
         1 * factory.startServer(_) >> { ServerUtils.ProcessParameters params ->
             assert params.mainClass == 'io.micronaut.testresources.server.TestResourcesService'
             assert params.classpath == classpath
-            def sysProps = ['com.sun.management.jmxremote': null]
+            def sysProps = [
+                    'com.sun.management.jmxremote': null,
+                    'server.settings.directory': settingsDir.toAbsolutePath().toString()
+            ]
             if (token != null) {
                 sysProps["server.access-token"] = token
             }
             assert params.systemProperties == sysProps
+            // the server cleans up its containers and reuses the kept ones, unless explicitly configured
+            assert params.environmentVariables == ['TESTCONTAINERS_RYUK_DISABLED', 'TESTCONTAINERS_REUSE_ENABLE']
+                    .findAll { System.getenv(it) == null }
+                    .collectEntries { [(it): 'true'] }
             assert params.arguments == [
                     "--port-file=${portFile.toAbsolutePath()}".toString()
             ]
@@ -111,6 +120,56 @@ class ServerUtilsTest extends Specification {
         }
     }
 
+    @RestoreSystemProperties
+    def "can set the image pull policy and lockfile"() {
+        def portFile = tmpDir.resolve("port-file")
+        def settingsDir = tmpDir.resolve("settings")
+        def factory = Mock(ServerFactory)
+        System.setProperty('test.resources.pull.policy', "never")
+        System.setProperty('test.resources.image.lockfile', "images.lock")
+
+        when:
+        ServerUtils.startOrConnectToExistingServer(9999, portFile, settingsDir, null, null, null, null, factory)
+
+        then:
+        1 * factory.startServer(_) >> { ServerUtils.ProcessParameters params ->
+            assert params.systemProperties['server.pull.policy'] == 'never'
+            assert params.systemProperties['server.pull.lockfile'] == Path.of("images.lock").toAbsolutePath().toString()
+        }
+    }
+
+    def "writes the image lockfile from the images used by the server"() {
+        def settingsDir = tmpDir.resolve("settings")
+        def lockfile = tmpDir.resolve("test-resources-images.lock")
+        def applicationContext = ApplicationContext.builder().start()
+        def embeddedServer = applicationContext.getBean(EmbeddedServer)
+        embeddedServer.start()
+        ServerUtils.writeServerSettings(settingsDir, new ServerSettings(embeddedServer.port, null, null, null))
+        ImageLockfile.write(lockfile, [
+                'postgres:16': 'postgres@sha256:old',
+                'mysql:8'    : 'mysql@sha256:mysql'
+        ])
+
+        when:
+        def entries = ServerUtils.writeImageLockfile(settingsDir, lockfile)
+
+        then:
+        entries == [
+                'mysql:8'    : 'mysql@sha256:mysql',
+                'postgres:16': 'postgres@sha256:new',
+                'redis:7'    : 'redis@sha256:redis'
+        ]
+        ImageLockfile.read(lockfile) == entries
+        Files.readAllLines(lockfile).drop(1) == [
+                'mysql:8 mysql@sha256:mysql',
+                'postgres:16 postgres@sha256:new',
+                'redis:7 redis@sha256:redis'
+        ]
+
+        cleanup:
+        applicationContext.stop()
+    }
+
     @RestoreSystemProperties
     def "waits for the server to be available when using an explicit port"() {
         def portFile = tmpDir.resolve("port-file")
@@ -336,5 +395,10 @@ class ServerUtilsTest extends Specification {
         void close() {
             ctx.close()
         }
+
+        @Get(value = "/images/lock", produces = MediaType.TEXT_PLAIN)
+        String lockImages() {
+            "postgres:16 postgres@sha256:new\nredis:7 redis@sha256:redis\n"
+        }
     }
 }
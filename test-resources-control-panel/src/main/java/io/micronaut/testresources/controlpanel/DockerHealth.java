@@ -17,6 +17,9 @@ package io.micronaut.testresources.controlpanel;
 
 import com.github.dockerjava.api.model.Info;
 import io.micronaut.core.annotation.Introspected;
+import io.micronaut.testresources.testcontainers.ContainerEviction;
+import io.micronaut.testresources.testcontainers.ContainerReuseStats;
+import io.micronaut.testresources.testcontainers.DockerSupport;
 
 import java.util.List;
 
@@ -28,6 +31,9 @@ import java.util.List;
  * @param managedContainers the containers managed by test resources
  * @param startingContainers the list of containers being started
  * @param pullingContainers the list of containers being pulled
+ * @param circuit the state of the Docker availability circuit breaker
+ * @param evictions the containers recently evicted
+ * @param reuse how often requests reused a container instead of starting one
  */
 @Introspected
 public record DockerHealth(
@@ -36,7 +42,10 @@ public record DockerHealth(
     int runningContainers,
     List<TestResourcesContainer> managedContainers,
     List<String> startingContainers,
-    List<String> pullingContainers) {
+    List<String> pullingContainers,
+    DockerSupport.Circuit circuit,
+    List<ContainerEviction> evictions,
+    ContainerReuseStats reuse) {
 
     /**
      * Returns the number of containers which are not yet ready.
@@ -55,6 +55,7 @@ public class DockerHealthControlPanel extends AbstractControlPanel<DockerHealth>
     @Override
     public DockerHealth getBody() {
         var dockerAvailable = DockerSupport.isDockerAvailable();
+        var circuit = DockerSupport.getCircuit();
         if (dockerAvailable) {
             var factory = DockerClientFactory.instance();
             try {
@@ -81,11 +82,12 @@ public class DockerHealthControlPanel extends AbstractControlPanel<DockerHealth>
                 var info = factory.getInfo();
                 var starting = TestContainers.startingContainers();
                 var pulling = TestContainers.pullingContainers();
-                return new DockerHealth(Status.AVAILABLE, info, runningContainers, containers, pulling, starting);
+                return new DockerHealth(Status.AVAILABLE, info, runningContainers, containers, starting, pulling, circuit, TestContainers.recentEvictions(), TestContainers.reuseStats());
             } catch (Exception ex) {
             }
         }
-        return new DockerHealth(Status.UNAVAILABLE,  null, 0, List.of(), List.of(), List.of());
+        var status = circuit.state() == DockerSupport.CircuitState.UNKNOWN ? Status.UNKNOWN : Status.UNAVAILABLE;
+        return new DockerHealth(status, null, 0, List.of(), List.of(), List.of(), circuit, TestContainers.recentEvictions(), TestContainers.reuseStats());
     }
 
     private static String networkOf(GenericContainer<?> c) {
@@ -16,9 +16,15 @@
 package io.micronaut.testresources.elasticsearch;
 
 import io.micronaut.testresources.testcontainers.AbstractTestContainersProvider;
+import io.micronaut.testresources.testcontainers.ReadinessProbe;
 import org.testcontainers.elasticsearch.ElasticsearchContainer;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -36,6 +42,9 @@ public class ElasticsearchTestResourceProvider extends AbstractTestContainersPro
     public static final String DEFAULT_TAG = "8.4.3";
     public static final String DISPLAY_NAME = "Elasticsearch";
 
+    private static final int PROBE_TIMEOUT_MILLIS = 1000;
+    private static final String RED_STATUS = "\"status\":\"red\"";
+
     @Override
     public List<String> getResolvableProperties(Map<String, Collection<String>> propertyEntries, Map<String, Object> testResourcesConfig) {
         return Collections.singletonList(ELASTICSEARCH_HOSTS);
@@ -67,6 +76,29 @@ public class ElasticsearchTestResourceProvider extends AbstractTestContainersPro
         return elasticsearchContainer;
     }
 
+    @Override
+    protected Optional<ReadinessProbe<? super ElasticsearchContainer>> readinessProbe() {
+        return Optional.of(ElasticsearchTestResourceProvider::isClusterAvailable);
+    }
+
+    private static boolean isClusterAvailable(ElasticsearchContainer container) throws IOException {
+        var connection = (HttpURLConnection) URI.create("http://" + container.getHttpHostAddress() + "/_cluster/health")
+            .toURL()
+            .openConnection();
+        connection.setConnectTimeout(PROBE_TIMEOUT_MILLIS);
+        connection.setReadTimeout(PROBE_TIMEOUT_MILLIS);
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+            try (InputStream body = connection.getInputStream()) {
+                return !new String(body.readAllBytes(), StandardCharsets.UTF_8).contains(RED_STATUS);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
     @Override
     protected Optional<String> resolveProperty(String propertyName, ElasticsearchContainer container) {
         if (ELASTICSEARCH_HOSTS.equals(propertyName)) {
@@ -0,0 +1,11 @@
+package io.micronaut.testresources.elasticsearch
+
+import io.micronaut.testresources.testcontainers.AbstractReadinessProbeBenchmark
+import org.testcontainers.elasticsearch.ElasticsearchContainer
+
+class ElasticsearchReadinessProbeBenchmark extends AbstractReadinessProbeBenchmark<ElasticsearchContainer> {
+    @Override
+    ElasticsearchTestResourceProvider getProvider() {
+        new ElasticsearchTestResourceProvider()
+    }
+}
@@ -79,6 +79,21 @@ public abstract class AbstractHibernateReactiveTestResourceProvider<T extends Jd
         return type != null && type.equalsIgnoreCase(getSimpleName());
     }
 
+    /**
+     * Returns the name of the datasource as the identity of the container. The
+     * required properties, like the connection properties of the regular datasource,
+     * are only used to select the provider or to reuse an existing datasource,
+     * so that requests which only differ by these properties share the container.
+     *
+     * @param propertyName the property to resolve
+     * @param requestedProperties the resolved properties
+     * @return the identity of the container
+     */
+    @Override
+    protected Map<String, Object> containerIdentity(String propertyName, Map<String, Object> requestedProperties) {
+        return Map.of(JPA, datasourceNameFrom(propertyName));
+    }
+
     @Override
     protected Optional<String> resolveWithoutContainer(String propertyName, Map<String, Object> properties, Map<String, Object> testResourcesConfig) {
         String datasourceName = datasourceNameFrom(propertyName);
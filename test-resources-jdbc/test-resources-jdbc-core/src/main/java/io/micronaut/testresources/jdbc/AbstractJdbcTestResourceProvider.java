@@ -18,11 +18,14 @@ package io.micronaut.testresources.jdbc;
 import io.micronaut.testresources.testcontainers.AbstractTestContainersProvider;
 import org.testcontainers.containers.JdbcDatabaseContainer;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -42,6 +45,7 @@ public abstract class AbstractJdbcTestResourceProvider<T extends JdbcDatabaseCon
     private static final String INIT_SCRIPT = "init-script-path";
 
     private static final String TYPE = "db-type";
+    private static final int PROBE_TIMEOUT_SECONDS = 1;
 
     private static final List<String> SUPPORTED_LIST = List.of(URL, USERNAME, PASSWORD, DRIVER);
 
@@ -92,6 +96,20 @@ public abstract class AbstractJdbcTestResourceProvider<T extends JdbcDatabaseCon
         return dialect != null && dialect.equalsIgnoreCase(getSimpleName());
     }
 
+    /**
+     * Returns the name of the datasource as the identity of the container. The
+     * required properties, like the dialect, are only used to select the provider,
+     * so that requests which only differ by these properties share the container.
+     *
+     * @param propertyName the property to resolve
+     * @param requestedProperties the resolved properties
+     * @return the identity of the container
+     */
+    @Override
+    protected Map<String, Object> containerIdentity(String propertyName, Map<String, Object> requestedProperties) {
+        return Map.of(PREFIX, datasourceNameFrom(propertyName));
+    }
+
     @Override
     protected Optional<String> resolveProperty(String expression, T container) {
         String value = switch (datasourcePropertyFrom(expression)) {
@@ -132,6 +150,24 @@ public abstract class AbstractJdbcTestResourceProvider<T extends JdbcDatabaseCon
         }
     }
 
+    /**
+     * A readiness probe which opens a JDBC connection to the database
+     * and checks that it is valid. Unlike {@link JdbcDatabaseContainer#createConnection(String)},
+     * the connection is attempted only once, so that the probe fails fast.
+     *
+     * @param container the database container
+     * @return true if a valid connection could be opened
+     * @throws SQLException if the connection failed
+     */
+    protected static boolean isConnectionValid(JdbcDatabaseContainer<?> container) throws SQLException {
+        Properties info = new Properties();
+        info.put("user", container.getUsername());
+        info.put("password", container.getPassword());
+        try (Connection connection = container.getJdbcDriverInstance().connect(container.getJdbcUrl(), info)) {
+            return connection != null && connection.isValid(PROBE_TIMEOUT_SECONDS);
+        }
+    }
+
     protected static boolean isDatasourceExpression(String expression) {
         return expression.startsWith(PREFIX);
     }
@@ -16,6 +16,7 @@
 package io.micronaut.testresources.postgres;
 
 import io.micronaut.testresources.jdbc.AbstractJdbcTestResourceProvider;
+import io.micronaut.testresources.testcontainers.ReadinessProbe;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.utility.DockerImageName;
 
@@ -23,6 +24,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * A test resource provider which will spawn a MySQL test container.
@@ -58,4 +60,17 @@ public class PostgreSQLTestResourceProvider extends AbstractJdbcTestResourceProv
         return new PostgreSQLContainer<>(imageName);
     }
 
+    @Override
+    protected boolean configureHostNetwork(PostgreSQLContainer<?> container, Map<Integer, Integer> hostPorts, Map<String, Object> properties, Map<String, Object> testResourcesConfig) {
+        // the server listens on PGPORT, and the mapped port is reported as the port of the JDBC URL
+        container.withEnv("PGPORT", String.valueOf(hostPorts.get(PostgreSQLContainer.POSTGRESQL_PORT)));
+        return true;
+    }
+
+    @Override
+    protected Optional<ReadinessProbe<? super PostgreSQLContainer<?>>> readinessProbe() {
+        // replaces waiting for the "ready to accept connections" message to be logged twice
+        return Optional.of(AbstractJdbcTestResourceProvider::isConnectionValid);
+    }
+
 }
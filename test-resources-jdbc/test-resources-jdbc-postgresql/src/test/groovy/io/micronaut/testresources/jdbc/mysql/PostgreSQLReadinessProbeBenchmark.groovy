@@ -0,0 +1,12 @@
+package io.micronaut.testresources.jdbc.mysql
+
+import io.micronaut.testresources.postgres.PostgreSQLTestResourceProvider
+import io.micronaut.testresources.testcontainers.AbstractReadinessProbeBenchmark
+import org.testcontainers.containers.PostgreSQLContainer
+
+class PostgreSQLReadinessProbeBenchmark extends AbstractReadinessProbeBenchmark<PostgreSQLContainer<?>> {
+    @Override
+    PostgreSQLTestResourceProvider getProvider() {
+        new PostgreSQLTestResourceProvider()
+    }
+}
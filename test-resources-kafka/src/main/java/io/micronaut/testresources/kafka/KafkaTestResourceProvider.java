@@ -16,9 +16,16 @@
 package io.micronaut.testresources.kafka;
 
 import io.micronaut.testresources.testcontainers.AbstractTestContainersProvider;
+import io.micronaut.testresources.testcontainers.ReadinessProbe;
 import org.testcontainers.containers.KafkaContainer;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static io.micronaut.testresources.kafka.KafkaConfigurationSupport.isKraftMode;
@@ -41,6 +48,11 @@ public class KafkaTestResourceProvider extends AbstractTestContainersProvider<Ka
     public static final String SIMPLE_NAME = "kafka";
     public static final List<String> SUPPORTED_PROPERTIES_LIST = List.of(KAFKA_BOOTSTRAP_SERVERS);
 
+    private static final int PROBE_TIMEOUT_MILLIS = 1000;
+    private static final short API_VERSIONS_KEY = 18;
+    private static final int PROBE_CORRELATION_ID = 1;
+    private static final byte[] PROBE_CLIENT_ID = "micronaut-test-resources".getBytes(StandardCharsets.UTF_8);
+
     @Override
     public List<String> getResolvableProperties(Map<String, Collection<String>> propertyEntries, Map<String, Object> testResourcesConfig) {
         return Collections.singletonList(KAFKA_BOOTSTRAP_SERVERS);
@@ -69,6 +81,38 @@ public class KafkaTestResourceProvider extends AbstractTestContainersProvider<Ka
             new KafkaContainer(imageName);
     }
 
+    @Override
+    protected Optional<ReadinessProbe<? super KafkaContainer>> readinessProbe() {
+        return Optional.of(KafkaTestResourceProvider::isApiVersionsAnswered);
+    }
+
+    /**
+     * Sends an ApiVersions request, version 0, which is answered by the
+     * broker as soon as it processes requests.
+     *
+     * @param container the Kafka container
+     * @return true if the broker answered without error
+     * @throws IOException if the broker cannot be reached
+     */
+    private static boolean isApiVersionsAnswered(KafkaContainer container) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(container.getHost(), container.getMappedPort(KafkaContainer.KAFKA_PORT)), PROBE_TIMEOUT_MILLIS);
+            socket.setSoTimeout(PROBE_TIMEOUT_MILLIS);
+            var out = new DataOutputStream(socket.getOutputStream());
+            // request size, then header: api key, api version, correlation id, client id
+            out.writeInt(2 + 2 + 4 + 2 + PROBE_CLIENT_ID.length);
+            out.writeShort(API_VERSIONS_KEY);
+            out.writeShort(0);
+            out.writeInt(PROBE_CORRELATION_ID);
+            out.writeShort(PROBE_CLIENT_ID.length);
+            out.write(PROBE_CLIENT_ID);
+            out.flush();
+            // response size, then correlation id and error code
+            var in = new DataInputStream(socket.getInputStream());
+            return in.readInt() >= 6 && in.readInt() == PROBE_CORRELATION_ID && in.readShort() == 0;
+        }
+    }
+
     @Override
     protected Optional<String> resolveProperty(String propertyName, KafkaContainer container) {
         return Optional.of(container.getBootstrapServers());
@@ -0,0 +1,11 @@
+package io.micronaut.testresources.kafka
+
+import io.micronaut.testresources.testcontainers.AbstractReadinessProbeBenchmark
+import org.testcontainers.containers.KafkaContainer
+
+class KafkaReadinessProbeBenchmark extends AbstractReadinessProbeBenchmark<KafkaContainer> {
+    @Override
+    KafkaTestResourceProvider getProvider() {
+        new KafkaTestResourceProvider()
+    }
+}
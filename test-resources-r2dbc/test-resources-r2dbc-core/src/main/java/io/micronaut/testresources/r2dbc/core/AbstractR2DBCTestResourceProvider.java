@@ -99,6 +99,22 @@ public abstract class AbstractR2DBCTestResourceProvider<T extends GenericContain
         return false;
     }
 
+    /**
+     * Returns the name of the datasource as the identity of the container. The
+     * required properties, like the driver or the URL of the regular datasource,
+     * are only used to select the provider or to reuse an existing container,
+     * so that requests which only differ by these properties share the container.
+     *
+     * @param propertyName the property to resolve
+     * @param requestedProperties the resolved properties
+     * @return the identity of the container
+     */
+    @Override
+    protected Map<String, Object> containerIdentity(String propertyName, Map<String, Object> requestedProperties) {
+        String datasource = R2dbcSupport.datasourceNameFrom(R2dbcSupport.removeR2dbPrefixFrom(propertyName));
+        return Map.of(R2dbcSupport.R2DBC_DATASOURCES, datasource);
+    }
+
     @Override
     protected Optional<String> resolveWithoutContainer(String propertyName, Map<String, Object> properties, Map<String, Object> testResourcesConfig) {
         String name = R2dbcSupport.removeR2dbPrefixFrom(propertyName);
@@ -17,8 +17,15 @@ package io.micronaut.testresources.redis;
 
 import com.redis.testcontainers.RedisContainer;
 import io.micronaut.testresources.testcontainers.AbstractTestContainersProvider;
+import io.micronaut.testresources.testcontainers.ReadinessProbe;
 import org.testcontainers.utility.DockerImageName;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +48,10 @@ public class RedisTestResourceProvider extends AbstractTestContainersProvider<Re
     private static final Set<String> SUPPORTED_PROPERTIES = Set.of(REDIS_URI);
     public static final String DISPLAY_NAME = "Redis";
 
+    private static final int PROBE_TIMEOUT_MILLIS = 1000;
+    private static final byte[] PING = "PING\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final String PONG = "+PONG";
+
     @Override
     public List<String> getResolvableProperties(Map<String, Collection<String>> propertyEntries, Map<String, Object> testResourcesConfig) {
         boolean clusterMode = isClusterMode(testResourcesConfig);
@@ -67,6 +78,27 @@ public class RedisTestResourceProvider extends AbstractTestContainersProvider<Re
         return new RedisContainer(imageName);
     }
 
+    @Override
+    protected boolean configureHostNetwork(RedisContainer container, Map<Integer, Integer> hostPorts, Map<String, Object> properties, Map<String, Object> testResourcesConfig) {
+        container.withCommand("redis-server", "--port", String.valueOf(hostPorts.get(RedisContainer.REDIS_PORT)));
+        return true;
+    }
+
+    @Override
+    protected Optional<ReadinessProbe<? super RedisContainer>> readinessProbe() {
+        return Optional.of(RedisTestResourceProvider::isPingAnswered);
+    }
+
+    private static boolean isPingAnswered(RedisContainer container) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(container.getHost(), container.getMappedPort(RedisContainer.REDIS_PORT)), PROBE_TIMEOUT_MILLIS);
+            socket.setSoTimeout(PROBE_TIMEOUT_MILLIS);
+            socket.getOutputStream().write(PING);
+            var reply = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            return PONG.equals(reply.readLine());
+        }
+    }
+
     @Override
     protected Optional<String> resolveProperty(String propertyName, RedisContainer container) {
         if (REDIS_URI.equals(propertyName)) {
@@ -0,0 +1,11 @@
+package io.micronaut.testresources.redis
+
+import com.redis.testcontainers.RedisContainer
+import io.micronaut.testresources.testcontainers.AbstractReadinessProbeBenchmark
+
+class RedisReadinessProbeBenchmark extends AbstractReadinessProbeBenchmark<RedisContainer> {
+    @Override
+    RedisTestResourceProvider getProvider() {
+        new RedisTestResourceProvider()
+    }
+}
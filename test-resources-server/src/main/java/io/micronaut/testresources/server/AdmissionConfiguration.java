@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.testresources.testcontainers.TestContainers;
+
+import java.time.Duration;
+
+/**
+ * Configures how many containers can be started, and how many images
+ * can be pulled, at the same time. Starts beyond these limits are
+ * queued until capacity is available on the host.
+ */
+@ConfigurationProperties("server.admission")
+public final class AdmissionConfiguration {
+    private int maxConcurrentStarts = TestContainers.DEFAULT_MAX_CONCURRENT_STARTS;
+    private int maxConcurrentPulls = TestContainers.DEFAULT_MAX_CONCURRENT_PULLS;
+    private String memoryBudget;
+    private int maxConcurrentStartsPerImage = TestContainers.DEFAULT_MAX_CONCURRENT_STARTS_PER_IMAGE;
+    private int maxQueuedStartsPerImage;
+    private Duration queueTimeout;
+
+    /**
+     * Returns the maximum number of containers which are started concurrently.
+     * 0 means no limit, starts being only delayed while the host is saturated.
+     * @return the maximum number of concurrent starts
+     */
+    public int getMaxConcurrentStarts() {
+        return maxConcurrentStarts;
+    }
+
+    public void setMaxConcurrentStarts(int maxConcurrentStarts) {
+        this.maxConcurrentStarts = maxConcurrentStarts;
+    }
+
+    /**
+     * Returns the maximum number of images which are pulled concurrently.
+     * @return the maximum number of concurrent pulls
+     */
+    public int getMaxConcurrentPulls() {
+        return maxConcurrentPulls;
+    }
+
+    public void setMaxConcurrentPulls(int maxConcurrentPulls) {
+        this.maxConcurrentPulls = maxConcurrentPulls;
+    }
+
+    /**
+     * Returns the maximum memory, for example "4g", of the containers
+     * which are started concurrently, as declared by their <code>memory</code>
+     * configuration. If not set, only the free memory of the host is
+     * taken into account.
+     * @return the memory budget, or null
+     */
+    public String getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(String memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the maximum number of containers of the same image which
+     * are started concurrently, so that slow starts of one image cannot
+     * delay the start of containers of other images. 0, the default, means
+     * no limit, in which case starts are not queued per image.
+     * @return the maximum number of concurrent starts per image
+     */
+    public int getMaxConcurrentStartsPerImage() {
+        return maxConcurrentStartsPerImage;
+    }
+
+    public void setMaxConcurrentStartsPerImage(int maxConcurrentStartsPerImage) {
+        this.maxConcurrentStartsPerImage = maxConcurrentStartsPerImage;
+    }
+
+    /**
+     * Returns the maximum number of starts of the same image waiting
+     * for a previous start of that image to complete. Further starts
+     * are rejected. 0 means no limit.
+     * @return the maximum number of queued starts per image
+     */
+    public int getMaxQueuedStartsPerImage() {
+        return maxQueuedStartsPerImage;
+    }
+
+    public void setMaxQueuedStartsPerImage(int maxQueuedStartsPerImage) {
+        this.maxQueuedStartsPerImage = maxQueuedStartsPerImage;
+    }
+
+    /**
+     * Returns the maximum time a start waits for a previous start of
+     * the same image to complete, after which it is rejected. If not
+     * set, starts wait until they are admitted.
+     * @return the queue timeout, or null
+     */
+    public Duration getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    public void setQueueTimeout(Duration queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.micronaut.scheduling.annotation.Scheduled;
+import io.micronaut.testresources.testcontainers.TestContainers;
+import jakarta.inject.Singleton;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Enables the container journal when the server is started by
+ * the build tools with a settings directory, so that containers
+ * started by a previous server using the same settings directory
+ * are reused instead of being started again.
+ */
+@Singleton
+@Requires(property = ContainerJournalInitializer.SETTINGS_DIRECTORY_PROPERTY)
+public class ContainerJournalInitializer {
+    static final String SETTINGS_DIRECTORY_PROPERTY = "server.settings.directory";
+
+    private final Path settingsDirectory;
+    private final Duration ttl;
+
+    public ContainerJournalInitializer(@Value("${" + SETTINGS_DIRECTORY_PROPERTY + "}") String settingsDirectory,
+                                       @Value("${server.journal.ttl:1h}") Duration ttl) {
+        this.settingsDirectory = Path.of(settingsDirectory);
+        this.ttl = ttl;
+    }
+
+    /**
+     * Looks up the containers which can be reattached as soon as the server is started.
+     * @param event the startup event
+     */
+    @EventListener
+    public void onStartup(ServerStartupEvent event) {
+        TestContainers.enableJournal(settingsDirectory, ttl);
+    }
+
+    /**
+     * Keeps the journal fresh, so that other servers don't remove the
+     * containers of this server while it runs.
+     */
+    @Scheduled(fixedRate = "1m")
+    public void touchJournal() {
+        TestContainers.touchJournal();
+    }
+}
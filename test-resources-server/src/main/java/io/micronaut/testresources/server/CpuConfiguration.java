@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+/**
+ * Configures how the cores of the Docker host are shared between containers.
+ */
+@ConfigurationProperties("server.cpu")
+public final class CpuConfiguration {
+    private boolean partitioning;
+    private int reservedCores;
+
+    /**
+     * Returns true if the cores of the Docker host are split across the
+     * running containers which don't declare their own CPU limits.
+     * @return true if partitioning is enabled
+     */
+    public boolean isPartitioning() {
+        return partitioning;
+    }
+
+    public void setPartitioning(boolean partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    /**
+     * Returns the number of cores which are never assigned to containers
+     * when partitioning is enabled, for example for the test JVMs.
+     * @return the number of reserved cores
+     */
+    public int getReservedCores() {
+        return reservedCores;
+    }
+
+    public void setReservedCores(int reservedCores) {
+        this.reservedCores = reservedCores;
+    }
+}
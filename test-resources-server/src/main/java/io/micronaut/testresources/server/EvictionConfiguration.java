@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configures when the containers of the root scope are stopped
+ * while the server is running, so that a long-lived server doesn't
+ * accumulate containers which are not used anymore.
+ */
+@ConfigurationProperties("server.eviction")
+public final class EvictionConfiguration {
+    private Duration idleTimeout;
+    private String memoryBudget;
+
+    /**
+     * Returns the time after which a container which isn't used
+     * anymore is stopped. If not set, containers are kept running.
+     * @return the idle timeout, or null
+     */
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Returns the maximum memory, for example "8g", of the running containers,
+     * as declared by their <code>memory</code> configuration. When exceeded,
+     * the least recently used containers are stopped.
+     * @return the memory budget, or null
+     */
+    public String getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(String memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+}
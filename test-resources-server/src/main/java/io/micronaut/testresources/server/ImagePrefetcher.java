@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.micronaut.testresources.core.ResolverLoader;
+import io.micronaut.testresources.testcontainers.ImagePrefetchSupport;
+import io.micronaut.testresources.testcontainers.ImagePullMode;
+import io.micronaut.testresources.testcontainers.TestContainers;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Pulls container images in the background, so that the first
+ * resolution of a property doesn't have to wait for the image to
+ * be downloaded. Images are pulled at server startup according to
+ * the {@link PrefetchConfiguration}, and can also be requested later
+ * for a particular test resources configuration.
+ */
+@Singleton
+public class ImagePrefetcher {
+    static final String PREFETCH_KEY = "prefetch";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImagePrefetcher.class);
+
+    private final ResolverLoader loader;
+    private final PrefetchConfiguration configuration;
+    private final PullConfiguration pullConfiguration;
+    private final Puller puller;
+
+    @Inject
+    public ImagePrefetcher(ResolverLoader loader, PrefetchConfiguration configuration, PullConfiguration pullConfiguration) {
+        this(loader, configuration, pullConfiguration, TestContainers::prefetch);
+    }
+
+    ImagePrefetcher(ResolverLoader loader, PrefetchConfiguration configuration, PullConfiguration pullConfiguration, Puller puller) {
+        this.loader = loader;
+        this.configuration = configuration;
+        this.pullConfiguration = pullConfiguration;
+        this.puller = puller;
+    }
+
+    /**
+     * Applies the pull policy and the image lockfile, then starts
+     * pulling the configured images as soon as the server is started.
+     * @param event the startup event
+     */
+    @EventListener
+    public void onStartup(ServerStartupEvent event) {
+        TestContainers.configureImagePullMode(ImagePullMode.of(pullConfiguration.getPolicy()));
+        if (pullConfiguration.getLockfile() != null) {
+            TestContainers.configureImageLockfile(Path.of(pullConfiguration.getLockfile()));
+        }
+        List<DockerImageName> images = new ArrayList<>();
+        configuration.getImages().forEach(image -> images.add(DockerImageName.parse(image)));
+        if (configuration.isDefaultImages()) {
+            images.addAll(imagesFromResolvers(Collections.emptyMap()));
+        }
+        prefetch(images);
+    }
+
+    /**
+     * Pulls the images required by the supplied test resources configuration:
+     * images of containers declared under <code>containers.*</code>, default images
+     * of the enabled resolvers, and images explicitly listed under the
+     * <code>prefetch</code> key.
+     *
+     * @param testResourcesConfig the test resources configuration
+     * @return a future completed when all images are pulled
+     */
+    public CompletableFuture<Void> prefetch(Map<String, Object> testResourcesConfig) {
+        List<DockerImageName> images = new ArrayList<>(imagesFromResolvers(testResourcesConfig));
+        Object explicit = testResourcesConfig.get(PREFETCH_KEY);
+        if (explicit instanceof Collection<?> collection) {
+            collection.forEach(image -> images.add(DockerImageName.parse(String.valueOf(image))));
+        } else if (explicit != null) {
+            images.add(DockerImageName.parse(String.valueOf(explicit)));
+        }
+        return prefetch(images);
+    }
+
+    private CompletableFuture<Void> prefetch(List<DockerImageName> images) {
+        if (images.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        LOGGER.debug("Prefetching images {}", images);
+        return puller.pull(images, configuration.getParallelism());
+    }
+
+    private List<DockerImageName> imagesFromResolvers(Map<String, Object> testResourcesConfig) {
+        return loader.getResolvers()
+            .stream()
+            .filter(ImagePrefetchSupport.class::isInstance)
+            .map(ImagePrefetchSupport.class::cast)
+            .flatMap(resolver -> resolver.getImagesToPrefetch(testResourcesConfig).stream())
+            .toList();
+    }
+
+    /**
+     * Pulls a list of images, with bounded concurrency.
+     */
+    @FunctionalInterface
+    interface Puller {
+        CompletableFuture<Void> pull(List<DockerImageName> images, int parallelism);
+    }
+}
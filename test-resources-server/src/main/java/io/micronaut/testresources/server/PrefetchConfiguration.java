@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configures the images which are pulled in the background as soon
+ * as the server is started, before any property is resolved.
+ */
+@ConfigurationProperties("server.prefetch")
+public final class PrefetchConfiguration {
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private List<String> images = new ArrayList<>();
+    private boolean defaultImages = true;
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Returns the images which should be pulled at startup.
+     * @return the list of images
+     */
+    public List<String> getImages() {
+        return images;
+    }
+
+    public void setImages(List<String> images) {
+        this.images = images;
+    }
+
+    /**
+     * If true, the default image of every test resources resolver
+     * available to the server is pulled at startup. Defaults to true,
+     * since the server only includes the modules used by the project.
+     * @return true if default images should be pulled
+     */
+    public boolean isDefaultImages() {
+        return defaultImages;
+    }
+
+    public void setDefaultImages(boolean defaultImages) {
+        this.defaultImages = defaultImages;
+    }
+
+    /**
+     * Returns the maximum number of images which are pulled concurrently.
+     * @return the maximum number of concurrent pulls
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+}
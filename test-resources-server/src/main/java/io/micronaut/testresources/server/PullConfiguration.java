@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+/**
+ * Configures when the images of containers are pulled, and
+ * which digests they are resolved to.
+ */
+@ConfigurationProperties("server.pull")
+public final class PullConfiguration {
+    private String policy = "if-missing";
+    private String lockfile;
+
+    /**
+     * Returns the pull policy: <code>if-missing</code> only pulls images which
+     * are not available locally, without contacting the registry otherwise,
+     * <code>always</code> pulls images before each container is created, and
+     * <code>never</code> requires images to be available locally.
+     * @return the pull policy
+     */
+    public String getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the path to the image lockfile generated by the build tools.
+     * Images recorded in the lockfile are replaced with their locked digest.
+     * @return the path to the lockfile, or null
+     */
+    public String getLockfile() {
+        return lockfile;
+    }
+
+    public void setLockfile(String lockfile) {
+        this.lockfile = lockfile;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+/**
+ * Configures how containers are shared between scopes.
+ */
+@ConfigurationProperties("server.scopes")
+public final class ScopeConfiguration {
+    private boolean sharing;
+    private int ownerLevel;
+
+    /**
+     * Returns true if a request in a scope reuses the containers of
+     * the ancestors of that scope, instead of starting its own.
+     * @return true if containers are shared along the scope tree
+     */
+    public boolean isSharing() {
+        return sharing;
+    }
+
+    public void setSharing(boolean sharing) {
+        this.sharing = sharing;
+    }
+
+    /**
+     * Returns the number of segments of the scopes which own the containers
+     * created when sharing is enabled. For example, with a level of 2, the
+     * containers requested in scope {@code com.acme.orders} belong to scope
+     * {@code com.acme}. 0 means the root scope.
+     * @return the owner level
+     */
+    public int getOwnerLevel() {
+        return ownerLevel;
+    }
+
+    public void setOwnerLevel(int ownerLevel) {
+        this.ownerLevel = ownerLevel;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.micronaut.testresources.testcontainers.TestContainers;
+import jakarta.inject.Singleton;
+
+/**
+ * Applies the {@link ScopeConfiguration} when the server is started.
+ */
+@Singleton
+public class ScopeInitializer {
+    private final ScopeConfiguration configuration;
+
+    public ScopeInitializer(ScopeConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Configures the sharing of containers between scopes.
+     * @param event the startup event
+     */
+    @EventListener
+    public void onStartup(ServerStartupEvent event) {
+        TestContainers.configureScopeSharing(configuration.isSharing(), configuration.getOwnerLevel());
+    }
+}
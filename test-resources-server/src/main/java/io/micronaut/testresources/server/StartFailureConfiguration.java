@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configures how containers which failed to start are retried.
+ */
+@ConfigurationProperties("server.start-failures")
+public final class StartFailureConfiguration {
+    private Duration backoff = Duration.ofSeconds(30);
+
+    /**
+     * Returns the time during which a container which failed to start
+     * isn't started again, unless the configuration changes. Resolving
+     * a property of that container fails immediately with the original
+     * error instead. A zero duration retries on every resolution.
+     * @return the backoff window
+     */
+    public Duration getBackoff() {
+        return backoff;
+    }
+
+    public void setBackoff(Duration backoff) {
+        this.backoff = backoff;
+    }
+}
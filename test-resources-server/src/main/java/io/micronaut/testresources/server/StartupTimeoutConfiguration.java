@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configures the startup deadlines learned from the start durations
+ * of the containers of each image.
+ */
+@ConfigurationProperties("server.startup-timeouts")
+public final class StartupTimeoutConfiguration {
+    private boolean adaptive;
+    private double factor = 3;
+    private Duration minimum = Duration.ofSeconds(30);
+    private boolean retry;
+
+    /**
+     * Returns true if a start is aborted when it exceeds the deadline
+     * learned from the previous starts of the same image, instead of
+     * waiting for the startup timeout of the container.
+     * @return true if adaptive deadlines are enabled
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Returns the factor applied to the 99th percentile of the
+     * start durations of an image to compute its deadline.
+     * @return the factor
+     */
+    public double getFactor() {
+        return factor;
+    }
+
+    public void setFactor(double factor) {
+        this.factor = factor;
+    }
+
+    /**
+     * Returns the minimum learned deadline.
+     * @return the minimum deadline
+     */
+    public Duration getMinimum() {
+        return minimum;
+    }
+
+    public void setMinimum(Duration minimum) {
+        this.minimum = minimum;
+    }
+
+    /**
+     * Returns true if a start which exceeded its learned deadline
+     * is retried once, on a fresh container.
+     * @return true if aborted starts are retried
+     */
+    public boolean isRetry() {
+        return retry;
+    }
+
+    public void setRetry(boolean retry) {
+        this.retry = retry;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.server;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.runtime.server.event.ServerStartupEvent;
+import io.micronaut.testresources.testcontainers.TestContainers;
+import jakarta.inject.Singleton;
+
+import java.nio.file.Path;
+
+/**
+ * Applies the {@link StartupTimeoutConfiguration} when the server is started.
+ * When the server is started by the build tools with a settings directory,
+ * the start durations are kept in that directory, so that deadlines are
+ * learned across servers.
+ */
+@Singleton
+public class StartupTimeoutInitializer {
+    private final StartupTimeoutConfiguration configuration;
+    private final String settingsDirectory;
+
+    public StartupTimeoutInitializer(StartupTimeoutConfiguration configuration,
+                                     @Value("${" + ContainerJournalInitializer.SETTINGS_DIRECTORY_PROPERTY + ":}") String settingsDirectory) {
+        this.configuration = configuration;
+        this.settingsDirectory = settingsDirectory;
+    }
+
+    /**
+     * Configures the startup history and the learned deadlines.
+     * @param event the startup event
+     */
+    @EventListener
+    public void onStartup(ServerStartupEvent event) {
+        if (!settingsDirectory.isEmpty()) {
+            TestContainers.enableStartupHistory(Path.of(settingsDirectory));
+        }
+        TestContainers.configureAdaptiveStartupTimeouts(
+            configuration.isAdaptive(),
+            configuration.getFactor(),
+            configuration.getMinimum(),
+            configuration.isRetry()
+        );
+    }
+}
@@ -17,6 +17,7 @@ package io.micronaut.testresources.server;
 
 import io.micronaut.context.ApplicationContext;
 import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
 import io.micronaut.http.annotation.Post;
@@ -40,6 +41,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -51,7 +56,7 @@ import java.util.stream.Collectors;
 @Ping
 public class TestResourcesController implements TestResourcesResolver {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestResourcesController.class);
-    private static final int MAX_STOP_TIMEOUT = 5000;
+    private static final int MAX_STOP_TIMEOUT_SECONDS = 60;
     private static final String TEST_RESOURCES_PREFIX = "test-resources.";
 
     private final ResolverLoader loader;
@@ -60,17 +65,20 @@ public class TestResourcesController implements TestResourcesResolver {
     private final EmbeddedServer embeddedServer;
     private final ApplicationContext applicationContext;
     private final TaskScheduler taskScheduler;
+    private final ImagePrefetcher imagePrefetcher;
 
     public TestResourcesController(List<PropertyResolutionListener> propertyResolutionListeners,
                                    EmbeddedServer embeddedServer,
                                    ApplicationContext applicationContext,
                                    ResolverLoader loader,
-                                   TaskScheduler taskScheduler) {
+                                   TaskScheduler taskScheduler,
+                                   ImagePrefetcher imagePrefetcher) {
         this.propertyResolutionListeners = propertyResolutionListeners;
         this.embeddedServer = embeddedServer;
         this.applicationContext = applicationContext;
         this.loader = loader;
         this.taskScheduler = taskScheduler;
+        this.imagePrefetcher = imagePrefetcher;
     }
 
     /**
@@ -183,26 +191,108 @@ public class TestResourcesController implements TestResourcesResolver {
     }
 
     /**
-     * Closes all test resources.
+     * Starts pulling the images required by a test resources configuration
+     * in the background. This call returns immediately.
      *
+     * @param testResourcesConfig the test resources configuration
      * @return true if the operation was successful
      */
-    @Get("/close/all")
-    public boolean closeAll() {
+    @Post("/prefetch")
+    public boolean prefetch(Map<String, Object> testResourcesConfig) {
+        imagePrefetcher.prefetch(sanitizeTestResourcesConfig(testResourcesConfig));
+        return true;
+    }
+
+    /**
+     * Returns the digests of the images used by this server, in the format of
+     * the image lockfile: one line per image, with the image as configured and
+     * the digest it is locked to, separated by a space.
+     *
+     * @return the image lockfile entries
+     */
+    @Get(value = "/images/lock", produces = MediaType.TEXT_PLAIN)
+    public String lockImages() {
+        return TestContainers.lockImages()
+            .entrySet()
+            .stream()
+            .map(entry -> entry.getKey() + " " + entry.getValue() + "\n")
+            .collect(Collectors.joining());
+    }
+
+    /**
+     * Returns the durations recorded for the pull of images and the start
+     * of containers: one line per image and phase, with the number of
+     * recorded durations, the median, the 99th percentile and the learned
+     * deadline, in milliseconds, separated by a space. The deadline is
+     * {@code -} if none was learned.
+     *
+     * @return the startup statistics
+     */
+    @Get(value = "/startup-history", produces = MediaType.TEXT_PLAIN)
+    public String startupHistory() {
+        return TestContainers.startupStatistics()
+            .stream()
+            .map(stats -> String.join(" ",
+                stats.image(),
+                stats.phase(),
+                String.valueOf(stats.samples()),
+                String.valueOf(stats.median().toMillis()),
+                String.valueOf(stats.p99().toMillis()),
+                stats.deadline() == null ? "-" : String.valueOf(stats.deadline().toMillis())) + "\n")
+            .collect(Collectors.joining());
+    }
+
+    /**
+     * Returns the saturation of the bulkheads which limit the concurrent
+     * starts of the containers of each image: one line per image, with the
+     * number of containers being started, the number of queued starts, the
+     * maximum number of concurrent starts and the number of rejected starts,
+     * separated by a space.
+     *
+     * @return the bulkhead statistics
+     */
+    @Get(value = "/bulkheads", produces = MediaType.TEXT_PLAIN)
+    public String bulkheads() {
+        return TestContainers.bulkheads()
+            .stream()
+            .map(stats -> stats.image() + " " + stats.running() + " " + stats.queued() + " " + stats.maxConcurrent() + " " + stats.rejected() + "\n")
+            .collect(Collectors.joining());
+    }
+
+    /**
+     * Closes all test resources. Containers are stopped in the background,
+     * unless the wait mode is used, in which case this call returns once
+     * all containers are stopped.
+     *
+     * @param wait if true, waits for the containers to be stopped
+     * @return true if the operation was successful
+     */
+    @Get("/close/all{?wait}")
+    public boolean closeAll(@Nullable Boolean wait) {
         LOGGER.debug("Closing all test resources");
-        return TestContainers.closeAll();
+        return awaitIfRequested(TestContainers.closeAllAsync(), wait);
     }
 
     /**
-     * Closes a test resource scope.
+     * Closes a test resource scope. Containers are stopped in the background,
+     * unless the wait mode is used, in which case this call returns once
+     * all containers of the scope are stopped.
      *
      * @param id the scope id
+     * @param wait if true, waits for the containers to be stopped
      * @return true if the operation was successful
      */
-    @Get("/close/{id}")
-    public boolean closeScope(@Nullable String id) {
+    @Get("/close/{id}{?wait}")
+    public boolean closeScope(@Nullable String id, @Nullable Boolean wait) {
         LOGGER.info("Closing test resources of scope {}", id);
-        return TestContainers.closeScope(id);
+        return awaitIfRequested(TestContainers.closeScopeAsync(id), wait);
+    }
+
+    private static boolean awaitIfRequested(CompletableFuture<Boolean> close, @Nullable Boolean wait) {
+        if (Boolean.TRUE.equals(wait)) {
+            return close.join();
+        }
+        return true;
     }
 
     /**
@@ -243,16 +333,14 @@ public class TestResourcesController implements TestResourcesResolver {
     public boolean stopService() {
         taskScheduler.schedule(Duration.ofMillis(200), () -> {
             try {
-                try {
-                    embeddedServer.stop();
-                    applicationContext.close();
-                    closeResolvers();
-                    TestContainers.closeAll();
-                } finally {
-                    Thread.sleep(MAX_STOP_TIMEOUT);
-                }
+                embeddedServer.stop();
+                applicationContext.close();
+                closeResolvers();
+                TestContainers.closeAllAsync().get(MAX_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                LOGGER.warn("Unable to stop all test containers: {}", e.getMessage());
             } finally {
                 System.exit(0);
             }
@@ -23,6 +23,8 @@ import io.micronaut.context.env.Environment;
 import io.micronaut.runtime.Micronaut;
 import io.micronaut.runtime.server.EmbeddedServer;
 import io.micronaut.scheduling.annotation.Scheduled;
+import io.micronaut.testresources.testcontainers.DockerSupport;
+import io.micronaut.testresources.testcontainers.TestContainers;
 import jakarta.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +32,10 @@ import org.slf4j.LoggerFactory;
 import java.io.FileWriter;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Main entry point for the server.
@@ -37,9 +43,17 @@ import java.util.Arrays;
 @Singleton
 public class TestResourcesService {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestResourcesService.class);
+    private static final String REAPER_ENABLED_PROPERTY = "server.reaper.enabled";
+    private static final int MAX_STOP_TIMEOUT_SECONDS = 60;
 
     public static void main(String[] args) {
         long sd = System.nanoTime();
+        boolean reaperEnabled = Boolean.parseBoolean(System.getProperty(REAPER_ENABLED_PROPERTY, "true"));
+        if (reaperEnabled) {
+            TestContainers.enableReaper();
+        }
+        // discovers the Docker daemon while the application context starts
+        CompletableFuture<Long> dockerReady = DockerSupport.bootstrap().thenApply(unused -> System.nanoTime());
         ApplicationContext context = Micronaut.run(TestResourcesService.class, args);
         Arrays.stream(args)
             .filter(arg -> arg.startsWith("--port-file="))
@@ -56,12 +70,24 @@ public class TestResourcesService {
                 }
             });
         long dur = System.nanoTime() - sd;
-        LOGGER.info("A Micronaut Test Resources server is listening on port {}, started in {}ms",
-            context.getBean(EmbeddedServer.class).getPort(), Duration.ofNanos(dur).toMillis());
+        int port = context.getBean(EmbeddedServer.class).getPort();
+        Long dockerReadyAt = dockerReady.getNow(null);
+        if (dockerReadyAt != null) {
+            long dockerDur = dockerReadyAt - sd;
+            LOGGER.info("A Micronaut Test Resources server is listening on port {}, started in {}ms (Docker client ready in {}ms, {}ms saved by discovering Docker during startup)",
+                port, Duration.ofNanos(dur).toMillis(), Duration.ofNanos(dockerDur).toMillis(), Duration.ofNanos(Math.min(dur, dockerDur)).toMillis());
+        } else {
+            LOGGER.info("A Micronaut Test Resources server is listening on port {}, started in {}ms (Docker client still initializing, at least {}ms saved by discovering Docker during startup)",
+                port, Duration.ofNanos(dur).toMillis(), Duration.ofNanos(dur).toMillis());
+        }
+        if (reaperEnabled) {
+            TestContainers.reapOrphans(port);
+        }
     }
 
     /**
-     * Periodically checks if the server is expired and if so, shuts it down.
+     * Periodically checks if the server is expired and if so, stops
+     * the test containers and shuts it down.
      * @param server the server
      * @param manager the expiry manager
      */
@@ -69,6 +95,13 @@ public class TestResourcesService {
     public void checkTimeout(EmbeddedServer server, ExpiryManager manager) {
         if (manager.isExpired()) {
             LOGGER.info("Shutting down server due to inactivity");
+            try {
+                TestContainers.closeAllAsync().get(MAX_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                LOGGER.warn("Unable to stop all test containers: {}", e.getMessage());
+            }
             server.stop();
         }
     }
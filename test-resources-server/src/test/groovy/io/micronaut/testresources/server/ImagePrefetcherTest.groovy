@@ -0,0 +1,96 @@
+package io.micronaut.testresources.server
+
+import io.micronaut.testresources.core.ResolverLoader
+import io.micronaut.testresources.core.TestResourcesResolver
+import io.micronaut.testresources.testcontainers.ImagePrefetchSupport
+import org.testcontainers.utility.DockerImageName
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+
+class ImagePrefetcherTest extends Specification {
+    List<List<String>> pulls = []
+    List<Integer> parallelisms = []
+    PrefetchConfiguration configuration = new PrefetchConfiguration()
+    ResolverLoader loader = { [new PrefetchingResolver(), new PlainResolver()] } as ResolverLoader
+    ImagePrefetcher prefetcher = new ImagePrefetcher(loader, configuration, new PullConfiguration(), { images, parallelism ->
+        pulls << images*.asCanonicalNameString()
+        parallelisms << parallelism
+        CompletableFuture.completedFuture(null)
+    })
+
+    def "pulls the default images of the available modules at startup by default"() {
+        when:
+        prefetcher.onStartup(null)
+
+        then:
+        pulls == [['postgres:16']]
+        parallelisms == [PrefetchConfiguration.DEFAULT_PARALLELISM]
+    }
+
+    def "pulls the configured images at startup"() {
+        configuration.images = ['redis:7']
+        configuration.defaultImages = false
+        configuration.parallelism = 2
+
+        when:
+        prefetcher.onStartup(null)
+
+        then:
+        pulls == [['redis:7']]
+        parallelisms == [2]
+    }
+
+    def "doesn't pull anything when there are no images to prefetch"() {
+        configuration.defaultImages = false
+
+        when:
+        prefetcher.onStartup(null)
+
+        then:
+        pulls.empty
+    }
+
+    def "endpoint pulls the images of a test resources configuration"() {
+        def controller = new TestResourcesController([], null, null, loader, null, prefetcher)
+
+        when:
+        def accepted = controller.prefetch([
+            'test-resources.postgres.image-name': 'postgres:15',
+            'test-resources.prefetch'           : ['mysql:8', 'redis:7']
+        ])
+
+        then:
+        accepted
+        pulls == [['postgres:15', 'mysql:8', 'redis:7']]
+    }
+
+    static class PrefetchingResolver implements TestResourcesResolver, ImagePrefetchSupport {
+        @Override
+        List<DockerImageName> getImagesToPrefetch(Map<String, Object> testResourcesConfig) {
+            [DockerImageName.parse(testResourcesConfig.getOrDefault('postgres.image-name', 'postgres:16') as String)]
+        }
+
+        @Override
+        List<String> getResolvableProperties(Map<String, Collection<String>> propertyEntries, Map<String, Object> testResourcesConfig) {
+            []
+        }
+
+        @Override
+        Optional<String> resolve(String propertyName, Map<String, Object> properties, Map<String, Object> testResourcesConfig) {
+            Optional.empty()
+        }
+    }
+
+    static class PlainResolver implements TestResourcesResolver {
+        @Override
+        List<String> getResolvableProperties(Map<String, Collection<String>> propertyEntries, Map<String, Object> testResourcesConfig) {
+            []
+        }
+
+        @Override
+        Optional<String> resolve(String propertyName, Map<String, Object> properties, Map<String, Object> testResourcesConfig) {
+            Optional.empty()
+        }
+    }
+}
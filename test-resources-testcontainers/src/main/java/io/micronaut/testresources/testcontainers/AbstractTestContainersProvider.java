@@ -15,11 +15,17 @@
  */
 package io.micronaut.testresources.testcontainers;
 
+import io.micronaut.testresources.core.Scope;
 import io.micronaut.testresources.core.ToggableTestResourcesResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.WaitStrategy;
 import org.testcontainers.utility.DockerImageName;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -31,7 +37,9 @@ import static io.micronaut.testresources.testcontainers.TestContainerMetadataSup
  * @param <T> the container type
  */
 public abstract class AbstractTestContainersProvider<T extends GenericContainer<? extends T>>
-    implements ToggableTestResourcesResolver {
+    implements ToggableTestResourcesResolver, ImagePrefetchSupport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTestContainersProvider.class);
+
     @Override
     public String getName() {
         return "containers." + getSimpleName();
@@ -111,39 +119,142 @@ public abstract class AbstractTestContainersProvider<T extends GenericContainer<
             }
             return resolveProperty(propertyName,
                 TestContainers.getOrCreate(propertyName, this.getClass(), getSimpleName(),
-                    properties, () -> {
-                        String defaultImageName = getDefaultImageName();
-                        DockerImageName imageName = DockerImageName.parse(defaultImageName);
-                        Optional<TestContainerMetadata> metadata =
-                            TestContainerMetadataSupport.containerMetadataFor(
-                                    Collections.singletonList(getSimpleName()), testResourcesConfig)
-                                .findAny();
-                        if (metadata.isPresent()) {
-                            TestContainerMetadata md = metadata.get();
-                            if (md.getImageName().isPresent()) {
-                                imageName = DockerImageName.parse(md.getImageName().get())
-                                    .asCompatibleSubstituteFor(defaultImageName);
-                            }
-                            if (md.getImageTag().isPresent()) {
-                                imageName = imageName.withTag(md.getImageTag().get());
-                            }
-                        }
-                        return imageName;
-                    }, imageName -> {
-                        Optional<TestContainerMetadata> metadata =
-                            TestContainerMetadataSupport.containerMetadataFor(
-                                    Collections.singletonList(getSimpleName()), testResourcesConfig)
-                                .findAny();
+                    identityOf(propertyName, properties), () -> imageNameFor(testResourcesConfig), imageName -> {
+                        Optional<TestContainerMetadata> metadata = metadataFor(testResourcesConfig);
                         T container = createContainer(imageName, properties, testResourcesConfig);
                         configureContainer(container, properties, testResourcesConfig);
+                        // applied before the metadata, so that a configured wait strategy wins
+                        Optional<WaitStrategy> readiness = readinessProbe().map(probe ->
+                            new ReadinessProbeWaitStrategy(() -> probe.isReady(container)));
+                        readiness.ifPresent(container::waitingFor);
                         metadata.ifPresent(
                             md -> TestContainerMetadataSupport.applyMetadata(md, container));
+                        if (HostNetwork.isRequested(container)) {
+                            WaitStrategy waitStrategy = metadata.flatMap(TestContainerMetadata::getWaitStrategy)
+                                .or(() -> readiness)
+                                .orElse(null);
+                            useHostNetwork(container, waitStrategy, properties, testResourcesConfig);
+                        }
                         return container;
-                    }));
+                    }, () -> metadataFor(testResourcesConfig),
+                    TestContainerMetadataModel.of(testResourcesConfig).fingerprint()));
         }
         return Optional.empty();
     }
 
+    /**
+     * Returns the request properties which identify the container: requests
+     * which only differ by other properties share the same container. This
+     * should be overridden by resolvers which require properties that are
+     * only used to decide if they should answer, like a dialect or a driver,
+     * but which don't change the container. The scope of the request always
+     * identifies the container, and doesn't need to be returned. By default,
+     * all the request properties identify the container.
+     *
+     * @param propertyName the property to resolve
+     * @param requestedProperties the resolved properties
+     * @return the properties which identify the container, or null to use all the request properties
+     */
+    protected Map<String, Object> containerIdentity(String propertyName, Map<String, Object> requestedProperties) {
+        return requestedProperties;
+    }
+
+    final Map<String, Object> identityOf(String propertyName, Map<String, Object> properties) {
+        Map<String, Object> identity = containerIdentity(propertyName, properties);
+        if (identity == null) {
+            return properties;
+        }
+        Object scope = properties.get(Scope.PROPERTY_KEY);
+        if (identity == properties || scope == null || scope.equals(identity.get(Scope.PROPERTY_KEY))) {
+            return identity;
+        }
+        Map<String, Object> scoped = new HashMap<>(identity);
+        scoped.put(Scope.PROPERTY_KEY, scope);
+        return scoped;
+    }
+
+    @Override
+    public List<DockerImageName> getImagesToPrefetch(Map<String, Object> testResourcesConfig) {
+        if (!isEnabled(testResourcesConfig)) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(imageNameFor(testResourcesConfig));
+    }
+
+    private DockerImageName imageNameFor(Map<String, Object> testResourcesConfig) {
+        String defaultImageName = getDefaultImageName();
+        DockerImageName imageName = DockerImageName.parse(defaultImageName);
+        Optional<TestContainerMetadata> metadata = metadataFor(testResourcesConfig);
+        if (metadata.isPresent()) {
+            TestContainerMetadata md = metadata.get();
+            if (md.getImageName().isPresent()) {
+                imageName = DockerImageName.parse(md.getImageName().get())
+                    .asCompatibleSubstituteFor(defaultImageName);
+            }
+            if (md.getImageTag().isPresent()) {
+                imageName = imageName.withTag(md.getImageTag().get());
+            }
+        }
+        return imageName;
+    }
+
+    private Optional<TestContainerMetadata> metadataFor(Map<String, Object> testResourcesConfig) {
+        return TestContainerMetadataModel.of(testResourcesConfig).metadata(getSimpleName());
+    }
+
+    /**
+     * Returns a probe which checks if the container is ready using the native
+     * protocol of the service, for example by opening a connection to a database.
+     * If present, the probe replaces the default wait strategy of the container,
+     * unless a wait strategy is configured explicitly. Note that some containers,
+     * like most JDBC containers, don't use a wait strategy, in which case the
+     * probe isn't used.
+     *
+     * @return the readiness probe, or an empty optional to use the default wait strategy
+     */
+    protected Optional<ReadinessProbe<? super T>> readinessProbe() {
+        return Optional.empty();
+    }
+
+    /**
+     * Configures the services of a container which uses the host network,
+     * when its <code>network-mode</code> is set to <code>host</code>, to
+     * listen on the supplied ports instead of their default ports. The
+     * mapped ports of the container are then the allocated ports, so that
+     * properties can be resolved as usual. Resolvers which return false
+     * don't support the host network, in which case the container uses
+     * the default network.
+     *
+     * @param container the container
+     * @param hostPorts the allocated host port, by exposed port of the container
+     * @param properties the resolved properties
+     * @param testResourcesConfig the test resources configuration
+     * @return true if the container was configured to listen on the allocated ports
+     */
+    protected boolean configureHostNetwork(T container,
+                                           Map<Integer, Integer> hostPorts,
+                                           Map<String, Object> properties,
+                                           Map<String, Object> testResourcesConfig) {
+        return false;
+    }
+
+    private void useHostNetwork(T container, WaitStrategy waitStrategy, Map<String, Object> properties, Map<String, Object> testResourcesConfig) {
+        if (!HostNetwork.isSupported()) {
+            LOGGER.warn("The host network is only supported when Docker runs on the same Linux host, container {} uses the default network", getSimpleName());
+            container.setNetworkMode(null);
+            return;
+        }
+        Map<Integer, Integer> hostPorts = HostNetwork.allocatePorts(container.getExposedPorts());
+        if (configureHostNetwork(container, hostPorts, properties, testResourcesConfig)) {
+            HostNetwork.publish(container, hostPorts, waitStrategy);
+            LOGGER.info("Container {} uses the host network on ports {}", getSimpleName(), hostPorts.values());
+        } else {
+            LOGGER.warn("Container {} doesn't support the host network, it uses the default network", getSimpleName());
+            HostNetwork.release(hostPorts.values());
+            container.setNetworkMode(null);
+        }
+    }
+
     protected void configureContainer(T container, Map<String, Object> properties,
                                       Map<String, Object> testResourcesConfig) {
     }
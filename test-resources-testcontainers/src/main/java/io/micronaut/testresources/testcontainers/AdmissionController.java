@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Limits the number of operations, like container starts or image pulls,
+ * which run concurrently on the host. An operation is admitted when the
+ * number of running operations is below the configured limit, if any, when
+ * the host CPU isn't saturated, and when the memory declared for the
+ * operation fits both in the configured budget and in the free memory of
+ * the host. Waiting operations are admitted in FIFO order. An operation is
+ * always admitted if no other operation is running, so that a single
+ * operation which exceeds the budget cannot block forever.
+ */
+final class AdmissionController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionController.class);
+    private static final double CPU_SATURATION = 0.9;
+    private static final long RECHECK_MILLIS = 500;
+
+    private final String operation;
+    private final HostMetrics metrics;
+    private final Deque<Ticket> queue = new ArrayDeque<>();
+    private int maxConcurrent;
+    private long memoryBudget;
+    private int running;
+    private long reservedMemory;
+
+    AdmissionController(String operation, int maxConcurrent, long memoryBudget, HostMetrics metrics) {
+        this.operation = operation;
+        this.maxConcurrent = maxConcurrent;
+        this.memoryBudget = memoryBudget;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Updates the limits of this controller.
+     *
+     * @param maxConcurrent the maximum number of concurrent operations, or 0 for no limit
+     * @param memoryBudget the maximum memory reserved by concurrent operations, or 0 for no limit
+     */
+    synchronized void configure(int maxConcurrent, long memoryBudget) {
+        this.maxConcurrent = Math.max(0, maxConcurrent);
+        this.memoryBudget = memoryBudget;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the operation is admitted.
+     *
+     * @param description the description of the operation, reported while it is queued
+     * @param memory the memory required by the operation, or 0 if unknown
+     * @return the permit, which must be closed once the operation is complete
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized Permit acquire(String description, long memory) throws InterruptedException {
+        Ticket ticket = new Ticket(description);
+        queue.addLast(ticket);
+        try {
+            while (queue.peekFirst() != ticket || !canAdmit(memory)) {
+                if (LOGGER.isDebugEnabled() && queue.peekFirst() == ticket) {
+                    LOGGER.debug("Delaying {} of {}: {} running, {} bytes reserved", operation, description, running, reservedMemory);
+                }
+                // host metrics change without notification, so we need to recheck periodically
+                wait(RECHECK_MILLIS);
+            }
+        } finally {
+            queue.remove(ticket);
+            notifyAll();
+        }
+        running++;
+        reservedMemory += memory;
+        return () -> release(memory);
+    }
+
+    private synchronized void release(long memory) {
+        running--;
+        reservedMemory -= memory;
+        notifyAll();
+    }
+
+    private boolean canAdmit(long memory) {
+        if (running == 0) {
+            return true;
+        }
+        if ((maxConcurrent > 0 && running >= maxConcurrent) || metrics.cpuLoad() >= CPU_SATURATION) {
+            return false;
+        }
+        if (memory <= 0) {
+            return true;
+        }
+        if (memoryBudget > 0 && reservedMemory + memory > memoryBudget) {
+            return false;
+        }
+        long freeMemory = metrics.freeMemory();
+        return freeMemory < 0 || reservedMemory + memory <= freeMemory;
+    }
+
+    /**
+     * Returns the descriptions of the queued operations, with their position in the queue.
+     *
+     * @return the queued operations
+     */
+    synchronized List<String> queued() {
+        List<String> queued = new ArrayList<>(queue.size());
+        int position = 1;
+        for (Ticket ticket : queue) {
+            queued.add(ticket.description + " (queued, position " + position++ + ")");
+        }
+        return queued;
+    }
+
+    synchronized int running() {
+        return running;
+    }
+
+    synchronized int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * A permit to run an operation, which must be closed once the operation is complete.
+     */
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Measures the load of the host.
+     */
+    interface HostMetrics {
+        /**
+         * Returns the recent CPU load of the host, between 0 and 1, or a negative value if unknown.
+         *
+         * @return the CPU load
+         */
+        double cpuLoad();
+
+        /**
+         * Returns the free physical memory of the host in bytes, or a negative value if unknown.
+         *
+         * @return the free memory
+         */
+        long freeMemory();
+
+        static HostMetrics fromOperatingSystem() {
+            if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+                return new HostMetrics() {
+                    @Override
+                    public double cpuLoad() {
+                        return os.getCpuLoad();
+                    }
+
+                    @Override
+                    public long freeMemory() {
+                        return os.getFreeMemorySize();
+                    }
+                };
+            }
+            return new HostMetrics() {
+                @Override
+                public double cpuLoad() {
+                    return -1;
+                }
+
+                @Override
+                public long freeMemory() {
+                    return -1;
+                }
+            };
+        }
+    }
+
+    /**
+     * A queued operation. Tickets are compared by identity.
+     */
+    private static final class Ticket {
+        private final String description;
+
+        private Ticket(String description) {
+            this.description = description;
+        }
+    }
+}
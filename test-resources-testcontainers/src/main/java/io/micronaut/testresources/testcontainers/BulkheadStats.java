@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+/**
+ * The saturation of the bulkhead which limits the concurrent starts
+ * of the containers of an image.
+ *
+ * @param image the image, without its tag
+ * @param running the number of containers being started
+ * @param queued the number of starts waiting for the bulkhead
+ * @param maxConcurrent the maximum number of concurrent starts, or 0 for no limit
+ * @param rejected the number of starts which were rejected because the queue was full or the queue timeout elapsed
+ */
+public record BulkheadStats(
+    String image,
+    int running,
+    int queued,
+    int maxConcurrent,
+    long rejected
+) {
+    /**
+     * Returns true if no more containers of this image can be
+     * started without waiting.
+     *
+     * @return true if the bulkhead is saturated
+     */
+    public boolean saturated() {
+        return maxConcurrent > 0 && running >= maxConcurrent;
+    }
+}
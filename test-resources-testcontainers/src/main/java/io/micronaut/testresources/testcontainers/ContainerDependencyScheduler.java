@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import io.micronaut.testresources.core.TestResourcesResolutionException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Schedules the start of the containers a generic container depends on.
+ * The dependency graph is checked for cycles before anything is started.
+ * Then, containers which do not depend on each other are started concurrently,
+ * and a container is started as soon as all of its own dependencies are ready,
+ * so that the total startup time is the one of the critical path.
+ */
+final class ContainerDependencyScheduler {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final Map<String, TestContainerMetadata> containersById;
+    private final int parallelism;
+
+    /**
+     * Creates a scheduler for the supplied containers.
+     *
+     * @param containersMetadata the metadata of the containers
+     * @param parallelism the maximum number of containers started concurrently
+     */
+    ContainerDependencyScheduler(Collection<TestContainerMetadata> containersMetadata, int parallelism) {
+        this.containersById = new LinkedHashMap<>();
+        for (TestContainerMetadata md : containersMetadata) {
+            containersById.put(md.getId(), md);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Starts all the transitive dependencies of the supplied container,
+     * but not the container itself, and waits for them to be ready.
+     *
+     * @param container the container whose dependencies must be started
+     * @param starter the action which starts a single container
+     */
+    void startDependenciesOf(TestContainerMetadata container, Consumer<TestContainerMetadata> starter) {
+        List<TestContainerMetadata> ordered = topologicalOrder(container);
+        if (ordered.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, ordered.size())), r -> {
+            Thread thread = new Thread(r, "test-resources-dependency-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, CompletableFuture<Void>> started = new LinkedHashMap<>();
+            for (TestContainerMetadata md : ordered) {
+                CompletableFuture<?>[] dependencies = md.getDependencies()
+                    .stream()
+                    .map(started::get)
+                    .toArray(CompletableFuture<?>[]::new);
+                started.put(md.getId(), CompletableFuture.allOf(dependencies)
+                    .thenRunAsync(() -> starter.accept(md), executor));
+            }
+            CompletableFuture.allOf(started.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException ex) {
+            var cause = ex.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new TestResourcesResolutionException(cause);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the transitive dependencies of the supplied container, in an order
+     * such that every container comes after its dependencies.
+     *
+     * @param container the root container
+     * @return the dependencies, in topological order
+     */
+    List<TestContainerMetadata> topologicalOrder(TestContainerMetadata container) {
+        Set<String> visited = new LinkedHashSet<>();
+        List<TestContainerMetadata> result = new ArrayList<>();
+        List<String> path = new ArrayList<>();
+        path.add(container.getId());
+        for (String dependency : container.getDependencies()) {
+            visit(dependency, path, visited, result);
+        }
+        return result;
+    }
+
+    private void visit(String id, List<String> path, Set<String> visited, List<TestContainerMetadata> result) {
+        if (path.contains(id)) {
+            List<String> cycle = new ArrayList<>(path.subList(path.indexOf(id), path.size()));
+            cycle.add(id);
+            throw new IllegalArgumentException("Cycle detected in container dependencies: " + String.join(" -> ", cycle));
+        }
+        if (visited.contains(id)) {
+            return;
+        }
+        TestContainerMetadata md = containersById.get(id);
+        if (md == null) {
+            throw new IllegalArgumentException("Dependent container '" + id + "' doesn't exist or cannot be resolved");
+        }
+        path.add(id);
+        for (String dependency : md.getDependencies()) {
+            visit(dependency, path, visited, result);
+        }
+        path.remove(path.size() - 1);
+        visited.add(id);
+        result.add(md);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Watches the Docker event stream for managed containers which die,
+ * for example because they were killed by the OOM killer or removed
+ * by hand. The stream is filtered on the label which is set on every
+ * container started by test resources. If the stream is interrupted,
+ * the watcher subscribes again after a delay, resuming from the time
+ * of the last event it received.
+ */
+final class ContainerEventWatcher {
+    static final String[] DEATH_EVENTS = {"die", "oom", "destroy"};
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerEventWatcher.class);
+
+    private final Supplier<DockerClient> clientSupplier;
+    private final BiConsumer<String, String> onDeath;
+    private final Executor executor;
+    private final Duration resubscribeDelay;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicLong since = new AtomicLong();
+    private final AtomicReference<Closeable> subscription = new AtomicReference<>();
+
+    /**
+     * Creates a watcher.
+     *
+     * @param clientSupplier supplies the Docker client
+     * @param onDeath called with the container id and the event action whenever a managed container dies
+     * @param executor the executor used to subscribe again
+     * @param resubscribeDelay the delay before subscribing again if the stream is interrupted
+     */
+    ContainerEventWatcher(Supplier<DockerClient> clientSupplier,
+                          BiConsumer<String, String> onDeath,
+                          Executor executor,
+                          Duration resubscribeDelay) {
+        this.clientSupplier = clientSupplier;
+        this.onDeath = onDeath;
+        this.executor = executor;
+        this.resubscribeDelay = resubscribeDelay;
+    }
+
+    /**
+     * Subscribes to the event stream, unless already subscribed.
+     */
+    void start() {
+        if (started.compareAndSet(false, true)) {
+            since.set(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+            subscribe();
+        }
+    }
+
+    /**
+     * Unsubscribes from the event stream.
+     */
+    void stop() {
+        if (started.compareAndSet(true, false)) {
+            closeSubscription();
+        }
+    }
+
+    boolean isStarted() {
+        return started.get();
+    }
+
+    private void subscribe() {
+        if (!started.get()) {
+            return;
+        }
+        var callback = new Callback();
+        // registered before executing, because the stream may end before exec returns
+        subscription.set(callback);
+        try {
+            clientSupplier.get()
+                .eventsCmd()
+                .withEventTypeFilter(EventType.CONTAINER)
+                .withLabelFilter(ContainerJournal.KEY_LABEL)
+                .withEventFilter(DEATH_EVENTS)
+                .withSince(String.valueOf(since.get()))
+                .exec(callback);
+            LOGGER.debug("Watching Docker events of managed containers");
+        } catch (Exception ex) {
+            LOGGER.debug("Unable to watch Docker events: {}", ex.getMessage());
+            if (subscription.compareAndSet(callback, null)) {
+                resubscribeLater();
+            }
+        }
+    }
+
+    private void resubscribeLater() {
+        if (started.get()) {
+            CompletableFuture.runAsync(this::subscribe,
+                CompletableFuture.delayedExecutor(resubscribeDelay.toMillis(), TimeUnit.MILLISECONDS, executor));
+        }
+    }
+
+    private void closeSubscription() {
+        Closeable current = subscription.getAndSet(null);
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ex) {
+                LOGGER.debug("Unable to close Docker event stream: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void handle(Event event) {
+        if (event.getTime() != null) {
+            since.accumulateAndGet(event.getTime(), Math::max);
+        }
+        String containerId = event.getId();
+        if (containerId == null && event.getActor() != null) {
+            containerId = event.getActor().getId();
+        }
+        String action = event.getAction() != null ? event.getAction() : event.getStatus();
+        if (containerId != null) {
+            LOGGER.debug("Received Docker event {} for container {}", action, containerId);
+            onDeath.accept(containerId, action);
+        }
+    }
+
+    private final class Callback extends ResultCallback.Adapter<Event> {
+        @Override
+        public void onNext(Event event) {
+            try {
+                handle(event);
+            } catch (Exception ex) {
+                LOGGER.warn("Unable to handle Docker event {}: {}", event, ex.getMessage());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // not delegating to the parent, which logs the error: the stream is expected to fail if Docker goes away
+            LOGGER.debug("Docker event stream failed: {}", throwable.getMessage());
+            try {
+                close();
+            } catch (IOException ex) {
+                LOGGER.debug("Unable to close Docker event stream: {}", ex.getMessage());
+            }
+            onStreamEnd();
+        }
+
+        @Override
+        public void onComplete() {
+            super.onComplete();
+            onStreamEnd();
+        }
+
+        private void onStreamEnd() {
+            if (subscription.compareAndSet(this, null)) {
+                resubscribeLater();
+            }
+        }
+    }
+}
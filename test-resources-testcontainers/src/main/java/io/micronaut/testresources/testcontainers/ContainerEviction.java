@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import java.time.Instant;
+
+/**
+ * Describes a managed container which was removed from the registry,
+ * either because it died unexpectedly, for example because it was
+ * killed by the OOM killer or removed by hand, or because it was
+ * stopped by the eviction policy.
+ *
+ * @param scope the scope of the container, or null for a spare container
+ * @param containerId the id of the container
+ * @param imageName the image of the container
+ * @param reason the reason of the eviction: the Docker event, for example "oom" or "die", or the eviction policy, for example "idle"
+ * @param time the time of the eviction
+ */
+public record ContainerEviction(
+    String scope,
+    String containerId,
+    String imageName,
+    String reason,
+    Instant time
+) {
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Container;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * A small on-disk journal of the containers managed by the server, which
+ * makes it possible for a new server to reattach to containers started
+ * by a previous server which used the same settings directory.
+ * Each entry maps the hash of a container key to a container id.
+ * The containers are started with Testcontainers reuse, and labeled with
+ * the journal directory, so that Testcontainers finds the container of a
+ * previous server with the same configuration instead of starting a new
+ * one. Containers are only kept for the time to live of the journal after
+ * it was last written, after which they are removed instead of being
+ * reattached.
+ */
+final class ContainerJournal {
+    static final String KEY_LABEL = "io.micronaut.testresources.key";
+    static final Duration DEFAULT_TTL = Duration.ofHours(1);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerJournal.class);
+    private static final String FILE_NAME = "containers.properties";
+    private static final String HEALTHY = "healthy";
+
+    private final Path file;
+    private final Duration ttl;
+    private final Properties entries = new Properties();
+
+    ContainerJournal(Path directory) {
+        this(directory, DEFAULT_TTL);
+    }
+
+    ContainerJournal(Path directory, Duration ttl) {
+        this.file = directory.resolve(FILE_NAME);
+        this.ttl = ttl;
+        load();
+    }
+
+    /**
+     * Checks if a journal still keeps its containers, which is the case
+     * if it exists and was written within its time to live.
+     *
+     * @param directory the directory of the journal
+     * @param ttl the time to live of the journal
+     * @return true if the containers of the journal are kept
+     */
+    static boolean isKept(Path directory, Duration ttl) {
+        return isWrittenWithin(directory.resolve(FILE_NAME), ttl);
+    }
+
+    /**
+     * Returns the directory of the journal, which identifies the
+     * servers which can reattach to the containers of this journal.
+     *
+     * @return the journal directory
+     */
+    String directory() {
+        return file.getParent().toAbsolutePath().toString();
+    }
+
+    Duration ttl() {
+        return ttl;
+    }
+
+    /**
+     * Records the container started for a key.
+     *
+     * @param keyHash the hash of the container key
+     * @param containerId the id of the container
+     * @return the id of the container previously recorded for the key, or null
+     */
+    synchronized String record(String keyHash, String containerId) {
+        var previous = (String) entries.setProperty(keyHash, containerId);
+        save();
+        return previous;
+    }
+
+    synchronized void forget(Set<String> keyHashes) {
+        if (entries.keySet().removeAll(keyHashes)) {
+            save();
+        }
+    }
+
+    /**
+     * Writes the journal again, which starts the time to live of the
+     * containers it keeps. A server touches its journal periodically, so
+     * that other servers don't remove its containers while it runs.
+     */
+    synchronized void touch() {
+        save();
+    }
+
+    /**
+     * Looks up the containers of the journal which are still running and
+     * healthy. The other containers labeled with the journal directory, for
+     * example because they were kept for longer than the time to live of the
+     * journal, are removed, so that they cannot be reused, and so are their
+     * entries.
+     *
+     * @param client the Docker client
+     * @return the container ids which can be reattached, by key hash
+     */
+    synchronized Map<String, String> findReattachableContainers(DockerClient client) {
+        Map<String, String> keyHashes = new HashMap<>();
+        entries.stringPropertyNames().forEach(keyHash -> keyHashes.put(entries.getProperty(keyHash), keyHash));
+        Map<String, String> reattachable = new HashMap<>();
+        for (Container container : client.listContainersCmd()
+            .withShowAll(true)
+            .withLabelFilter(Collections.singletonMap(ContainerReaper.JOURNAL_LABEL, directory()))
+            .exec()) {
+            String containerId = container.getId();
+            String keyHash = keyHashes.get(containerId);
+            if (keyHash != null && isHealthy(client.inspectContainerCmd(containerId).exec())) {
+                reattachable.put(keyHash, containerId);
+            } else {
+                LOGGER.debug("Container {} can no longer be reattached, removing it", containerId);
+                remove(client, containerId);
+            }
+        }
+        entries.keySet().retainAll(reattachable.keySet());
+        save();
+        return reattachable;
+    }
+
+    static void remove(DockerClient client, String containerId) {
+        try {
+            client.removeContainerCmd(containerId).withForce(true).withRemoveVolumes(true).exec();
+        } catch (Exception ex) {
+            LOGGER.debug("Unable to remove test container {}: {}", containerId, ex.getMessage());
+        }
+    }
+
+    private static boolean isHealthy(InspectContainerResponse containerInfo) {
+        var state = containerInfo.getState();
+        if (!Boolean.TRUE.equals(state.getRunning())) {
+            return false;
+        }
+        var health = state.getHealth();
+        return health == null || health.getStatus() == null || HEALTHY.equals(health.getStatus());
+    }
+
+    private static boolean isWrittenWithin(Path file, Duration ttl) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().plus(ttl).isAfter(Instant.now());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void load() {
+        if (Files.exists(file) && !isWrittenWithin(file, ttl)) {
+            LOGGER.info("Containers of journal {} were kept for more than {}, they will be removed", file, ttl);
+        } else if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                entries.load(in);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read container journal {}", file, e);
+            }
+        }
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                entries.store(out, "Containers managed by the Micronaut Test Resources server");
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write container journal {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A pool of pre-started spare containers. Spares are indexed by the
+ * key of the container they can replace, without its scope, so that
+ * a spare can be bound to any scope which requests an identical
+ * container. Whenever a spare is taken, a replacement is started in
+ * the background.
+ */
+final class ContainerPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerPool.class);
+
+    private final Map<TestContainers.Key, Deque<GenericContainer<?>>> spares = new ConcurrentHashMap<>();
+    private final Map<TestContainers.Key, AtomicInteger> pending = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Executor executor;
+
+    ContainerPool(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Takes a spare container for the supplied pool key, if any.
+     *
+     * @param poolKey the pool key
+     * @return a started container, or null if there's no spare
+     */
+    GenericContainer<?> take(TestContainers.Key poolKey) {
+        Deque<GenericContainer<?>> available = spares.get(poolKey);
+        return available == null ? null : available.pollFirst();
+    }
+
+    /**
+     * Starts as many spare containers in the background as needed so that
+     * the pool contains the requested number of containers.
+     *
+     * @param poolKey the pool key
+     * @param size the number of spare containers to keep
+     * @param starter the action which creates and starts a container
+     */
+    void replenish(TestContainers.Key poolKey, int size, Supplier<? extends GenericContainer<?>> starter) {
+        Deque<GenericContainer<?>> available = spares.computeIfAbsent(poolKey, unused -> new ConcurrentLinkedDeque<>());
+        AtomicInteger inProgress = pending.computeIfAbsent(poolKey, unused -> new AtomicInteger());
+        long currentGeneration = generation.get();
+        int starting = inProgress.get();
+        int deficit = size - available.size() - starting;
+        // if another thread replenishes the pool concurrently, it accounts for the missing containers
+        if (deficit <= 0 || !inProgress.compareAndSet(starting, starting + deficit)) {
+            return;
+        }
+        for (int i = 0; i < deficit; i++) {
+            executor.execute(() -> startSpare(poolKey, currentGeneration, starter, available, inProgress));
+        }
+    }
+
+    private void startSpare(TestContainers.Key poolKey,
+                            long startGeneration,
+                            Supplier<? extends GenericContainer<?>> starter,
+                            Deque<GenericContainer<?>> available,
+                            AtomicInteger inProgress) {
+        try {
+            GenericContainer<?> container = starter.get();
+            if (generation.get() == startGeneration) {
+                available.addLast(container);
+                LOGGER.debug("Spare container {} is ready for {}", container.getContainerId(), poolKey);
+            } else {
+                // the pool was cleared while we were starting
+                container.close();
+                HostNetwork.release(container);
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Unable to start spare container for {}: {}", poolKey, ex.getMessage());
+        } finally {
+            inProgress.decrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the spare container with the supplied id, if any.
+     *
+     * @param containerId the container id
+     * @return the removed container, which must be closed by the caller, or null
+     */
+    GenericContainer<?> remove(String containerId) {
+        for (Deque<GenericContainer<?>> available : spares.values()) {
+            for (GenericContainer<?> container : available) {
+                if (containerId.equals(container.getContainerId()) && available.remove(container)) {
+                    return container;
+                }
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return spares.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    /**
+     * Removes all spare containers from the pool. Spares which are
+     * still starting are closed as soon as they are started.
+     *
+     * @return the spare containers, which must be closed by the caller
+     */
+    List<GenericContainer<?>> drain() {
+        generation.incrementAndGet();
+        List<GenericContainer<?>> drained = new ArrayList<>();
+        for (Deque<GenericContainer<?>> available : spares.values()) {
+            GenericContainer<?> container;
+            while ((container = available.pollFirst()) != null) {
+                drained.add(container);
+            }
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.model.Container;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Cleans up the containers started by the server, instead of relying on the
+ * Testcontainers Ryuk container, which costs an additional image pull and
+ * container start before the first container can be started. Ryuk is disabled
+ * by the build tools, with the <code>TESTCONTAINERS_RYUK_DISABLED</code>
+ * environment variable of the server process. Containers are labeled with the
+ * session of the server which started them, so that a new server can remove
+ * the containers left behind by a server which didn't shut down cleanly, for
+ * example because it was killed. Containers kept for the next server are not
+ * labeled with the session, which would prevent their reuse, but belong to
+ * their container journal.
+ */
+final class ContainerReaper {
+    static final String SESSION_LABEL = "io.micronaut.testresources.session";
+    static final String HOST_LABEL = "io.micronaut.testresources.host";
+    static final String PID_LABEL = "io.micronaut.testresources.pid";
+    static final String PORT_LABEL = "io.micronaut.testresources.port";
+    static final String JOURNAL_LABEL = "io.micronaut.testresources.journal";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ContainerReaper.class);
+    private static final String RYUK_DISABLED_ENV = "TESTCONTAINERS_RYUK_DISABLED";
+    private static final int PORT_CHECK_TIMEOUT_MS = 200;
+
+    private final String sessionId = UUID.randomUUID().toString();
+    private final String host = hostName();
+    private final long pid = ProcessHandle.current().pid();
+    private volatile int port;
+    private volatile boolean enabled;
+    private volatile Duration journalTtl = ContainerJournal.DEFAULT_TTL;
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Returns true if Ryuk is disabled, in which case the containers are
+     * only cleaned up by the server.
+     *
+     * @return true if Ryuk is disabled
+     */
+    boolean isRyukDisabled() {
+        return Boolean.parseBoolean(System.getenv(RYUK_DISABLED_ENV));
+    }
+
+    void setPort(int port) {
+        this.port = port;
+    }
+
+    void setJournalTtl(Duration journalTtl) {
+        this.journalTtl = journalTtl;
+    }
+
+    /**
+     * Returns the labels which identify the session of this server. The labels
+     * of a container which is kept for the next server must be the same for
+     * every server, otherwise Testcontainers wouldn't reuse it, so they only
+     * identify the host.
+     *
+     * @param kept true if the container is kept for the next server
+     * @return the labels to add to the containers started by this server
+     */
+    Map<String, String> labels(boolean kept) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        if (!kept) {
+            labels.put(SESSION_LABEL, sessionId);
+        }
+        labels.put(HOST_LABEL, host);
+        if (!kept) {
+            labels.put(PID_LABEL, String.valueOf(pid));
+            if (port > 0) {
+                labels.put(PORT_LABEL, String.valueOf(port));
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Removes the containers which were started by servers which are gone.
+     *
+     * @param client the Docker client
+     * @param journal the directory of the container journal of this server, or null
+     * @param kept the ids of the containers which must be kept, for example because they can be reattached
+     * @return the number of removed containers
+     */
+    int sweep(DockerClient client, String journal, Set<String> kept) {
+        Map<String, Map<String, String>> labelsById = new LinkedHashMap<>();
+        for (Container container : client.listContainersCmd()
+            .withShowAll(true)
+            .withLabelFilter(Collections.singletonList(HOST_LABEL))
+            .exec()) {
+            if (!kept.contains(container.getId())) {
+                labelsById.put(container.getId(), container.getLabels());
+            }
+        }
+        List<String> orphans = selectOrphans(labelsById, journal, this::isOwnerAlive, other -> ContainerJournal.isKept(Path.of(other), journalTtl));
+        for (String containerId : orphans) {
+            try {
+                client.removeContainerCmd(containerId).withForce(true).withRemoveVolumes(true).exec();
+                LOGGER.info("Removed test container {} left behind by a previous server", containerId);
+            } catch (Exception ex) {
+                LOGGER.debug("Unable to remove test container {}: {}", containerId, ex.getMessage());
+            }
+        }
+        return orphans.size();
+    }
+
+    /**
+     * Selects the containers which are orphaned: containers started by another
+     * server on the same host, whose process or port is gone. Containers which
+     * belong to another container journal are kept while that journal keeps
+     * them, so that the next server using it can reattach them, but are selected
+     * once the journal is deleted, for example with the workspace of a CI build,
+     * or once they have been kept for longer than the journal time to live.
+     * The containers of the journal of this server are removed when the journal
+     * is looked up.
+     *
+     * @param labelsById the labels of the candidate containers, by container id
+     * @param journal the directory of the container journal of this server, or null
+     * @param owners checks if the server which started a container is still running
+     * @param journals checks if another journal still keeps its containers
+     * @return the ids of the orphaned containers
+     */
+    List<String> selectOrphans(Map<String, Map<String, String>> labelsById, String journal, OwnerCheck owners, JournalCheck journals) {
+        List<String> orphans = new ArrayList<>();
+        labelsById.forEach((containerId, labels) -> {
+            if (labels == null || sessionId.equals(labels.get(SESSION_LABEL)) || !host.equals(labels.get(HOST_LABEL))) {
+                return;
+            }
+            String containerJournal = labels.get(JOURNAL_LABEL);
+            if (containerJournal != null) {
+                if (!containerJournal.equals(journal) && !journals.isKept(containerJournal)) {
+                    orphans.add(containerId);
+                }
+                return;
+            }
+            long ownerPid = parse(labels.get(PID_LABEL));
+            int ownerPort = (int) parse(labels.get(PORT_LABEL));
+            if (ownerPid > 0 && !owners.isAlive(ownerPid, ownerPort)) {
+                orphans.add(containerId);
+            }
+        });
+        return orphans;
+    }
+
+    private boolean isOwnerAlive(long ownerPid, int ownerPort) {
+        boolean alive = ProcessHandle.of(ownerPid).map(ProcessHandle::isAlive).orElse(false);
+        if (alive && ownerPort > 0) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", ownerPort), PORT_CHECK_TIMEOUT_MS);
+            } catch (IOException e) {
+                // the process id was reused by another process
+                return false;
+            }
+        }
+        return alive;
+    }
+
+    private static long parse(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String hostName() {
+        String name = System.getenv("HOSTNAME");
+        if (name == null) {
+            name = System.getenv("COMPUTERNAME");
+        }
+        if (name == null) {
+            try {
+                name = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                name = "localhost";
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Checks if the server which started a container is still running.
+     */
+    @FunctionalInterface
+    interface OwnerCheck {
+        boolean isAlive(long pid, int port);
+    }
+
+    /**
+     * Checks if the containers of a journal are kept for the next server using it.
+     */
+    @FunctionalInterface
+    interface JournalCheck {
+        boolean isKept(String directory);
+    }
+}
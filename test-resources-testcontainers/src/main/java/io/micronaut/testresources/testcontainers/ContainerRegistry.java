@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import io.micronaut.testresources.core.Scope;
+import org.testcontainers.containers.GenericContainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * A concurrent registry of started containers. Containers are indexed
+ * by key, but also by the properties they were requested for and by
+ * the scope they belong to. Reads never lock, which makes resolving
+ * a property on an already started container cheap.
+ */
+final class ContainerRegistry {
+    private final Map<TestContainers.Key, GenericContainer<?>> containersByKey = new ConcurrentHashMap<>();
+    private final Map<String, Set<TestContainers.Key>> keysByProperty = new ConcurrentHashMap<>();
+    private final Map<Scope, Set<TestContainers.Key>> keysByScope = new ConcurrentHashMap<>();
+    private final Map<TestContainers.Key, Long> lastUsedByKey = new ConcurrentHashMap<>();
+    private final Map<TestContainers.Key, Long> memoryByKey = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    <T extends GenericContainer<?>> T get(TestContainers.Key key) {
+        return (T) containersByKey.get(key);
+    }
+
+    void register(TestContainers.Key key, GenericContainer<?> container, long memory) {
+        index(keysByScope, key.scope, key);
+        memoryByKey.put(key, memory);
+        touch(key);
+        containersByKey.put(key, container);
+    }
+
+    /**
+     * Records that the container with the supplied key was used.
+     *
+     * @param key the container key
+     */
+    void touch(TestContainers.Key key) {
+        lastUsedByKey.put(key, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the usage of the registered containers matching the predicate.
+     *
+     * @param predicate the predicate on keys
+     * @return the usage of the containers
+     */
+    List<EvictionPolicy.Usage> usages(Predicate<? super TestContainers.Key> predicate) {
+        List<EvictionPolicy.Usage> usages = new ArrayList<>();
+        for (TestContainers.Key key : containersByKey.keySet()) {
+            Long lastUsed = lastUsedByKey.get(key);
+            if (lastUsed != null && predicate.test(key)) {
+                usages.add(new EvictionPolicy.Usage(key, lastUsed, memoryByKey.getOrDefault(key, 0L)));
+            }
+        }
+        return usages;
+    }
+
+    void registerProperty(String property, TestContainers.Key key) {
+        Set<TestContainers.Key> keys = keysByProperty.get(property);
+        if (keys != null && keys.contains(key)) {
+            return;
+        }
+        index(keysByProperty, property, key);
+    }
+
+    /**
+     * Returns the containers which belong to the supplied scope or to
+     * any of its children, grouped by scope.
+     *
+     * @param scope the scope
+     * @return the containers grouped by scope
+     */
+    Map<Scope, List<GenericContainer<?>>> listByScope(Scope scope) {
+        Map<Scope, List<GenericContainer<?>>> result = new LinkedHashMap<>();
+        keysByScope.forEach((containerScope, keys) -> {
+            if (scope.includes(containerScope)) {
+                List<GenericContainer<?>> containers = containersOf(keys);
+                if (!containers.isEmpty()) {
+                    result.put(containerScope, containers);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the containers which were requested for the supplied property
+     * and which belong to the supplied scope or any of its children.
+     *
+     * @param scope the scope
+     * @param property the requested property
+     * @return the containers
+     */
+    List<GenericContainer<?>> findByRequestedProperty(Scope scope, String property) {
+        Set<TestContainers.Key> keys = keysByProperty.getOrDefault(property, Collections.emptySet());
+        List<GenericContainer<?>> result = new ArrayList<>(keys.size());
+        for (TestContainers.Key key : keys) {
+            if (scope.includes(key.scope)) {
+                GenericContainer<?> container = containersByKey.get(key);
+                if (container != null) {
+                    touch(key);
+                    result.add(container);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the containers which were requested for the supplied property
+     * and which belong to the supplied scope, excluding its children.
+     *
+     * @param scope the scope
+     * @param property the requested property
+     * @return the containers
+     */
+    List<GenericContainer<?>> findByRequestedPropertyInScope(Scope scope, String property) {
+        Set<TestContainers.Key> keys = keysByProperty.getOrDefault(property, Collections.emptySet());
+        List<GenericContainer<?>> result = new ArrayList<>(1);
+        for (TestContainers.Key key : keys) {
+            if (scope.equals(key.scope)) {
+                GenericContainer<?> container = containersByKey.get(key);
+                if (container != null) {
+                    touch(key);
+                    result.add(container);
+                }
+            }
+        }
+        return result;
+    }
+
+    Set<String> requestedProperties() {
+        return Collections.unmodifiableSet(keysByProperty.keySet());
+    }
+
+    /**
+     * Detaches all containers matching the predicate from the registry.
+     * Containers are not stopped: it is the responsibility of the caller
+     * to do it.
+     *
+     * @param predicate the predicate on keys
+     * @return the detached containers, by key
+     */
+    Map<TestContainers.Key, GenericContainer<?>> removeIf(Predicate<? super TestContainers.Key> predicate) {
+        Map<TestContainers.Key, GenericContainer<?>> removed = new LinkedHashMap<>();
+        for (TestContainers.Key key : containersByKey.keySet()) {
+            if (predicate.test(key)) {
+                GenericContainer<?> container = containersByKey.remove(key);
+                if (container != null) {
+                    removed.put(key, container);
+                }
+                lastUsedByKey.remove(key);
+                memoryByKey.remove(key);
+            }
+        }
+        if (!removed.isEmpty()) {
+            Set<TestContainers.Key> removedKeys = removed.keySet();
+            for (String property : keysByProperty.keySet()) {
+                unindex(keysByProperty, property, removedKeys);
+            }
+            for (TestContainers.Key key : removedKeys) {
+                unindex(keysByScope, key.scope, removedKeys);
+            }
+        }
+        return removed;
+    }
+
+    private static <K> void index(Map<K, Set<TestContainers.Key>> index, K indexKey, TestContainers.Key key) {
+        index.compute(indexKey, (unused, keys) -> {
+            Set<TestContainers.Key> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            result.add(key);
+            return result;
+        });
+    }
+
+    private static <K> void unindex(Map<K, Set<TestContainers.Key>> index, K indexKey, Set<TestContainers.Key> removedKeys) {
+        index.computeIfPresent(indexKey, (unused, keys) -> {
+            keys.removeAll(removedKeys);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private List<GenericContainer<?>> containersOf(Set<TestContainers.Key> keys) {
+        List<GenericContainer<?>> containers = new ArrayList<>(keys.size());
+        for (TestContainers.Key key : keys) {
+            GenericContainer<?> container = containersByKey.get(key);
+            if (container != null) {
+                containers.add(container);
+            }
+        }
+        return containers;
+    }
+}
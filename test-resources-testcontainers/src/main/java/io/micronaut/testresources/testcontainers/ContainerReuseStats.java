@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+/**
+ * Counts how often a request for a container was served by a container
+ * which was already running, or being started by another request,
+ * instead of starting a new one.
+ *
+ * @param hits the number of requests which reused a container
+ * @param misses the number of requests which started a container
+ */
+public record ContainerReuseStats(
+    long hits,
+    long misses
+) {
+    /**
+     * Returns the total number of container requests.
+     *
+     * @return the number of requests
+     */
+    public long requests() {
+        return hits + misses;
+    }
+
+    /**
+     * Returns the ratio of requests which reused a container.
+     *
+     * @return the hit rate, between 0 and 1, or 0 if no container was requested yet
+     */
+    public double hitRate() {
+        long requests = requests();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.utility.MountableFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.micronaut.testresources.testcontainers.TestContainerMetadataSupport.CLASSPATH_PREFIX;
+
+/**
+ * A content-addressed cache of the files copied to containers. Without it,
+ * Testcontainers extracts classpath resources to a new temporary file, then
+ * archives them, every time a container is started, in every scope.
+ * Instead, the content of each source is stored once in the cache directory,
+ * under its digest, and is streamed to the archive of each container from a
+ * memory mapping of that file. A source is only read again if its size or
+ * modification time changes, and sources with the same content share the
+ * same cached file. Directories are not cached, and are copied by Testcontainers.
+ */
+final class CopySourceCache {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ClassLoader classLoader;
+    private final Map<String, CachedSource> sources = new ConcurrentHashMap<>();
+    private final Map<String, CachedContent> contents = new ConcurrentHashMap<>();
+    private Path directory;
+
+    CopySourceCache(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Returns the content to copy for a source of the <code>copy-to-container</code>
+     * configuration, which is either a path on the host or a classpath resource.
+     *
+     * @param source the source
+     * @return the content to copy
+     */
+    Transferable resolve(String source) {
+        if (source.startsWith(CLASSPATH_PREFIX)) {
+            return resolveClasspathResource(source, source.substring(CLASSPATH_PREFIX.length()));
+        }
+        Path path = Path.of(source);
+        if (Files.isDirectory(path)) {
+            return MountableFile.forHostPath(path);
+        }
+        return resolveFile(source, path);
+    }
+
+    int size() {
+        return contents.size();
+    }
+
+    private Transferable resolveClasspathResource(String source, String resource) {
+        String name = resource.startsWith("/") ? resource.substring(1) : resource;
+        URL url = classLoader.getResource(name);
+        if (url == null) {
+            // reports the same error as Testcontainers
+            return MountableFile.forClasspathResource(resource);
+        }
+        if ("file".equals(url.getProtocol())) {
+            Path path;
+            try {
+                path = Path.of(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid classpath resource " + url, e);
+            }
+            if (Files.isDirectory(path)) {
+                return MountableFile.forClasspathResource(resource);
+            }
+            return resolveFile(source, path);
+        }
+        return sources.compute(source, (unused, cached) -> {
+            try {
+                String stamp = stampOf(url);
+                if (cached != null && stamp != null && cached.stamp.equals(stamp)) {
+                    return cached;
+                }
+                return new CachedSource(stamp, store(() -> openUncached(url), Transferable.DEFAULT_FILE_MODE));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read classpath resource " + url, e);
+            }
+        }).content;
+    }
+
+    private Transferable resolveFile(String source, Path path) {
+        return sources.compute(source, (unused, cached) -> {
+            try {
+                String stamp = stampOf(path);
+                if (cached != null && cached.stamp.equals(stamp)) {
+                    return cached;
+                }
+                return new CachedSource(stamp, store(() -> Files.newInputStream(path), fileModeOf(path)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read file " + path, e);
+            }
+        }).content;
+    }
+
+    /**
+     * Returns the stamp of a classpath resource which isn't a file. The stamp of
+     * an entry of a jar file is computed from the jar file itself, so that the jar
+     * doesn't need to be opened. Other resources have no stamp, and are read again
+     * each time they are resolved.
+     */
+    private static String stampOf(URL url) throws IOException {
+        if (url.openConnection() instanceof JarURLConnection jar && "file".equals(jar.getJarFileURL().getProtocol())) {
+            try {
+                return stampOf(Path.of(jar.getJarFileURL().toURI())) + "!" + jar.getEntryName();
+            } catch (URISyntaxException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String stampOf(Path path) throws IOException {
+        return path.toAbsolutePath() + "|" + Files.size(path) + "|" + Files.getLastModifiedTime(path).toMillis();
+    }
+
+    /**
+     * Opens a classpath resource without the URL cache, so that closing the
+     * stream also closes the jar file it belongs to.
+     */
+    private static InputStream openUncached(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setUseCaches(false);
+        return connection.getInputStream();
+    }
+
+    /**
+     * Stores the content of a source in the cache directory, unless content with
+     * the same digest is already cached, in which case the source is only read
+     * once, to compute its digest.
+     */
+    private CachedContent store(Content content, int mode) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = content.open(); OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            in.transferTo(out);
+        }
+        String key = HexFormat.of().formatHex(digest.digest()) + "-" + Integer.toOctalString(mode);
+        CachedContent cached = contents.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Path dir = directory();
+        Path tmp = Files.createTempFile(dir, "copy", ".tmp");
+        try (InputStream in = content.open()) {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return contents.computeIfAbsent(key, unused -> {
+            Path file = dir.resolve(key);
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                file.toFile().deleteOnExit();
+                return new CachedContent(file, Files.size(file), mode);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).discard(tmp);
+    }
+
+    private synchronized Path directory() throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("test-resources-copies");
+            directory.toFile().deleteOnExit();
+        }
+        return directory;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int fileModeOf(Path path) {
+        try {
+            int mode = 0100000;
+            for (PosixFilePermission permission : Files.getPosixFilePermissions(path)) {
+                mode |= 1 << (8 - permission.ordinal());
+            }
+            return mode;
+        } catch (UnsupportedOperationException | IOException e) {
+            return Transferable.DEFAULT_FILE_MODE;
+        }
+    }
+
+    private record CachedSource(String stamp, CachedContent content) {
+    }
+
+    /**
+     * Opens the content of a source, which may be read twice.
+     */
+    @FunctionalInterface
+    private interface Content {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * The content of a source, stored in the cache directory, which is mapped
+     * in memory the first time it is copied to a container, and is then
+     * written to the archive of each container directly from the mapping.
+     */
+    static final class CachedContent implements Transferable {
+        private final Path file;
+        private final long size;
+        private final int mode;
+        private volatile ByteBuffer mapped;
+
+        CachedContent(Path file, long size, int mode) {
+            this.file = file;
+            this.size = size;
+            this.mode = mode;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public int getFileMode() {
+            return mode;
+        }
+
+        @Override
+        public String getDescription() {
+            return file.toString();
+        }
+
+        @Override
+        public byte[] getBytes() {
+            try {
+                return Files.readAllBytes(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void transferTo(TarArchiveOutputStream tarArchiveOutputStream, String destination) {
+            TarArchiveEntry entry = new TarArchiveEntry(destination);
+            entry.setSize(size);
+            entry.setMode(mode);
+            try {
+                tarArchiveOutputStream.putArchiveEntry(entry);
+                ByteBuffer buffer = mapping();
+                if (buffer == null) {
+                    Files.copy(file, tarArchiveOutputStream);
+                } else {
+                    byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE, size)];
+                    while (buffer.hasRemaining()) {
+                        int length = Math.min(chunk.length, buffer.remaining());
+                        buffer.get(chunk, 0, length);
+                        tarArchiveOutputStream.write(chunk, 0, length);
+                    }
+                }
+                tarArchiveOutputStream.closeArchiveEntry();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to copy " + file + " to " + destination, e);
+            }
+        }
+
+        /**
+         * Returns a view of the mapping of the file, or null if the file
+         * is too large to be mapped at once.
+         */
+        private ByteBuffer mapping() throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = mapped;
+            if (buffer == null) {
+                synchronized (this) {
+                    buffer = mapped;
+                    if (buffer == null) {
+                        try (FileChannel channel = FileChannel.open(file)) {
+                            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                        }
+                        mapped = buffer;
+                    }
+                }
+            }
+            return buffer.duplicate();
+        }
+
+        private CachedContent discard(Path tmp) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                // ignore
+            }
+            return this;
+        }
+    }
+}
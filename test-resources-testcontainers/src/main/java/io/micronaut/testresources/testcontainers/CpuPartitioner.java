@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Splits the cores of the Docker host across the running containers,
+ * so that a heavy container cannot starve the others. Each container
+ * is pinned to a contiguous range of cores, and the ranges are computed
+ * again every time a container is added or removed. Cores can be kept
+ * out of the partition, for example for the test JVMs. If there are more
+ * containers than cores, cores are shared round-robin. Containers which
+ * declare their own CPU limits are not partitioned.
+ */
+final class CpuPartitioner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CpuPartitioner.class);
+
+    private final IntSupplier hostCores;
+    private final BiConsumer<String, String> updater;
+    private final Set<String> containers = new LinkedHashSet<>();
+    private final Map<String, String> assigned = new HashMap<>();
+    private boolean enabled;
+    private int reservedCores;
+
+    /**
+     * Creates a partitioner.
+     *
+     * @param hostCores supplies the number of cores of the Docker host
+     * @param updater updates the cpuset of a container, given its id and the cpuset
+     */
+    CpuPartitioner(IntSupplier hostCores, BiConsumer<String, String> updater) {
+        this.hostCores = hostCores;
+        this.updater = updater;
+    }
+
+    /**
+     * Configures the partitioner. Disabling it forgets the containers,
+     * but doesn't change the cpusets which were already assigned.
+     *
+     * @param enabled true to partition the cores
+     * @param reservedCores the number of cores which are not assigned to containers
+     */
+    synchronized void configure(boolean enabled, int reservedCores) {
+        this.enabled = enabled;
+        this.reservedCores = Math.max(0, reservedCores);
+        if (!enabled) {
+            containers.clear();
+            assigned.clear();
+        }
+    }
+
+    synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    synchronized void add(String containerId) {
+        if (enabled && containerId != null && containers.add(containerId)) {
+            rebalance();
+        }
+    }
+
+    synchronized void remove(Collection<String> containerIds) {
+        boolean removed = false;
+        for (String containerId : containerIds) {
+            if (containerId != null && containers.remove(containerId)) {
+                assigned.remove(containerId);
+                removed = true;
+            }
+        }
+        if (removed) {
+            rebalance();
+        }
+    }
+
+    /**
+     * Returns the cpuset assigned to each partitioned container.
+     * @return the cpusets, by container id
+     */
+    synchronized Map<String, String> assignments() {
+        return Map.copyOf(assigned);
+    }
+
+    private void rebalance() {
+        if (containers.isEmpty()) {
+            return;
+        }
+        int cores = hostCores.getAsInt();
+        int available = Math.max(1, cores - reservedCores);
+        int firstCore = cores - available;
+        List<String> cpusets = partition(firstCore, available, containers.size());
+        int i = 0;
+        for (String containerId : new ArrayList<>(containers)) {
+            String cpuset = cpusets.get(i++);
+            if (!cpuset.equals(assigned.get(containerId))) {
+                try {
+                    updater.accept(containerId, cpuset);
+                    assigned.put(containerId, cpuset);
+                    LOGGER.debug("Assigned cpuset {} to container {}", cpuset, containerId);
+                } catch (RuntimeException ex) {
+                    LOGGER.warn("Unable to assign cpuset {} to container {}: {}", cpuset, containerId, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits a range of cores into contiguous, non overlapping ranges, one
+     * per container. If there are more containers than cores, each container
+     * gets a single core, shared round-robin.
+     *
+     * @param firstCore the index of the first core which can be assigned
+     * @param cores the number of cores which can be assigned
+     * @param containers the number of containers
+     * @return the cpuset of each container
+     */
+    static List<String> partition(int firstCore, int cores, int containers) {
+        List<String> cpusets = new ArrayList<>(containers);
+        for (int i = 0; i < containers; i++) {
+            if (containers > cores) {
+                cpusets.add(String.valueOf(firstCore + i % cores));
+            } else {
+                int start = firstCore + i * cores / containers;
+                int end = firstCore + (i + 1) * cores / containers - 1;
+                cpusets.add(start == end ? String.valueOf(start) : start + "-" + end);
+            }
+        }
+        return cpusets;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Discovers the Docker daemon in the background. The bootstrap starts the
+ * circuit breaker, and completes once the first probe is complete and, if
+ * Docker is available, once the Docker client is warmed up. The first check
+ * of the availability of Docker waits for the bootstrap, if it was started,
+ * so that the first container isn't started with a cold client.
+ */
+final class DockerBootstrap {
+    private final DockerCircuitBreaker breaker;
+    private final Runnable warmUp;
+    private final Executor executor;
+    private final Duration timeout;
+    private final AtomicReference<CompletableFuture<Boolean>> bootstrap = new AtomicReference<>();
+
+    /**
+     * Creates the bootstrap.
+     *
+     * @param breaker the Docker circuit breaker
+     * @param warmUp warms up the Docker client once Docker is available
+     * @param executor the executor of the warm-up
+     * @param timeout the Docker check timeout
+     */
+    DockerBootstrap(DockerCircuitBreaker breaker, Runnable warmUp, Executor executor, Duration timeout) {
+        this.breaker = breaker;
+        this.warmUp = warmUp;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Starts the bootstrap, unless it is already started.
+     *
+     * @return a future completed with true if Docker is available
+     */
+    CompletableFuture<Boolean> start() {
+        var current = bootstrap.get();
+        if (current != null) {
+            return current;
+        }
+        var created = new CompletableFuture<Boolean>();
+        if (!bootstrap.compareAndSet(null, created)) {
+            return bootstrap.get();
+        }
+        breaker.start();
+        breaker.firstProbe().thenAcceptAsync(available -> {
+            if (available) {
+                warmUp.run();
+            }
+            created.complete(available);
+        }, executor);
+        return created;
+    }
+
+    /**
+     * Returns true if the circuit is closed. The first check waits for the
+     * first probe to complete, then for the bootstrap if it was started, each
+     * up to the Docker check timeout. Later checks return the state of the
+     * circuit without waiting.
+     *
+     * @return true if Docker is available
+     */
+    boolean isDockerAvailable() {
+        boolean probed = breaker.circuit().state() != DockerSupport.CircuitState.UNKNOWN;
+        boolean available = breaker.isAvailable(timeout.plusSeconds(1));
+        var current = bootstrap.get();
+        if (!probed && available && current != null) {
+            try {
+                current.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException | TimeoutException e) {
+                return false;
+            }
+        }
+        return available;
+    }
+}
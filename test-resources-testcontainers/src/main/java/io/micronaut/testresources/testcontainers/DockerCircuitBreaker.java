@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import io.micronaut.testresources.testcontainers.DockerSupport.Circuit;
+import io.micronaut.testresources.testcontainers.DockerSupport.CircuitState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The circuit breaker which tracks the availability of the Docker daemon.
+ * Probes are executed by the scheduler, never on the calling thread. While
+ * the daemon is available, the circuit is closed and the daemon is probed
+ * again periodically. If a probe fails, the circuit is opened, and is half
+ * open while the daemon is probed again, with an exponential backoff, until
+ * a probe succeeds.
+ */
+final class DockerCircuitBreaker {
+    static final Duration HEALTHY_PROBE_INTERVAL = Duration.ofSeconds(30);
+    static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+    static final Duration MAX_BACKOFF = Duration.ofSeconds(60);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DockerCircuitBreaker.class);
+
+    private final BooleanSupplier probe;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<Circuit> circuit = new AtomicReference<>(new Circuit(CircuitState.UNKNOWN, 0, null, null));
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final CompletableFuture<Boolean> firstProbe = new CompletableFuture<>();
+    private final AtomicReference<ScheduledFuture<?>> nextProbe = new AtomicReference<>();
+
+    DockerCircuitBreaker(BooleanSupplier probe, Clock clock, ScheduledExecutorService scheduler) {
+        this.probe = probe;
+        this.clock = clock;
+        this.scheduler = scheduler;
+    }
+
+    Circuit circuit() {
+        return circuit.get();
+    }
+
+    CompletableFuture<Boolean> firstProbe() {
+        return firstProbe;
+    }
+
+    /**
+     * Starts probing the daemon, unless it is already probed.
+     */
+    void start() {
+        if (probing.compareAndSet(false, true)) {
+            scheduler.execute(this::probeAndReschedule);
+        }
+    }
+
+    /**
+     * Returns true if the circuit is closed. The state of the circuit is
+     * returned without probing the daemon, except if it was never probed,
+     * in which case this method waits for the first probe to complete.
+     *
+     * @param firstProbeTimeout the maximum time to wait for the first probe
+     * @return true if the daemon is available
+     */
+    boolean isAvailable(Duration firstProbeTimeout) {
+        var current = circuit.get();
+        if (current.state() != CircuitState.UNKNOWN) {
+            return current.state() == CircuitState.CLOSED;
+        }
+        start();
+        try {
+            return firstProbe.get(firstProbeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Probes the daemon as soon as possible instead of waiting for the next
+     * scheduled probe.
+     */
+    void recheck() {
+        if (!probing.get()) {
+            start();
+            return;
+        }
+        ScheduledFuture<?> scheduled = nextProbe.get();
+        if (scheduled != null && scheduled.cancel(false)) {
+            scheduler.execute(this::probeAndReschedule);
+        }
+    }
+
+    void probeAndReschedule() {
+        Circuit previous = circuit.get();
+        if (previous.state() == CircuitState.OPEN) {
+            previous = new Circuit(CircuitState.HALF_OPEN, previous.consecutiveFailures(), previous.lastProbe(), previous.nextProbe());
+            circuit.set(previous);
+        }
+        boolean available = probe.getAsBoolean();
+        Instant now = clock.instant();
+        Circuit next;
+        if (available) {
+            next = new Circuit(CircuitState.CLOSED, 0, now, now.plus(HEALTHY_PROBE_INTERVAL));
+            if (previous.state() == CircuitState.HALF_OPEN) {
+                LOGGER.info("Docker is available again");
+            }
+        } else {
+            int failures = previous.consecutiveFailures() + 1;
+            Duration backoff = INITIAL_BACKOFF.multipliedBy(1L << Math.min(failures - 1, 16));
+            if (backoff.compareTo(MAX_BACKOFF) > 0) {
+                backoff = MAX_BACKOFF;
+            }
+            next = new Circuit(CircuitState.OPEN, failures, now, now.plus(backoff));
+            if (previous.state() != CircuitState.HALF_OPEN) {
+                LOGGER.error("Docker support doesn't seem to be available, test resources will not work correctly. Please check your Docker install.");
+            } else {
+                LOGGER.debug("Docker is still unavailable after {} probes, next probe in {}", failures, backoff);
+            }
+        }
+        circuit.set(next);
+        firstProbe.complete(available);
+        nextProbe.set(scheduler.schedule(this::probeAndReschedule,
+            Duration.between(now, next.nextProbe()).toMillis(), TimeUnit.MILLISECONDS));
+    }
+}
@@ -15,77 +15,217 @@
  */
 package io.micronaut.testresources.testcontainers;
 
+import com.github.dockerjava.api.exception.DockerClientException;
+import com.github.dockerjava.api.exception.DockerException;
+import com.github.dockerjava.transport.DockerHttpClient;
+import com.github.dockerjava.zerodep.ZerodepDockerHttpClient;
 import io.micronaut.core.annotation.Internal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.DockerClientFactory;
+import org.testcontainers.dockerclient.TransportConfig;
 
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Provides utilities around Docker support.
+ *
+ * Docker availability is tracked by a {@link DockerCircuitBreaker circuit breaker}.
+ * The Docker daemon is probed in the background, never on the calling thread,
+ * except for the very first check which waits for the first probe to complete.
  */
 @Internal
 public final class DockerSupport {
     private static final Logger LOGGER = LoggerFactory.getLogger(DockerSupport.class);
     private static final int TIMEOUT = Integer.getInteger("docker.check.timeout.seconds", 10);
-    private static final Lock LOCK = new ReentrantLock();
-    private static final AtomicReference<Boolean> AVAILABLE = new AtomicReference<>();
+
+    private static final ScheduledExecutorService PROBE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "test-resources-docker-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ExecutorService CHECK_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "test-resources-docker-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final DockerCircuitBreaker CIRCUIT_BREAKER = new DockerCircuitBreaker(DockerSupport::performDockerCheck, Clock.systemUTC(), PROBE_EXECUTOR);
+    private static final DockerBootstrap BOOTSTRAP = new DockerBootstrap(CIRCUIT_BREAKER, DockerSupport::warmUp, PROBE_EXECUTOR, Duration.ofSeconds(TIMEOUT));
+    private static final AtomicReference<DockerHttpClient> PROBE_CLIENT = new AtomicReference<>();
+    private static final int HTTP_OK = 200;
 
     private DockerSupport() {
 
     }
 
+    /**
+     * Probes the daemon on the shared check executor, so that a probe which
+     * hangs, for example because the daemon socket doesn't answer, cannot
+     * block the probe scheduler beyond the Docker check timeout.
+     */
     private static boolean performDockerCheck() {
-        var executor = Executors.newSingleThreadExecutor();
-        boolean available;
+        Future<Boolean> future = CHECK_EXECUTOR.submit(DockerSupport::probe);
         try {
-            var future = executor.submit(() -> DockerClientFactory.instance().isDockerAvailable());
-            available = future.get(TIMEOUT, TimeUnit.SECONDS);
+            return future.get(TIMEOUT, TimeUnit.SECONDS);
         } catch (ExecutionException | TimeoutException e) {
-            available = false;
+            future.cancel(true);
+            return false;
         } catch (InterruptedException e) {
+            future.cancel(true);
             Thread.currentThread().interrupt();
-            available = false;
-        } finally {
-            executor.shutdown();
+            return false;
+        }
+    }
+
+    /**
+     * Pings the daemon. The first probe lets Testcontainers discover the Docker
+     * environment, then the daemon is pinged with a standalone client which uses
+     * the discovered transport, so that probes don't depend on the state of the
+     * Testcontainers client. Testcontainers doesn't look for a Docker environment
+     * again once the discovery failed, in which case containers cannot be started
+     * and the circuit stays open.
+     */
+    private static boolean probe() throws IOException {
+        var client = PROBE_CLIENT.get();
+        if (client == null) {
+            var factory = DockerClientFactory.instance();
+            if (!factory.isDockerAvailable()) {
+                return false;
+            }
+            client = newProbeClient(factory.getTransportConfig());
+            if (!PROBE_CLIENT.compareAndSet(null, client)) {
+                client.close();
+                client = PROBE_CLIENT.get();
+            }
         }
-        if (!available) {
-            LOGGER.error("Docker support doesn't seem to be available, test resources will not work correctly. Please check your Docker install.");
+        var ping = DockerHttpClient.Request.builder()
+            .method(DockerHttpClient.Request.Method.GET)
+            .path("/_ping")
+            .build();
+        try (var response = client.execute(ping)) {
+            return response.getStatusCode() == HTTP_OK;
         }
-        return available;
+    }
+
+    private static DockerHttpClient newProbeClient(TransportConfig transport) {
+        return new ZerodepDockerHttpClient.Builder()
+            .dockerHost(transport.getDockerHost())
+            .sslConfig(transport.getSslConfig())
+            .maxConnections(1)
+            .connectionTimeout(Duration.ofSeconds(TIMEOUT))
+            .responseTimeout(Duration.ofSeconds(TIMEOUT))
+            .build();
     }
 
     /**
-     * Returns true if the Docker client is available and ready to accept
-     * connections. It runs the check in a separate thread in order to
-     * avoid blocking the caller, and times out after 2s. If the client
-     * didn't answer after 2 seconds, we consider it's not available.
-     * @return true if Docker is available
+     * Returns true if the supplied error comes from the Docker client, in
+     * which case the Docker daemon may have gone away. Errors of the container
+     * itself, for example a wait strategy which timed out, are not.
+     *
+     * @param error the error
+     * @return true if the error was reported by the Docker client
      */
-    public static boolean isDockerAvailable() {
-        var available = AVAILABLE.get();
-        if (available != null) {
-            return available;
+    static boolean isDockerClientError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DockerException || cause instanceof DockerClientException || cause instanceof IOException) {
+                return true;
+            }
         }
-        LOCK.lock();
+        return false;
+    }
+
+    /**
+     * Starts discovering the Docker daemon in the background, so that it
+     * overlaps with the startup of the server instead of delaying the first
+     * resolution. Once the Docker client is connected, the address of the
+     * Docker host, which is needed by every container, is resolved too.
+     * Calling this method again returns the same future.
+     * @return a future completed with true if Docker is available
+     */
+    public static CompletableFuture<Boolean> bootstrap() {
+        return BOOTSTRAP.start();
+    }
+
+    private static void warmUp() {
         try {
-            available = AVAILABLE.get();
-            if (available != null) {
-                return available;
-            }
-            available = performDockerCheck();
-            AVAILABLE.set(available);
-            return available;
-        } finally {
-            LOCK.unlock();
+            DockerClientFactory.instance().dockerHostIpAddress();
+        } catch (RuntimeException e) {
+            LOGGER.debug("Unable to resolve the Docker host address", e);
         }
+    }
+
+    /**
+     * Returns true if the Docker client is available and ready to accept
+     * connections. The answer is the state of the circuit breaker, which is
+     * updated by background probes, so this method doesn't block, except for
+     * the very first call, which waits for the first probe to complete, up to
+     * the Docker check timeout. If {@link #bootstrap()} was called, the first
+     * call waits for the bootstrap instead.
+     * @return true if Docker is available
+     */
+    public static boolean isDockerAvailable() {
+        return BOOTSTRAP.isDockerAvailable();
+    }
 
+    /**
+     * Requests a new probe of the Docker daemon as soon as possible, for
+     * example because the Docker client failed to start a container.
+     * This method doesn't block.
+     */
+    public static void recheck() {
+        CIRCUIT_BREAKER.recheck();
+    }
+
+    /**
+     * Returns the current state of the Docker circuit breaker.
+     * @return the circuit
+     */
+    public static Circuit getCircuit() {
+        return CIRCUIT_BREAKER.circuit();
+    }
+
+    /**
+     * The states of the Docker circuit breaker.
+     */
+    public enum CircuitState {
+        /**
+         * Docker hasn't been probed yet.
+         */
+        UNKNOWN,
+        /**
+         * Docker is available.
+         */
+        CLOSED,
+        /**
+         * Docker is unavailable: containers are not started until a probe succeeds.
+         */
+        OPEN,
+        /**
+         * Docker was unavailable and is being probed again: containers are not
+         * started until the probe succeeds.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * A snapshot of the Docker circuit breaker.
+     * @param state the state of the circuit
+     * @param consecutiveFailures the number of consecutive failed probes
+     * @param lastProbe the time of the last probe, if any
+     * @param nextProbe the time of the next probe, if any
+     */
+    public record Circuit(CircuitState state, int consecutiveFailures, Instant lastProbe, Instant nextProbe) {
     }
 }
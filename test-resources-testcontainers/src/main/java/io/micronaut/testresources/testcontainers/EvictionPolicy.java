@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects the containers which should be stopped because they haven't
+ * been used for too long, or because the containers which are running
+ * use more memory than the configured budget. When the budget is
+ * exceeded, the least recently used containers are selected first,
+ * but the most recently used container is never selected.
+ */
+final class EvictionPolicy {
+    static final String IDLE = "idle";
+    static final String MEMORY_BUDGET = "memory budget";
+
+    private volatile Duration idleTimeout;
+    private volatile long memoryBudget;
+
+    /**
+     * Configures the policy.
+     *
+     * @param idleTimeout the time after which an unused container is stopped, or null to keep containers running
+     * @param memoryBudget the maximum memory of the running containers, or 0 for no limit
+     */
+    void configure(Duration idleTimeout, long memoryBudget) {
+        this.idleTimeout = idleTimeout;
+        this.memoryBudget = memoryBudget;
+    }
+
+    boolean isEnabled() {
+        return idleTimeout != null || memoryBudget > 0;
+    }
+
+    /**
+     * Selects the containers to evict.
+     *
+     * @param usages the usage of the candidate containers
+     * @param now the current time, in milliseconds
+     * @return the keys of the containers to evict, with the reason of the eviction, least recently used first
+     */
+    Map<TestContainers.Key, String> select(List<Usage> usages, long now) {
+        Map<TestContainers.Key, String> selected = new LinkedHashMap<>();
+        if (usages.isEmpty()) {
+            return selected;
+        }
+        List<Usage> leastRecentlyUsedFirst = usages.stream()
+            .sorted(Comparator.comparingLong(Usage::lastUsed))
+            .toList();
+        Usage mostRecentlyUsed = leastRecentlyUsedFirst.get(leastRecentlyUsedFirst.size() - 1);
+        long totalMemory = usages.stream().mapToLong(Usage::memory).sum();
+        Duration timeout = idleTimeout;
+        if (timeout != null) {
+            for (Usage usage : leastRecentlyUsedFirst) {
+                if (now - usage.lastUsed() > timeout.toMillis()) {
+                    selected.put(usage.key(), IDLE);
+                    totalMemory -= usage.memory();
+                }
+            }
+        }
+        long budget = memoryBudget;
+        if (budget > 0) {
+            for (Usage usage : leastRecentlyUsedFirst) {
+                if (totalMemory <= budget || usage == mostRecentlyUsed) {
+                    break;
+                }
+                if (usage.memory() > 0 && !selected.containsKey(usage.key())) {
+                    selected.put(usage.key(), MEMORY_BUDGET);
+                    totalMemory -= usage.memory();
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * The usage of a container.
+     *
+     * @param key the container key
+     * @param lastUsed the last time the container was used, in milliseconds
+     * @param memory the memory declared for the container, or 0 if unknown
+     */
+    record Usage(TestContainers.Key key, long lastUsed, long memory) {
+    }
+}
@@ -16,22 +16,19 @@
 package io.micronaut.testresources.testcontainers;
 
 import io.micronaut.testresources.core.ToggableTestResourcesResolver;
-import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.utility.DockerImageName;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static io.micronaut.testresources.testcontainers.TestContainerMetadataSupport.GENERIC_ORDER;
-import static io.micronaut.testresources.testcontainers.TestContainerMetadataSupport.containerMetadataFor;
 
 /**
  * A generic test containers provider. This provider is special in the sense
@@ -65,7 +62,7 @@ import static io.micronaut.testresources.testcontainers.TestContainerMetadataSup
  * property.
  */
 @SuppressWarnings("unchecked")
-public class GenericTestContainerProvider implements ToggableTestResourcesResolver {
+public class GenericTestContainerProvider implements ToggableTestResourcesResolver, ImagePrefetchSupport {
     private static final Logger LOGGER = LoggerFactory.getLogger(GenericTestContainerProvider.class);
 
     @Override
@@ -94,20 +91,26 @@ public class GenericTestContainerProvider implements ToggableTestResourcesResolv
     @Override
     public List<String> getResolvableProperties(Map<String, Collection<String>> propertyEntries,
                                                 Map<String, Object> testResourcesConfig) {
-        List<String> resolvable = containerMetadataFrom(testResourcesConfig)
-            .flatMap(e -> Stream.concat(e.getExposedPorts().keySet().stream(), e.getHostNames().stream()))
-            .distinct()
-            .collect(Collectors.toList());
+        List<String> resolvable = TestContainerMetadataModel.of(testResourcesConfig).resolvableProperties();
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Properties which can be resolved by generic containers: {}", resolvable);
         }
         return resolvable;
     }
 
-    @NotNull
-    private Stream<TestContainerMetadata> containerMetadataFrom(Map<String, Object> testResourcesConfig) {
-        List<String> genericContainers = containerNamesFrom(testResourcesConfig);
-        return containerMetadataFor(genericContainers, testResourcesConfig);
+    @Override
+    public List<DockerImageName> getImagesToPrefetch(Map<String, Object> testResourcesConfig) {
+        if (!isEnabled(testResourcesConfig)) {
+            return Collections.emptyList();
+        }
+        return TestContainerMetadataModel.of(testResourcesConfig)
+            .containers()
+            .stream()
+            .filter(md -> !md.getExposedPorts().isEmpty() || !md.getHostNames().isEmpty())
+            .map(TestContainerMetadata::getImageName)
+            .flatMap(Optional::stream)
+            .map(DockerImageName::parse)
+            .toList();
     }
 
     @Override
@@ -121,23 +124,23 @@ public class GenericTestContainerProvider implements ToggableTestResourcesResolv
                 this.container = container;
             }
         }
-        return containerMetadataFrom(testResourcesConfig)
-            .filter(e -> e.getExposedPorts().containsKey(propertyName) || e.getHostNames().contains(propertyName))
-            .filter(md -> md.getImageName().isPresent())
-            .findFirst()
+        TestContainerMetadataModel model = TestContainerMetadataModel.of(testResourcesConfig);
+        return model.containerForProperty(propertyName)
             .map(md -> {
                 DockerImageName imageName = DockerImageName.parse(md.getImageName().get());
                 return new MappedContainer(md, TestContainers.getOrCreate(propertyName, GenericTestContainerProvider.class,
                     md.getId(),
                     properties,
                     () -> imageName,
-                    unused -> {
+                    resolvedImageName -> {
                         if (!md.getDependencies().isEmpty()) {
-                           resolveDependencies(md.getDependencies(), containerMetadataFrom(testResourcesConfig).toList(), properties, testResourcesConfig);
+                            resolveDependencies(md, model.containers(), properties, testResourcesConfig);
                         }
-                        GenericContainer<?> selfGenericContainer = new GenericContainer<>(imageName);
+                        GenericContainer<?> selfGenericContainer = new GenericContainer<>(resolvedImageName);
                         return TestContainerMetadataSupport.applyMetadata(md, selfGenericContainer);
-                    }
+                    },
+                    () -> Optional.of(md),
+                    model.fingerprint()
                 ));
             }).map(e -> {
                 Integer mappedPort = e.md.getExposedPorts().get(propertyName);
@@ -151,35 +154,20 @@ public class GenericTestContainerProvider implements ToggableTestResourcesResolv
             });
     }
 
-    private void resolveDependencies(Set<String> dependencies,
+    private void resolveDependencies(TestContainerMetadata container,
                                      List<TestContainerMetadata> containersMetadata,
                                      Map<String, Object> properties,
                                      Map<String, Object> testResourcesConfig) {
-        for (String dependency : dependencies) {
-            resolveDependency(dependency, containersMetadata, properties, testResourcesConfig);
-        }
+        new ContainerDependencyScheduler(containersMetadata, TestContainers.maxConcurrentStarts())
+            .startDependenciesOf(container, dependency -> resolveDependency(dependency, properties, testResourcesConfig));
     }
 
-    private void resolveDependency(String dependency,
-                                   List<TestContainerMetadata> containersMetadata,
+    private void resolveDependency(TestContainerMetadata dependency,
                                    Map<String, Object> properties,
                                    Map<String, Object> testResourcesConfig) {
-        var propertyToResolve = containersMetadata.stream()
-            .filter(md -> md.getId().equals(dependency))
+        var propertyToResolve = Stream.concat(dependency.getHostNames().stream(), dependency.getExposedPorts().keySet().stream())
             .findFirst()
-            .flatMap(md -> Stream.concat(md.getHostNames().stream(), md.getExposedPorts().keySet().stream()).findFirst())
-            .orElseThrow(() -> new IllegalArgumentException("Dependent container '" + dependency + "' doesn't exist or cannot be resolved"));
+            .orElseThrow(() -> new IllegalArgumentException("Dependent container '" + dependency.getId() + "' doesn't exist or cannot be resolved"));
         resolve(propertyToResolve, properties, testResourcesConfig);
     }
-
-    private static List<String> containerNamesFrom(Map<String, Object> configuration) {
-        return configuration.keySet()
-            .stream()
-            .filter(key -> key.startsWith(TestContainerMetadataSupport.TEST_RESOURCES_CONTAINERS))
-            .map(key -> key.substring(TestContainerMetadataSupport.TEST_RESOURCES_CONTAINERS.length()))
-            .map(key -> key.substring(0, key.indexOf('.')))
-            .distinct()
-            .collect(Collectors.toList());
-    }
-
 }
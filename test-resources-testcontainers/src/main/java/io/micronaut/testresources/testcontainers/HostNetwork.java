@@ -0,0 +1,232 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.ExposedPort;
+import com.github.dockerjava.api.model.NetworkSettings;
+import com.github.dockerjava.api.model.Ports;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.ContainerLaunchException;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.containers.wait.strategy.WaitStrategy;
+import org.testcontainers.containers.wait.strategy.WaitStrategyTarget;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Support for containers which use the network of the host instead of
+ * the port mapping of Docker, which avoids the latency of the Docker
+ * userland proxy. Since such containers cannot use the default ports of
+ * their services without risking conflicts, a free port of the host is
+ * allocated for each exposed port, and the provider configures the service
+ * to listen on it. The allocated ports are recorded in a label of the
+ * container, and are reported as the mapped ports of the container by its
+ * wait strategy, so that {@link GenericContainer#getMappedPort(int)} returns
+ * the port the service actually listens on. Since the ports change with every
+ * start, such containers are not reused by the next server. The ports are
+ * released when the container is stopped.
+ */
+final class HostNetwork {
+    static final String MODE = "host";
+    static final String PORTS_LABEL = "io.micronaut.testresources.host-ports";
+
+    private static final Set<Integer> ALLOCATED = ConcurrentHashMap.newKeySet();
+
+    private HostNetwork() {
+
+    }
+
+    static boolean isRequested(GenericContainer<?> container) {
+        return MODE.equals(container.getNetworkMode());
+    }
+
+    /**
+     * Host networking only reaches the services of the container if the Docker
+     * daemon runs on the same Linux host, unlike Docker Desktop, which runs
+     * containers in a virtual machine.
+     *
+     * @return true if the host network can be used
+     */
+    static boolean isSupported() {
+        if (!System.getProperty("os.name", "").toLowerCase(Locale.US).startsWith("linux")) {
+            return false;
+        }
+        String dockerHost = DockerClientFactory.instance().dockerHostIpAddress();
+        return "localhost".equals(dockerHost) || "127.0.0.1".equals(dockerHost);
+    }
+
+    /**
+     * Allocates a free port of the host for each of the supplied container ports.
+     * A port is never allocated twice by the same server until it is released,
+     * so that two containers which are started concurrently cannot be assigned
+     * the same port.
+     *
+     * @param containerPorts the ports exposed by the container
+     * @return the allocated host port, by container port
+     */
+    static Map<Integer, Integer> allocatePorts(Collection<Integer> containerPorts) {
+        Map<Integer, Integer> ports = new LinkedHashMap<>();
+        List<ServerSocket> sockets = new ArrayList<>();
+        try {
+            for (Integer containerPort : containerPorts) {
+                while (!ports.containsKey(containerPort)) {
+                    // sockets are kept open until all ports are allocated, so that a port already allocated isn't returned again
+                    ServerSocket socket = new ServerSocket(0);
+                    sockets.add(socket);
+                    if (ALLOCATED.add(socket.getLocalPort())) {
+                        ports.put(containerPort, socket.getLocalPort());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            release(ports.values());
+            throw new UncheckedIOException("Unable to allocate a port for the host network", e);
+        } finally {
+            for (ServerSocket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+        return ports;
+    }
+
+    /**
+     * Releases the ports allocated for a container, once it is stopped or
+     * failed to start.
+     *
+     * @param container the container
+     */
+    static void release(GenericContainer<?> container) {
+        release(parsePorts(container.getLabels().get(PORTS_LABEL)).values());
+    }
+
+    static void release(Collection<Integer> hostPorts) {
+        ALLOCATED.removeAll(hostPorts);
+    }
+
+    /**
+     * Records the allocated ports in a label of the container, and reports
+     * them as its mapped ports once it is started. Docker doesn't map the
+     * ports of containers using the host network, so the container no longer
+     * exposes ports, otherwise Testcontainers would wait for them to be mapped.
+     * The supplied wait strategy is then used with the allocated ports as the
+     * liveness check ports.
+     *
+     * @param container the container
+     * @param ports the allocated host port, by container port
+     * @param waitStrategy the wait strategy of the container
+     */
+    static void publish(GenericContainer<?> container, Map<Integer, Integer> ports, WaitStrategy waitStrategy) {
+        container.withLabel(PORTS_LABEL, ports.entrySet()
+            .stream()
+            .map(entry -> entry.getKey() + ":" + entry.getValue())
+            .collect(Collectors.joining(",")));
+        container.setExposedPorts(List.of());
+        container.waitingFor(new PublishingWaitStrategy(List.copyOf(ports.keySet()), waitStrategy == null ? Wait.defaultWaitStrategy() : waitStrategy));
+    }
+
+    /**
+     * Adds the ports recorded in the label of a container using the host
+     * network to its port bindings, as if they were mapped by Docker.
+     *
+     * @param response the container information
+     * @return true if the recorded ports were added to the port bindings
+     */
+    static boolean withMappedPorts(InspectContainerResponse response) {
+        var config = response.getConfig();
+        var labels = config == null ? null : config.getLabels();
+        Map<Integer, Integer> recorded = parsePorts(labels == null ? null : labels.get(PORTS_LABEL));
+        NetworkSettings networkSettings = response.getNetworkSettings();
+        Ports ports = networkSettings == null ? null : networkSettings.getPorts();
+        if (recorded.isEmpty() || ports == null) {
+            return false;
+        }
+        recorded.forEach((containerPort, hostPort) -> ports.bind(new ExposedPort(containerPort), Ports.Binding.bindPort(hostPort)));
+        return true;
+    }
+
+    private static Map<Integer, Integer> parsePorts(String recorded) {
+        Map<Integer, Integer> ports = new LinkedHashMap<>();
+        if (recorded != null && !recorded.isEmpty()) {
+            for (String mapping : recorded.split(",")) {
+                String[] parts = mapping.split(":");
+                ports.put(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            }
+        }
+        return ports;
+    }
+
+    /**
+     * Reports the allocated ports as the mapped ports of the container before
+     * waiting for it with the wait strategy of the container.
+     */
+    private static final class PublishingWaitStrategy implements WaitStrategy {
+        private final List<Integer> containerPorts;
+        private final WaitStrategy delegate;
+
+        private PublishingWaitStrategy(List<Integer> containerPorts, WaitStrategy delegate) {
+            this.containerPorts = containerPorts;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void waitUntilReady(WaitStrategyTarget target) {
+            InspectContainerResponse containerInfo = target.getContainerInfo();
+            if (!withMappedPorts(containerInfo)) {
+                throw new ContainerLaunchException("Unable to report the host network ports of container " + containerInfo.getName());
+            }
+            delegate.waitUntilReady(new WaitStrategyTarget() {
+                @Override
+                public List<Integer> getExposedPorts() {
+                    return containerPorts;
+                }
+
+                @Override
+                public InspectContainerResponse getContainerInfo() {
+                    return containerInfo;
+                }
+
+                @Override
+                public Set<Integer> getLivenessCheckPortNumbers() {
+                    return containerPorts.stream().map(this::getMappedPort).collect(Collectors.toSet());
+                }
+            });
+        }
+
+        @Override
+        public WaitStrategy withStartupTimeout(Duration startupTimeout) {
+            delegate.withStartupTimeout(startupTimeout);
+            return this;
+        }
+    }
+}
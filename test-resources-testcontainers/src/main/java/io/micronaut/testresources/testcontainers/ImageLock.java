@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The image digests recorded in an image lockfile, which is generated by the
+ * build tools. Each line of the lockfile maps an image, as configured, to the
+ * digest it was resolved to, for example:
+ * <pre>postgres:16 postgres@sha256:4ec37d2a07a0067f176fdcc9d4bb633a5724d2cc4f892c7a2046d054bb6939e5</pre>
+ * When a lockfile is used, containers are created from the locked digests,
+ * so that runs are deterministic and, once the images are available locally,
+ * don't need to contact the registry.
+ */
+final class ImageLock {
+    static final ImageLock EMPTY = new ImageLock(Collections.emptyMap());
+
+    private final Map<String, String> digests;
+
+    ImageLock(Map<String, String> digests) {
+        this.digests = digests;
+    }
+
+    static ImageLock read(Path lockfile) {
+        if (!Files.exists(lockfile)) {
+            return EMPTY;
+        }
+        try {
+            return new ImageLock(parse(Files.readAllLines(lockfile)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read image lockfile " + lockfile, e);
+        }
+    }
+
+    static Map<String, String> parse(List<String> lines) {
+        Map<String, String> digests = new LinkedHashMap<>();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            if (parts.length == 2) {
+                digests.put(parts[0], parts[1]);
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Returns the image to use for the supplied image: the locked digest
+     * if the image is locked, or the image itself otherwise.
+     *
+     * @param image the configured image
+     * @return the image to use
+     */
+    DockerImageName resolve(DockerImageName image) {
+        if (image == null) {
+            return null;
+        }
+        String locked = digests.get(image.asCanonicalNameString());
+        if (locked == null) {
+            return image;
+        }
+        return DockerImageName.parse(locked).asCompatibleSubstituteFor(image);
+    }
+
+    /**
+     * Selects the digest of an image among the repository digests reported
+     * by Docker, preferring the digest of the repository of the image.
+     *
+     * @param image the image
+     * @param repoDigests the repository digests, for example <code>postgres@sha256:...</code>
+     * @return the locked reference of the image, if it has a digest
+     */
+    static Optional<String> lockedReference(DockerImageName image, List<String> repoDigests) {
+        if (repoDigests == null || repoDigests.isEmpty()) {
+            return Optional.empty();
+        }
+        String repository = image.getUnversionedPart();
+        List<String> candidates = repoDigests.stream()
+            .filter(repoDigest -> repoDigest.contains("@"))
+            .toList();
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        String selected = candidates.stream()
+            .filter(repoDigest -> repoDigest.startsWith(repository + "@"))
+            .findFirst()
+            .orElse(candidates.get(0));
+        return Optional.of(repository + selected.substring(selected.indexOf('@')));
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implemented by test resources resolvers which know ahead of time
+ * which container images they are going to use, so that these images
+ * can be pulled before the first property is resolved.
+ */
+public interface ImagePrefetchSupport {
+    /**
+     * Returns the images which this resolver would use for the
+     * supplied test resources configuration.
+     *
+     * @param testResourcesConfig the test resources configuration
+     * @return the list of images
+     */
+    List<DockerImageName> getImagesToPrefetch(Map<String, Object> testResourcesConfig);
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import java.util.Locale;
+
+/**
+ * Determines when the image of a container is pulled before the
+ * container is created.
+ */
+public enum ImagePullMode {
+    /**
+     * The image is pulled from the registry before each container is created.
+     */
+    ALWAYS,
+    /**
+     * The image is only pulled if it isn't available locally, in which case
+     * the registry isn't contacted at all.
+     */
+    IF_MISSING,
+    /**
+     * The image is never pulled: it must be available locally, for example
+     * because it was preloaded, otherwise the container cannot be started.
+     */
+    NEVER;
+
+    /**
+     * Returns the mode for the supplied name, for example <code>if-missing</code>.
+     *
+     * @param name the name of the mode, case-insensitive, with dashes or underscores
+     * @return the mode
+     */
+    public static ImagePullMode of(String name) {
+        String normalized = name.trim().replace('-', '_').toUpperCase(Locale.ROOT);
+        for (ImagePullMode mode : values()) {
+            if (mode.name().equals(normalized)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image pull mode: " + name);
+    }
+}
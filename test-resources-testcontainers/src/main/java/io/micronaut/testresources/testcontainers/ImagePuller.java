@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import io.micronaut.testresources.core.TestResourcesResolutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Pulls images before containers are created. Concurrent requests for
+ * the same image, for example from different scopes or different
+ * providers, share a single pull. Depending on the {@link ImagePullMode},
+ * images which are available locally are not pulled again.
+ */
+final class ImagePuller {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImagePuller.class);
+
+    private final Map<DockerImageName, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final Predicate<DockerImageName> isAvailableLocally;
+    private final Consumer<DockerImageName> remotePull;
+    private volatile ImagePullMode mode = ImagePullMode.IF_MISSING;
+
+    ImagePuller(Predicate<DockerImageName> isAvailableLocally, Consumer<DockerImageName> remotePull) {
+        this.isAvailableLocally = isAvailableLocally;
+        this.remotePull = remotePull;
+    }
+
+    void configure(ImagePullMode mode) {
+        this.mode = mode;
+    }
+
+    ImagePullMode mode() {
+        return mode;
+    }
+
+    /**
+     * Makes sure the supplied image is available locally, pulling it if
+     * required by the pull mode. If the same image is already being pulled,
+     * waits for that pull to complete, and fails with the same exception
+     * if it fails.
+     *
+     * @param image the image
+     */
+    void pull(DockerImageName image) {
+        var pull = new CompletableFuture<Void>();
+        var existing = inFlight.putIfAbsent(image, pull);
+        if (existing != null) {
+            LOGGER.debug("Waiting for in-flight pull of image {}", image);
+            await(existing);
+            return;
+        }
+        try {
+            var currentMode = mode;
+            if (currentMode == ImagePullMode.ALWAYS || !isAvailableLocally.test(image)) {
+                if (currentMode == ImagePullMode.NEVER) {
+                    throw new TestResourcesResolutionException("Image " + image + " is not available locally and the pull policy is 'never'");
+                }
+                LOGGER.info("Pulling image {}", image);
+                remotePull.accept(image);
+            }
+            pull.complete(null);
+        } catch (RuntimeException | Error ex) {
+            pull.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(image, pull);
+        }
+    }
+
+    /**
+     * Returns the images which are being pulled.
+     *
+     * @return the images
+     */
+    List<DockerImageName> pulling() {
+        return List.copyOf(inFlight.keySet());
+    }
+
+    private static void await(CompletableFuture<Void> pull) {
+        try {
+            pull.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TestResourcesResolutionException("Interrupted while waiting for image pull", e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new TestResourcesResolutionException(cause);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.testcontainers.containers.GenericContainer;
+
+/**
+ * A cheap check, using the native protocol of the service running in
+ * a container, which tells if the service is ready to accept requests.
+ * For example, a database probe would open a connection and check that
+ * it is valid, and a Redis probe would send a <code>PING</code> command.
+ * A probe is called repeatedly while the container starts, with a short
+ * exponential backoff, instead of polling logs or ports at a fixed interval.
+ *
+ * @param <T> the container type
+ */
+@FunctionalInterface
+public interface ReadinessProbe<T extends GenericContainer<?>> {
+    /**
+     * Checks if the service running in the container is ready.
+     * Implementations should use short timeouts, since the probe
+     * is called again if it fails.
+     *
+     * @param container the container, which is running but may not be ready yet
+     * @return true if the service is ready
+     * @throws Exception if the service cannot be reached, which is equivalent to returning false
+     */
+    boolean isReady(T container) throws Exception;
+}
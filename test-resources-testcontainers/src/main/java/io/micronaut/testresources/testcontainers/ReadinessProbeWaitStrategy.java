@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.ContainerLaunchException;
+import org.testcontainers.containers.wait.strategy.AbstractWaitStrategy;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+/**
+ * A wait strategy which calls a {@link ReadinessProbe} until it succeeds.
+ * The first attempts are made a few milliseconds apart, then the delay
+ * between attempts doubles up to a maximum, so that a container which
+ * is ready quickly is detected quickly, without hammering a container
+ * which is slow to start.
+ */
+final class ReadinessProbeWaitStrategy extends AbstractWaitStrategy {
+    static final Duration INITIAL_DELAY = Duration.ofMillis(5);
+    static final Duration MAX_DELAY = Duration.ofMillis(250);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadinessProbeWaitStrategy.class);
+
+    private final Callable<Boolean> probe;
+    private final Duration initialDelay;
+    private final Duration maxDelay;
+
+    ReadinessProbeWaitStrategy(Callable<Boolean> probe) {
+        this(probe, INITIAL_DELAY, MAX_DELAY);
+    }
+
+    ReadinessProbeWaitStrategy(Callable<Boolean> probe, Duration initialDelay, Duration maxDelay) {
+        this.probe = probe;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    protected void waitUntilReady() {
+        long start = System.nanoTime();
+        long deadline = start + startupTimeout.toNanos();
+        long delay = initialDelay.toMillis();
+        int attempts = 0;
+        Exception lastFailure = null;
+        while (true) {
+            attempts++;
+            try {
+                if (Boolean.TRUE.equals(probe.call())) {
+                    LOGGER.debug("Container ready after {} probes in {}ms", attempts, Duration.ofNanos(System.nanoTime() - start).toMillis());
+                    return;
+                }
+            } catch (Exception ex) {
+                lastFailure = ex;
+            }
+            if (System.nanoTime() + delay * 1_000_000 > deadline) {
+                throw new ContainerLaunchException("Timed out waiting for container to be ready after " + attempts + " probes", lastFailure);
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ContainerLaunchException("Interrupted while waiting for container to be ready", e);
+            }
+            delay = Math.min(delay * 2, maxDelay.toMillis());
+        }
+    }
+}
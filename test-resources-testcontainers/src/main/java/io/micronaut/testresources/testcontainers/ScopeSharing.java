@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import io.micronaut.testresources.core.Scope;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An opt-in policy which shares containers along the scope tree. A request
+ * in a scope reuses a container of the same identity which belongs to that
+ * scope or to one of its ancestors, and new containers are created at the
+ * owner level: the ancestor of the requested scope which has as many
+ * segments as the owner level, or the requested scope itself if it has
+ * fewer. For example, with an owner level of 2, a container requested in
+ * scope {@code com.acme.orders.OrderTest} belongs to scope {@code com.acme}.
+ * A shared container is not stopped when the scopes which use it are closed,
+ * since sibling scopes usually run one after another, but when its owner
+ * scope is closed, or when it is evicted.
+ */
+final class ScopeSharing {
+    private volatile boolean enabled;
+    private volatile int ownerLevel;
+
+    /**
+     * Configures the policy.
+     *
+     * @param enabled true to share containers along the scope tree
+     * @param ownerLevel the number of segments of the scopes which own new containers, 0 for the root scope
+     */
+    void configure(boolean enabled, int ownerLevel) {
+        this.enabled = enabled;
+        this.ownerLevel = Math.max(0, ownerLevel);
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the scope which owns the containers created for the supplied scope.
+     *
+     * @param scope the requested scope
+     * @return the owner scope
+     */
+    Scope ownerOf(Scope scope) {
+        List<Scope> chain = chain(scope);
+        int depth = chain.size() - 1;
+        return chain.get(depth - Math.min(depth, ownerLevel));
+    }
+
+    /**
+     * Returns the supplied scope followed by its ancestors, up to the root scope.
+     *
+     * @param scope the scope
+     * @return the scope chain, nearest first
+     */
+    static List<Scope> chain(Scope scope) {
+        List<Scope> chain = new ArrayList<>();
+        String id = scope.toString();
+        while (!id.isEmpty()) {
+            chain.add(Scope.of(id));
+            int dot = id.lastIndexOf('.');
+            id = dot < 0 ? "" : id.substring(0, dot);
+        }
+        chain.add(Scope.ROOT);
+        return chain;
+    }
+}
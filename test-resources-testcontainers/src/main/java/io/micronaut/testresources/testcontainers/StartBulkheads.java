@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import io.micronaut.testresources.core.TestResourcesResolutionException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limits the number of containers of the same image which are started
+ * concurrently, so that a burst of slow starts, for example of Oracle
+ * or Elasticsearch containers, cannot fill the admission queue and delay
+ * the start of containers of other images. Each image has its own queue,
+ * which can be bounded, and a start which cannot enter the bulkhead of
+ * its image before the queue timeout fails immediately.
+ */
+final class StartBulkheads {
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private volatile int maxConcurrent;
+    private volatile int maxQueued;
+    private volatile Duration queueTimeout;
+
+    StartBulkheads(int maxConcurrent) {
+        this.maxConcurrent = Math.max(0, maxConcurrent);
+    }
+
+    /**
+     * Configures the bulkheads.
+     *
+     * @param maxConcurrent the maximum number of containers of the same image started concurrently, or 0 for no limit
+     * @param maxQueued the maximum number of starts of the same image waiting for the bulkhead, or 0 for no limit
+     * @param queueTimeout the maximum time a start waits for the bulkhead, or null to wait until it is admitted
+     */
+    void configure(int maxConcurrent, int maxQueued, Duration queueTimeout) {
+        this.maxConcurrent = Math.max(0, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.queueTimeout = queueTimeout;
+        bulkheads.values().forEach(Bulkhead::wakeUp);
+    }
+
+    /**
+     * Waits until a container of the supplied image can be started.
+     *
+     * @param image the image, without its tag
+     * @param description the description of the container
+     * @return the permit, which must be closed once the container is started
+     * @throws InterruptedException if interrupted while waiting
+     * @throws Rejected if the queue is full, or if the queue timeout elapsed
+     */
+    AdmissionController.Permit acquire(String image, String description) throws InterruptedException {
+        if (maxConcurrent == 0) {
+            return () -> { };
+        }
+        return bulkheads.computeIfAbsent(image, Bulkhead::new).acquire(description);
+    }
+
+    List<BulkheadStats> stats() {
+        return bulkheads.values()
+            .stream()
+            .map(Bulkhead::stats)
+            .sorted((a, b) -> a.image().compareTo(b.image()))
+            .toList();
+    }
+
+    /**
+     * Thrown when a start is rejected by a bulkhead.
+     */
+    static final class Rejected extends TestResourcesResolutionException {
+        private static final long serialVersionUID = 1L;
+
+        Rejected(String message) {
+            super(message);
+        }
+    }
+
+    private final class Bulkhead {
+        private final String image;
+        private final Deque<Object> queue = new ArrayDeque<>();
+        private int running;
+        private long rejected;
+
+        private Bulkhead(String image) {
+            this.image = image;
+        }
+
+        synchronized AdmissionController.Permit acquire(String description) throws InterruptedException {
+            int queued = maxQueued;
+            if (queued > 0 && queue.size() >= queued && running >= maxConcurrent) {
+                throw reject("Too many test containers of image " + image + " are waiting to be started, rejecting the start of " + description);
+            }
+            Duration timeout = queueTimeout;
+            long deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+            Object ticket = new Object();
+            queue.addLast(ticket);
+            try {
+                while (queue.peekFirst() != ticket || running >= maxConcurrent && maxConcurrent > 0) {
+                    if (timeout == null) {
+                        wait();
+                    } else {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw reject("Test container " + description + " could not be started within " + timeout.toSeconds()
+                                + "s because other test containers of image " + image + " are being started");
+                        }
+                        wait(Math.max(1, remaining / 1_000_000));
+                    }
+                }
+            } finally {
+                queue.remove(ticket);
+                notifyAll();
+            }
+            running++;
+            return this::release;
+        }
+
+        private synchronized void release() {
+            running--;
+            notifyAll();
+        }
+
+        private synchronized void wakeUp() {
+            notifyAll();
+        }
+
+        private Rejected reject(String message) {
+            rejected++;
+            return new Rejected(message);
+        }
+
+        private synchronized BulkheadStats stats() {
+            return new BulkheadStats(image, running, queue.size(), maxConcurrent, rejected);
+        }
+    }
+}
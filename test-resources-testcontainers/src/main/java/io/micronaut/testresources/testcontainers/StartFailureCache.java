@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Remembers the containers which failed to start, so that the other
+ * properties of the same container fail immediately instead of paying
+ * for a full pull and start again. A failure is forgotten once the
+ * backoff window has elapsed, or as soon as the configuration used to
+ * start the container changes.
+ */
+final class StartFailureCache {
+    static final Duration DEFAULT_BACKOFF = Duration.ofSeconds(30);
+
+    private final Map<TestContainers.Key, Failure> failures = new ConcurrentHashMap<>();
+    private volatile Duration backoff = DEFAULT_BACKOFF;
+
+    /**
+     * Configures the time during which a failed start isn't retried.
+     *
+     * @param backoff the backoff window, or null or zero to always retry
+     */
+    void configure(Duration backoff) {
+        this.backoff = backoff == null ? Duration.ZERO : backoff;
+        if (this.backoff.isZero() || this.backoff.isNegative()) {
+            failures.clear();
+        }
+    }
+
+    /**
+     * Records that the container for the supplied key failed to start.
+     *
+     * @param key the container key
+     * @param fingerprint the fingerprint of the configuration used to start the container
+     * @param cause the start failure
+     * @param now the current time, in milliseconds
+     */
+    void record(TestContainers.Key key, int fingerprint, Throwable cause, long now) {
+        long window = backoff.toMillis();
+        if (window > 0) {
+            failures.put(key, new Failure(cause, fingerprint, now, now + window));
+        }
+    }
+
+    /**
+     * Returns the failure of the last start of the container for the
+     * supplied key, if it happened within the backoff window and with
+     * the same configuration. Other failures are forgotten.
+     *
+     * @param key the container key
+     * @param fingerprint the fingerprint of the current configuration
+     * @param now the current time, in milliseconds
+     * @return the failure, if the start shouldn't be retried yet
+     */
+    Optional<Failure> find(TestContainers.Key key, int fingerprint, long now) {
+        Failure failure = failures.get(key);
+        if (failure == null) {
+            return Optional.empty();
+        }
+        if (failure.fingerprint() != fingerprint || now >= failure.retryAt()) {
+            failures.remove(key, failure);
+            return Optional.empty();
+        }
+        return Optional.of(failure);
+    }
+
+    void removeIf(Predicate<? super TestContainers.Key> predicate) {
+        failures.keySet().removeIf(predicate);
+    }
+
+    /**
+     * A failed start.
+     *
+     * @param cause the exception thrown by the start
+     * @param fingerprint the fingerprint of the configuration used to start the container
+     * @param failedAt the time of the failure, in milliseconds
+     * @param retryAt the time after which the start is retried, in milliseconds
+     */
+    record Failure(Throwable cause, int fingerprint, long failedAt, long retryAt) {
+    }
+}
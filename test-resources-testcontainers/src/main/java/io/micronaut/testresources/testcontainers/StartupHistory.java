@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Records how long it takes to pull the image of a container and to
+ * start it, and learns a deadline for the start of the containers of
+ * each image from the recorded durations: the 99th percentile multiplied
+ * by a factor, and never less than a minimum. A deadline is only learned
+ * once enough durations are recorded. When a settings directory is
+ * configured, the durations are kept in a file of that directory, so that
+ * they survive the server.
+ */
+final class StartupHistory {
+    static final String PULL = "pull";
+    static final String START = "start";
+    static final int MAX_SAMPLES = 20;
+    static final int MIN_SAMPLES = 5;
+    static final double DEFAULT_FACTOR = 3;
+    static final Duration DEFAULT_MINIMUM = Duration.ofSeconds(30);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupHistory.class);
+    private static final String FILE_NAME = "startup-history.properties";
+
+    private final Map<String, Deque<Long>> samples = new TreeMap<>();
+    private Path file;
+    private boolean adaptive;
+    private double factor = DEFAULT_FACTOR;
+    private Duration minimum = DEFAULT_MINIMUM;
+    private boolean retry;
+
+    /**
+     * Keeps the durations in the supplied directory, loading the
+     * durations recorded by previous servers.
+     *
+     * @param directory the settings directory
+     */
+    synchronized void persistTo(Path directory) {
+        this.file = directory.resolve(FILE_NAME);
+        load();
+    }
+
+    /**
+     * Configures the learned deadlines.
+     *
+     * @param adaptive true to abort the starts which exceed their learned deadline
+     * @param factor the factor applied to the 99th percentile of the start durations
+     * @param minimum the minimum deadline
+     * @param retry true to retry an aborted start once, on a fresh container
+     */
+    synchronized void configure(boolean adaptive, double factor, Duration minimum, boolean retry) {
+        this.adaptive = adaptive;
+        this.factor = factor;
+        this.minimum = minimum;
+        this.retry = retry;
+    }
+
+    synchronized boolean isRetryEnabled() {
+        return retry;
+    }
+
+    synchronized void record(String image, String phase, Duration duration) {
+        Deque<Long> durations = samples.computeIfAbsent(phase + "." + image, unused -> new ArrayDeque<>());
+        durations.addLast(duration.toMillis());
+        while (durations.size() > MAX_SAMPLES) {
+            durations.removeFirst();
+        }
+        save();
+    }
+
+    /**
+     * Returns the deadline learned for the start of the containers of an image.
+     *
+     * @param image the image
+     * @return the deadline, if adaptive deadlines are enabled and enough durations are recorded
+     */
+    synchronized Optional<Duration> deadline(String image) {
+        if (!adaptive) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(deadlineOf(samples.get(START + "." + image)));
+    }
+
+    synchronized List<StartupStatistics> statistics() {
+        List<StartupStatistics> statistics = new ArrayList<>(samples.size());
+        samples.forEach((key, durations) -> {
+            int dot = key.indexOf('.');
+            String phase = key.substring(0, dot);
+            List<Long> sorted = durations.stream().sorted().toList();
+            statistics.add(new StartupStatistics(
+                key.substring(dot + 1),
+                phase,
+                sorted.size(),
+                Duration.ofMillis(percentile(sorted, 0.5)),
+                Duration.ofMillis(percentile(sorted, 0.99)),
+                START.equals(phase) ? deadlineOf(durations) : null
+            ));
+        });
+        return statistics;
+    }
+
+    private Duration deadlineOf(Deque<Long> durations) {
+        if (durations == null || durations.size() < MIN_SAMPLES) {
+            return null;
+        }
+        long p99 = percentile(durations.stream().sorted().toList(), 0.99);
+        Duration learned = Duration.ofMillis(Math.round(p99 * factor));
+        return learned.compareTo(minimum) < 0 ? minimum : learned;
+    }
+
+    /**
+     * Returns the percentile of sorted durations, using the nearest rank.
+     *
+     * @param sorted the durations, sorted, not empty
+     * @param percentile the percentile, between 0 and 1
+     * @return the duration at that percentile
+     */
+    static long percentile(List<Long> sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private void load() {
+        if (Files.exists(file)) {
+            Properties entries = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                entries.load(in);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read startup history {}", file, e);
+                return;
+            }
+            for (String key : entries.stringPropertyNames()) {
+                try {
+                    samples.put(key, Arrays.stream(entries.getProperty(key).split(","))
+                        .map(String::trim)
+                        .map(Long::parseLong)
+                        .collect(Collectors.toCollection(ArrayDeque::new)));
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Ignoring invalid startup history entry {}", key);
+                }
+            }
+        }
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        Properties entries = new Properties();
+        samples.forEach((key, durations) -> entries.setProperty(key, durations.stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining(","))));
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                entries.store(out, "Start durations of the containers of the Micronaut Test Resources server, in milliseconds");
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write startup history {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import java.time.Duration;
+
+/**
+ * The durations recorded for one phase of the start of the containers
+ * of an image, and the deadline learned from them.
+ *
+ * @param image the image
+ * @param phase the phase, either {@code pull} or {@code start}
+ * @param samples the number of recorded durations
+ * @param median the median duration
+ * @param p99 the 99th percentile of the durations
+ * @param deadline the learned deadline, or null if there is none
+ */
+public record StartupStatistics(
+    String image,
+    String phase,
+    int samples,
+    Duration median,
+    Duration p99,
+    Duration deadline
+) {
+}
@@ -16,6 +16,7 @@
 package io.micronaut.testresources.testcontainers;
 
 import org.testcontainers.containers.wait.strategy.WaitStrategy;
+import org.testcontainers.images.builder.Transferable;
 import org.testcontainers.utility.MountableFile;
 
 import java.time.Duration;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 final class TestContainerMetadata {
     private final String id;
@@ -45,11 +47,15 @@ final class TestContainerMetadata {
     private final Long memory;
     private final Long swapMemory;
     private final Long sharedMemory;
+    private final Double cpus;
+    private final String cpuset;
     private final String network;
     private final Set<String> networkAliases;
     private final String networkMode;
-    private final WaitStrategy waitStrategy;
+    private final Supplier<WaitStrategy> waitStrategy;
     private final Set<String> dependencies;
+    private final Integer poolSize;
+    private final Long poolMaxMemory;
 
     @SuppressWarnings("checkstyle:ParameterNumber")
     TestContainerMetadata(String id,
@@ -70,11 +76,15 @@ final class TestContainerMetadata {
                           Long memory,
                           Long swapMemory,
                           Long sharedMemory,
+                          Double cpus,
+                          String cpuset,
                           String network,
                           Set<String> networkAliases,
                           String networkMode,
-                          WaitStrategy waitStrategy,
-                          Set<String> dependencies) {
+                          Supplier<WaitStrategy> waitStrategy,
+                          Set<String> dependencies,
+                          Integer poolSize,
+                          Long poolMaxMemory) {
         this.id = id;
         this.imageName = imageName;
         this.imageTag = imageTag;
@@ -93,11 +103,15 @@ final class TestContainerMetadata {
         this.memory = memory;
         this.swapMemory = swapMemory;
         this.sharedMemory = sharedMemory;
+        this.cpus = cpus;
+        this.cpuset = cpuset;
         this.network = network;
         this.networkAliases = networkAliases;
         this.networkMode = networkMode;
         this.waitStrategy = waitStrategy;
         this.dependencies = dependencies;
+        this.poolSize = poolSize;
+        this.poolMaxMemory = poolMaxMemory;
     }
 
     public String getId() {
@@ -164,6 +178,23 @@ final class TestContainerMetadata {
         return Optional.ofNullable(sharedMemory);
     }
 
+    public Optional<Double> getCpus() {
+        return Optional.ofNullable(cpus);
+    }
+
+    public Optional<String> getCpuset() {
+        return Optional.ofNullable(cpuset);
+    }
+
+    /**
+     * Returns true if this container declares its own CPU limits, in which
+     * case it is left out of automatic CPU partitioning.
+     * @return true if cpus or cpuset is set
+     */
+    public boolean hasCpuLimits() {
+        return cpus != null || cpuset != null;
+    }
+
     public Optional<String> getNetwork() {
         return Optional.ofNullable(network);
     }
@@ -176,8 +207,14 @@ final class TestContainerMetadata {
         return Optional.ofNullable(networkMode);
     }
 
+    /**
+     * Returns a new instance of the configured wait strategy. Wait strategies
+     * are stateful, so the same instance must not be shared between containers.
+     *
+     * @return the wait strategy, if any
+     */
     public Optional<WaitStrategy> getWaitStrategy() {
-        return Optional.ofNullable(waitStrategy);
+        return Optional.ofNullable(waitStrategy).map(Supplier::get);
     }
 
     public Set<String> getRwTmpfsMappings() {
@@ -192,19 +229,81 @@ final class TestContainerMetadata {
         return Collections.unmodifiableSet(dependencies);
     }
 
+    public Optional<Integer> getPoolSize() {
+        return Optional.ofNullable(poolSize);
+    }
+
+    public Optional<Long> getPoolMaxMemory() {
+        return Optional.ofNullable(poolMaxMemory);
+    }
+
+    /**
+     * Returns the number of spare containers which should be kept
+     * warm, taking the maximum memory of the pool into account
+     * when the memory of the container is known. Containers which
+     * depend on other containers are never pooled, since their
+     * dependencies are resolved in the scope which starts them,
+     * not in the scope which would take the spare container.
+     *
+     * @return the number of spare containers
+     */
+    public int getPoolCapacity() {
+        if (!dependencies.isEmpty()) {
+            return 0;
+        }
+        int capacity = poolSize == null ? 0 : poolSize;
+        if (poolMaxMemory != null && memory != null && memory > 0) {
+            capacity = (int) Math.min(capacity, poolMaxMemory / memory);
+        }
+        return Math.max(0, capacity);
+    }
+
+    /**
+     * A file or directory copied to the container. Files which are declared
+     * in the configuration are read from the shared cache of copy sources, so
+     * that they are only read once, however many containers they are copied to.
+     */
     public static final class CopyFileToContainer {
-        private final MountableFile file;
+        private static final CopySourceCache COPY_SOURCES = new CopySourceCache(CopyFileToContainer.class.getClassLoader());
+
+        private final String source;
         private final String destination;
+        private MountableFile file;
 
         public CopyFileToContainer(MountableFile file, String destination) {
+            this.source = null;
             this.file = file;
             this.destination = destination;
         }
 
-        public MountableFile getFile() {
+        CopyFileToContainer(String source, String destination) {
+            this.source = source;
+            this.destination = destination;
+        }
+
+        public synchronized MountableFile getFile() {
+            if (file == null) {
+                if (source.startsWith(TestContainerMetadataSupport.CLASSPATH_PREFIX)) {
+                    file = MountableFile.forClasspathResource(source.substring(TestContainerMetadataSupport.CLASSPATH_PREFIX.length()));
+                } else {
+                    file = MountableFile.forHostPath(source);
+                }
+            }
             return file;
         }
 
+        /**
+         * Returns the content to copy to the container.
+         *
+         * @return the content to copy
+         */
+        public Transferable getTransferable() {
+            if (source == null) {
+                return file;
+            }
+            return COPY_SOURCES.resolve(source);
+        }
+
         public String getDestination() {
             return destination;
         }
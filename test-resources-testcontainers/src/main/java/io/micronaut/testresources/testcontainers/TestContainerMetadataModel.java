@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017-2021 original authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.micronaut.testresources.testcontainers;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable view of the containers declared in a test resources configuration,
+ * under the <code>containers.</code> prefix. Models are cached by the content of
+ * the configuration, so that repeated requests with the same configuration don't
+ * parse it again. The metadata of each container is parsed on first access, so
+ * that an invalid declaration only fails the resolvers which use it.
+ */
+final class TestContainerMetadataModel {
+    private static final int CACHE_SIZE = 16;
+    private static final Map<Map<String, Object>, TestContainerMetadataModel> CACHE = Collections.synchronizedMap(
+        new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Map<String, Object>, TestContainerMetadataModel> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        }
+    );
+
+    private static volatile Lookup last;
+
+    private final Map<String, Object> testResourcesConfig;
+    private final List<String> containerNames;
+    private final int fingerprint;
+    private final Map<String, TestContainerMetadata> metadataByName = new ConcurrentHashMap<>();
+    private volatile List<TestContainerMetadata> containers;
+    private volatile Map<String, TestContainerMetadata> containersByProperty;
+    private volatile List<String> resolvableProperties;
+
+    private TestContainerMetadataModel(Map<String, Object> testResourcesConfig) {
+        this.testResourcesConfig = testResourcesConfig;
+        this.containerNames = containerNamesFrom(testResourcesConfig);
+        this.fingerprint = testResourcesConfig.hashCode();
+    }
+
+    /**
+     * Returns the model for the supplied test resources configuration.
+     *
+     * @param testResourcesConfig the test resources configuration
+     * @return the model
+     */
+    static TestContainerMetadataModel of(Map<String, Object> testResourcesConfig) {
+        Lookup lookup = last;
+        if (lookup != null && lookup.testResourcesConfig() == testResourcesConfig) {
+            return lookup.model();
+        }
+        TestContainerMetadataModel model = CACHE.get(testResourcesConfig);
+        if (model == null) {
+            Map<String, Object> copy = Collections.unmodifiableMap(new HashMap<>(testResourcesConfig));
+            model = new TestContainerMetadataModel(copy);
+            CACHE.put(copy, model);
+        }
+        last = new Lookup(testResourcesConfig, model);
+        return model;
+    }
+
+    /**
+     * Returns a fingerprint of the configuration, which changes when
+     * the content of the configuration changes.
+     *
+     * @return the fingerprint of the configuration
+     */
+    int fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the metadata of the container with the supplied name.
+     *
+     * @param name the name of the container
+     * @return the metadata, if the container is declared
+     */
+    Optional<TestContainerMetadata> metadata(String name) {
+        if (!containerNames.contains(name)) {
+            return Optional.empty();
+        }
+        TestContainerMetadata md = metadataByName.get(name);
+        if (md == null) {
+            md = TestContainerMetadataSupport.convertToMetadata(testResourcesConfig, name).orElseThrow();
+            metadataByName.putIfAbsent(name, md);
+        }
+        return Optional.of(md);
+    }
+
+    /**
+     * Returns the metadata of all declared containers, in declaration order.
+     *
+     * @return the metadata of all containers
+     */
+    List<TestContainerMetadata> containers() {
+        List<TestContainerMetadata> result = containers;
+        if (result == null) {
+            result = containerNames.stream()
+                .map(this::metadata)
+                .flatMap(Optional::stream)
+                .toList();
+            containers = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first container with an image name which exposes the
+     * supplied property, either as a port or as a host name.
+     *
+     * @param property the property
+     * @return the container metadata, if any
+     */
+    Optional<TestContainerMetadata> containerForProperty(String property) {
+        Map<String, TestContainerMetadata> index = containersByProperty;
+        if (index == null) {
+            index = new HashMap<>();
+            for (TestContainerMetadata md : containers()) {
+                if (md.getImageName().isPresent()) {
+                    for (String resolvable : propertiesOf(md)) {
+                        index.putIfAbsent(resolvable, md);
+                    }
+                }
+            }
+            index = Collections.unmodifiableMap(index);
+            containersByProperty = index;
+        }
+        return Optional.ofNullable(index.get(property));
+    }
+
+    /**
+     * Returns the properties which are exposed by declared containers.
+     *
+     * @return the list of properties
+     */
+    List<String> resolvableProperties() {
+        List<String> result = resolvableProperties;
+        if (result == null) {
+            result = containers().stream()
+                .flatMap(md -> propertiesOf(md).stream())
+                .distinct()
+                .toList();
+            resolvableProperties = result;
+        }
+        return result;
+    }
+
+    private static Set<String> propertiesOf(TestContainerMetadata md) {
+        Set<String> properties = new LinkedHashSet<>(md.getExposedPorts().keySet());
+        properties.addAll(md.getHostNames());
+        return properties;
+    }
+
+    private static List<String> containerNamesFrom(Map<String, Object> configuration) {
+        String prefix = TestContainerMetadataSupport.TEST_RESOURCES_CONTAINERS;
+        return configuration.keySet()
+            .stream()
+            .filter(key -> key.startsWith(prefix) && key.indexOf('.', prefix.length()) > 0)
+            .map(key -> key.substring(prefix.length(), key.indexOf('.', prefix.length())))
+            .distinct()
+            .toList();
+    }
+
+    /**
+     * The last looked up configuration, which lets repeated lookups
+     * with the same map instance skip hashing the configuration.
+     */
+    private record Lookup(Map<String, Object> testResourcesConfig, TestContainerMetadataModel model) {
+    }
+}
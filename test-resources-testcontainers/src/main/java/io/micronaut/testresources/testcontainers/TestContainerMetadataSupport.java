@@ -27,7 +27,6 @@ import org.testcontainers.containers.wait.strategy.LogMessageWaitStrategy;
 import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.containers.wait.strategy.WaitAllStrategy;
 import org.testcontainers.containers.wait.strategy.WaitStrategy;
-import org.testcontainers.utility.MountableFile;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -41,6 +40,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -52,9 +52,10 @@ final class TestContainerMetadataSupport {
 
     static final int GENERIC_ORDER = 1000;
     static final int SPECIFIC_ORDER = 0;
+    static final String CLASSPATH_PREFIX = "classpath:";
 
     private static final ConversionService CONVERSION_SERVICE;
-    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final double NANO_CPUS = 1_000_000_000d;
 
     static {
         MutableConversionService mcs = new DefaultMutableConversionService();
@@ -67,13 +68,6 @@ final class TestContainerMetadataSupport {
 
     }
 
-    static Stream<TestContainerMetadata> containerMetadataFor(List<String> containerNames, Map<String, Object> testResourcesConfig) {
-        return containerNames.stream()
-            .map(name -> convertToMetadata(testResourcesConfig, name))
-            .filter(Optional::isPresent)
-            .map(Optional::get);
-    }
-
     static Optional<TestContainerMetadata> convertToMetadata(Map<String, Object> testResourcesConfig, String name) {
         String prefix = TEST_RESOURCES_CONTAINERS + name + ".";
         String imageName = extractStringParameterFrom(prefix, "image-name", testResourcesConfig);
@@ -93,12 +87,20 @@ final class TestContainerMetadataSupport {
         Long memory = extractMemoryParameterFrom(prefix, testResourcesConfig, "memory");
         Long swapMemory = extractMemoryParameterFrom(prefix, testResourcesConfig, "swap-memory");
         Long sharedMemory = extractMemoryParameterFrom(prefix, testResourcesConfig, "shared-memory");
+        Double cpus = extractParameterFrom(prefix, "cpus", testResourcesConfig, Double.class);
+        String cpuset = extractStringParameterFrom(prefix, "cpuset", testResourcesConfig);
         String network = extractStringParameterFrom(prefix, "network", testResourcesConfig);
         Set<String> networkAliases = extractSetFrom(prefix, testResourcesConfig, "network-aliases");
         String networkMode = extractStringParameterFrom(prefix, "network-mode", testResourcesConfig);
         Set<String> dependsOn = extractSetFrom(prefix, testResourcesConfig, "depends-on");
-        WaitStrategy waitStrategy = extractWaitStrategyFrom(prefix, testResourcesConfig);
-        return Optional.of(new TestContainerMetadata(name, imageName, imageTag, exposedPorts, hostNames, rwFsBinds, roFsBinds, rwTmpfsMappings, roTmpfsMappings, command, workingDirectory, env, labels, startupTimeout, fileCopies, memory, swapMemory, sharedMemory, network, networkAliases, networkMode, waitStrategy, dependsOn));
+        Supplier<WaitStrategy> waitStrategy = extractWaitStrategyFrom(prefix, testResourcesConfig);
+        if (waitStrategy != null) {
+            // fail fast on invalid wait strategy configuration
+            waitStrategy.get();
+        }
+        Integer poolSize = extractParameterFrom(prefix, "pool.size", testResourcesConfig, Integer.class);
+        Long poolMaxMemory = extractMemoryParameterFrom(prefix, testResourcesConfig, "pool.max-memory");
+        return Optional.of(new TestContainerMetadata(name, imageName, imageTag, exposedPorts, hostNames, rwFsBinds, roFsBinds, rwTmpfsMappings, roTmpfsMappings, command, workingDirectory, env, labels, startupTimeout, fileCopies, memory, swapMemory, sharedMemory, cpus, cpuset, network, networkAliases, networkMode, waitStrategy, dependsOn, poolSize, poolMaxMemory));
     }
 
     private static Long extractMemoryParameterFrom(String prefix, Map<String, Object> testResourcesConfig, String key) {
@@ -159,6 +161,15 @@ final class TestContainerMetadataSupport {
             .orElse(null);
     }
 
+    private static <T> T extractParameterFrom(String prefix, String key, Map<String, Object> testResourcesConfig, Class<T> type) {
+        Object value = testResourcesConfig.get(prefix + key);
+        if (value == null) {
+            return null;
+        }
+        return CONVERSION_SERVICE.convert(value, type)
+            .orElseThrow(() -> new IllegalArgumentException("Invalid value '" + value + "' for " + prefix + key + ", expected a number"));
+    }
+
     private static Set<String> extractSetFrom(String prefix, Map<String, Object> testResourcesConfig, String key) {
         return Optional.ofNullable(testResourcesConfig.get(prefix + key))
             .map(o -> {
@@ -205,11 +216,7 @@ final class TestContainerMetadataSupport {
             .map(e -> {
                 String source = e.getKey();
                 String destination = e.getValue();
-                if (source.startsWith(CLASSPATH_PREFIX)) {
-                    String classpath = source.substring(CLASSPATH_PREFIX.length());
-                    return new TestContainerMetadata.CopyFileToContainer(MountableFile.forClasspathResource(classpath), destination);
-                }
-                return new TestContainerMetadata.CopyFileToContainer(MountableFile.forHostPath(source), destination);
+                return new TestContainerMetadata.CopyFileToContainer(source, destination);
             })
             .collect(Collectors.toList());
     }
@@ -254,9 +261,9 @@ final class TestContainerMetadataSupport {
             .orElse(Collections.emptyMap());
     }
 
-    private static WaitStrategy extractWaitStrategyFrom(String prefix, Map<String, Object> testResourcesConfig) {
+    private static Supplier<WaitStrategy> extractWaitStrategyFrom(String prefix, Map<String, Object> testResourcesConfig) {
         String waitStrategyPrefix = prefix + "wait-strategy.";
-        List<WaitStrategy> strategies = new ArrayList<>();
+        List<Supplier<? extends WaitStrategy>> strategies = new ArrayList<>();
         Set<String> strategyIds = testResourcesConfig.keySet()
             .stream()
             .map(k -> determineWaitStrategyIdFor(prefix, testResourcesConfig, waitStrategyPrefix, k))
@@ -272,11 +279,11 @@ final class TestContainerMetadataSupport {
                         break;
                 case "port":
                     assertAllowedKeys(prefix + ".port", testResourcesConfig);
-                    strategies.add(Wait.forListeningPort());
+                    strategies.add(Wait::forListeningPort);
                     break;
                 case "healthcheck":
                     assertAllowedKeys(prefix + ".healthcheck", testResourcesConfig);
-                    strategies.add(Wait.forHealthcheck());
+                    strategies.add(Wait::forHealthcheck);
                     break;
                 case "all":
                     strategies.add(parseAllStrategy(waitStrategyPrefix + "all.", testResourcesConfig));
@@ -286,10 +293,11 @@ final class TestContainerMetadataSupport {
             }
         }
         if (strategies.size() == 1) {
-            return strategies.get(0);
+            Supplier<? extends WaitStrategy> strategy = strategies.get(0);
+            return strategy::get;
         }
         if (strategies.size() > 1) {
-            return buildWaitAllStrategy(strategies);
+            return () -> buildWaitAllStrategy(strategies.stream().<WaitStrategy>map(Supplier::get).toList());
         }
         return null;
     }
@@ -308,20 +316,19 @@ final class TestContainerMetadataSupport {
         return waitAllStrategy;
     }
 
-    private static WaitStrategy parseAllStrategy(String prefix, Map<String, Object> testResourcesConfig) {
+    private static Supplier<WaitStrategy> parseAllStrategy(String prefix, Map<String, Object> testResourcesConfig) {
         assertAllowedKeys(prefix, testResourcesConfig, "mode", "timeout");
         String modeStr = extractStringParameterFrom(prefix, "mode", testResourcesConfig);
-        WaitAllStrategy.Mode mode = WaitAllStrategy.Mode.WITH_OUTER_TIMEOUT;
-        if (modeStr != null) {
-            mode = WaitAllStrategy.Mode.valueOf(modeStr.toUpperCase(Locale.US));
-        }
-        WaitAllStrategy waitAllStrategy = new WaitAllStrategy(mode);
+        WaitAllStrategy.Mode mode = modeStr != null ? WaitAllStrategy.Mode.valueOf(modeStr.toUpperCase(Locale.US)) : WaitAllStrategy.Mode.WITH_OUTER_TIMEOUT;
         String timeoutStr = extractStringParameterFrom(prefix, "timeout", testResourcesConfig);
-        if (timeoutStr != null) {
-            Duration startupTimeout = CONVERSION_SERVICE.convert(timeoutStr, Duration.class).orElse(null);
-            waitAllStrategy = waitAllStrategy.withStartupTimeout(startupTimeout);
-        }
-        return waitAllStrategy;
+        Duration startupTimeout = timeoutStr != null ? CONVERSION_SERVICE.convert(timeoutStr, Duration.class).orElse(null) : null;
+        return () -> {
+            WaitAllStrategy waitAllStrategy = new WaitAllStrategy(mode);
+            if (timeoutStr != null) {
+                waitAllStrategy = waitAllStrategy.withStartupTimeout(startupTimeout);
+            }
+            return waitAllStrategy;
+        };
     }
 
     @Nullable
@@ -340,32 +347,35 @@ final class TestContainerMetadataSupport {
         return null;
     }
 
-    private static HttpWaitStrategy parseHttpStrategy(String prefix, Map<String, Object> testResourcesConfig) {
+    private static Supplier<HttpWaitStrategy> parseHttpStrategy(String prefix, Map<String, Object> testResourcesConfig) {
         assertAllowedKeys(prefix, testResourcesConfig, "path", "port", "tls", "status-code");
         String path = extractStringParameterFrom(prefix, "path", testResourcesConfig);
         Integer port = extractIntParameterFrom(prefix, "port", testResourcesConfig);
         String tls = extractStringParameterFrom(prefix, "tls", testResourcesConfig);
-        List<String> statusCode = extractListFrom(prefix, testResourcesConfig, "status-code");
-        HttpWaitStrategy httpWaitStrategy = new HttpWaitStrategy().forPath(path);
-        if (port != null) {
-            httpWaitStrategy = httpWaitStrategy.forPort(port);
-        }
-        if (tls != null && Boolean.TRUE.equals(Boolean.parseBoolean(tls))) {
-            httpWaitStrategy = httpWaitStrategy.usingTls();
-        }
-        if (!statusCode.isEmpty()) {
-            for (String status : statusCode) {
-                httpWaitStrategy = httpWaitStrategy.forStatusCode(Integer.parseInt(status));
+        List<Integer> statusCode = extractListFrom(prefix, testResourcesConfig, "status-code")
+            .stream()
+            .map(Integer::parseInt)
+            .toList();
+        return () -> {
+            HttpWaitStrategy httpWaitStrategy = new HttpWaitStrategy().forPath(path);
+            if (port != null) {
+                httpWaitStrategy = httpWaitStrategy.forPort(port);
             }
-        }
-        return httpWaitStrategy;
+            if (tls != null && Boolean.TRUE.equals(Boolean.parseBoolean(tls))) {
+                httpWaitStrategy = httpWaitStrategy.usingTls();
+            }
+            for (Integer status : statusCode) {
+                httpWaitStrategy = httpWaitStrategy.forStatusCode(status);
+            }
+            return httpWaitStrategy;
+        };
     }
 
-    private static LogMessageWaitStrategy parseLogStrategy(String prefix, Map<String, Object> testResourcesConfig) {
+    private static Supplier<LogMessageWaitStrategy> parseLogStrategy(String prefix, Map<String, Object> testResourcesConfig) {
         assertAllowedKeys(prefix, testResourcesConfig, "regex", "times");
         String regex = extractStringParameterFrom(prefix, "regex", testResourcesConfig);
         Integer times = extractIntParameterFrom(prefix, "times", testResourcesConfig);
-        return Wait.forLogMessage(regex, times != null ? times : 1);
+        return () -> Wait.forLogMessage(regex, times != null ? times : 1);
     }
 
     private static void assertAllowedKeys(String prefix, Map<String, Object> testResourcesConfig, String... allowed) {
@@ -411,10 +421,12 @@ final class TestContainerMetadataSupport {
         container.withEnv(md.getEnv());
         container.withLabels(md.getLabels());
         md.getStartupTimeout().ifPresent(container::withStartupTimeout);
-        md.getFileCopies().forEach(copy -> container.withCopyFileToContainer(copy.getFile(), copy.getDestination()));
+        md.getFileCopies().forEach(copy -> container.withCopyToContainer(copy.getTransferable(), copy.getDestination()));
         md.getSharedMemory().ifPresent(container::withSharedMemorySize);
         md.getMemory().ifPresent(memory -> container.withCreateContainerCmdModifier(cmd -> cmd.getHostConfig().withMemory(memory)));
         md.getSwapMemory().ifPresent(memory -> container.withCreateContainerCmdModifier(cmd -> cmd.getHostConfig().withMemorySwap(memory)));
+        md.getCpus().ifPresent(cpus -> container.withCreateContainerCmdModifier(cmd -> cmd.getHostConfig().withNanoCPUs(Math.round(cpus * NANO_CPUS))));
+        md.getCpuset().ifPresent(cpuset -> container.withCreateContainerCmdModifier(cmd -> cmd.getHostConfig().withCpusetCpus(cpuset)));
         md.getNetwork().ifPresent(network -> container.withNetwork(TestContainers.network(network)));
         if (!md.getNetworkAliases().isEmpty()) {
             container.withNetworkAliases(md.getNetworkAliases().toArray(new String[0]));
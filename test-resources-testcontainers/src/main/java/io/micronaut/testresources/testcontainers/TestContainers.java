@@ -15,24 +15,52 @@
  */
 package io.micronaut.testresources.testcontainers;
 
+import com.github.dockerjava.api.exception.NotFoundException;
 import io.micronaut.testresources.core.Scope;
 import io.micronaut.testresources.core.TestResourcesResolutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testcontainers.DockerClientFactory;
 import org.testcontainers.containers.ContainerFetchException;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.Network;
+import org.testcontainers.images.PullPolicy;
+import org.testcontainers.images.RemoteDockerImage;
 import org.testcontainers.utility.DockerImageName;
+import org.testcontainers.utility.TestcontainersConfiguration;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
@@ -48,15 +76,44 @@ import java.util.stream.Collectors;
  * the {@link #closeAll()} method.
  */
 public final class TestContainers {
-    private static final Map<Key, GenericContainer<?>> CONTAINERS_BY_KEY =
-        new HashMap<>();
-    private static final Map<String, Set<GenericContainer<?>>> CONTAINERS_BY_PROPERTY =
-        new HashMap<>();
-    private static final Map<DockerImageName, AtomicInteger> PULLING = new HashMap<>();
-    private static final Map<DockerImageName, AtomicInteger> STARTING = new HashMap<>();
-    private static final Map<Key, Lock> OPERATIONS_PER_KEY = new ConcurrentHashMap<>();
+    public static final int DEFAULT_MAX_CONCURRENT_STARTS = 0;
+    public static final int DEFAULT_MAX_CONCURRENT_PULLS = 4;
+    public static final int DEFAULT_MAX_CONCURRENT_STARTS_PER_IMAGE = 0;
+
+    private static final ContainerRegistry REGISTRY = new ContainerRegistry();
+    private static final Map<DockerImageName, Integer> STARTING = new ConcurrentHashMap<>();
+    private static final Map<Key, CompletableFuture<GenericContainer<?>>> STARTS_IN_FLIGHT = new ConcurrentHashMap<>();
     private static final Logger LOGGER = LoggerFactory.getLogger(TestContainers.class);
     private static final Map<String, Network> NETWORKS_BY_KEY = new ConcurrentHashMap<>();
+    private static final ExecutorService BACKGROUND_EXECUTOR = Executors.newCachedThreadPool(daemonThreadFactory("test-resources-background-"));
+    private static final ContainerPool POOL = new ContainerPool(BACKGROUND_EXECUTOR);
+    private static final AtomicReference<ContainerJournal> JOURNAL = new AtomicReference<>();
+    private static final Map<String, String> REATTACHABLE = new ConcurrentHashMap<>();
+    private static final AtomicReference<CompletableFuture<Void>> JOURNAL_LOOKUP = new AtomicReference<>(CompletableFuture.completedFuture(null));
+    private static final int MAX_RECENT_EVICTIONS = 20;
+    private static final Deque<ContainerEviction> RECENT_EVICTIONS = new ConcurrentLinkedDeque<>();
+    private static final EvictionPolicy EVICTION_POLICY = new EvictionPolicy();
+    private static final StartFailureCache START_FAILURES = new StartFailureCache();
+    private static final ImagePuller IMAGE_PULLER = new ImagePuller(TestContainers::isImageAvailableLocally, TestContainers::pullFromRegistry);
+    private static final AtomicReference<ImageLock> IMAGE_LOCK = new AtomicReference<>(ImageLock.EMPTY);
+    private static final Set<DockerImageName> USED_IMAGES = ConcurrentHashMap.newKeySet();
+    private static final ContainerReaper REAPER = new ContainerReaper();
+    private static final CpuPartitioner CPU_PARTITIONER = new CpuPartitioner(TestContainers::dockerHostCores, TestContainers::updateCpuset);
+    private static final StartupHistory STARTUP_HISTORY = new StartupHistory();
+    private static final ScopeSharing SCOPE_SHARING = new ScopeSharing();
+    private static final LongAdder REUSE_HITS = new LongAdder();
+    private static final LongAdder REUSE_MISSES = new LongAdder();
+    private static final AtomicBoolean FIRST_CONTAINER_STARTED = new AtomicBoolean();
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final ContainerEventWatcher EVENT_WATCHER = new ContainerEventWatcher(
+        () -> DockerClientFactory.instance().client(),
+        TestContainers::evict,
+        BACKGROUND_EXECUTOR,
+        Duration.ofSeconds(5)
+    );
+    private static final AdmissionController START_ADMISSION = new AdmissionController("start", DEFAULT_MAX_CONCURRENT_STARTS, 0, AdmissionController.HostMetrics.fromOperatingSystem());
+    private static final StartBulkheads START_BULKHEADS = new StartBulkheads(DEFAULT_MAX_CONCURRENT_STARTS_PER_IMAGE);
+    private static final AdmissionController PULL_ADMISSION = new AdmissionController("pull", DEFAULT_MAX_CONCURRENT_PULLS, 0, AdmissionController.HostMetrics.fromOperatingSystem());
 
     private static final Lock MAP_LOCK = new ReentrantLock();
 
@@ -64,16 +121,6 @@ public final class TestContainers {
 
     }
 
-    private static <R> R withKey(Key key, Function<Key, R> action) {
-        var lock = OPERATIONS_PER_KEY.computeIfAbsent(key, op -> new ReentrantLock());
-        lock.lock();
-        try {
-            return action.apply(key);
-        } finally {
-            lock.unlock();
-        }
-    }
-
     private static <B> B withMapLock(String description, Supplier<B> supplier) {
         MAP_LOCK.lock();
         if (LOGGER.isTraceEnabled()) {
@@ -92,12 +139,16 @@ public final class TestContainers {
     /**
      * Returns a test container and caches it, so that if the same owner
      * and properties are requested, we can return an existing container.
+     * If the container is already started, it is returned without locking
+     * and without computing the image name. If it is being started by
+     * another request, this call waits for the same start to complete,
+     * and fails with the same exception if the start fails.
      *
      * @param <T> the container type
      * @param requestedProperty the property that this container will resolve
      * @param owner the class which requested the creation of a container
      * @param name the identifier of the container
-     * @param query the parameters used to create the container. Different parameters mean
+     * @param query the parameters which identify the container. Different parameters mean
      * different container will be created.
      * @param imageNameSupplier the function which computes the image name
      * @param creator if the container is not in cache, factory to create the container
@@ -109,63 +160,795 @@ public final class TestContainers {
                                                                    Map<String, Object> query,
                                                                    Supplier<DockerImageName> imageNameSupplier,
                                                                    Function<DockerImageName, T> creator) {
-        return withKey(Key.of(owner, name, Scope.from(query), query), key -> {
-            try {
-                T container = withMapLock("getOrCreate", () -> (T) CONTAINERS_BY_KEY.get(key));
-                var dockerImageName = imageNameSupplier.get();
+        return getOrCreate(requestedProperty, owner, name, query, imageNameSupplier, creator, Optional::empty, 0);
+    }
+
+    /**
+     * Returns a test container and caches it, like {@link #getOrCreate(String, Class, String, Map, Supplier, Function)},
+     * taking the container metadata into account: if the metadata declares a pool, a pool of spare
+     * containers is started in the background, and if a spare container is available when a new
+     * scope requests a container, it is bound to that scope immediately. The memory declared in
+     * the metadata is reserved while the container starts. If the container failed to start
+     * recently with the same configuration, this fails immediately with the same cause.
+     *
+     * @param <T> the container type
+     * @param requestedProperty the property that this container will resolve
+     * @param owner the class which requested the creation of a container
+     * @param name the identifier of the container
+     * @param query the parameters which identify the container. Different parameters mean
+     * different container will be created.
+     * @param imageNameSupplier the function which computes the image name
+     * @param creator if the container is not in cache, factory to create the container
+     * @param metadataSupplier supplies the container metadata, only called if the container isn't started yet
+     * @param configurationFingerprint the fingerprint of the test resources configuration, used to
+     * retry a start which failed recently as soon as the configuration changes
+     * @return the container
+     */
+    static <T extends GenericContainer<? extends T>> T getOrCreate(String requestedProperty,
+                                                                   Class<?> owner,
+                                                                   String name,
+                                                                   Map<String, Object> query,
+                                                                   Supplier<DockerImageName> imageNameSupplier,
+                                                                   Function<DockerImageName, T> creator,
+                                                                   Supplier<Optional<TestContainerMetadata>> metadataSupplier,
+                                                                   int configurationFingerprint) {
+        Key requested = Key.of(owner, name, Scope.from(query), query);
+        Key key = requested;
+        if (SCOPE_SHARING.isEnabled()) {
+            key = sharedKey(requested);
+        }
+        T container = REGISTRY.get(key);
+        if (container == null) {
+            // failures are recorded for the requested scope, so that they are cleared when it is closed
+            failIfRecentlyFailed(requested, name, configurationFingerprint);
+            container = startOrAwait(key, requested, name, imageNameSupplier, creator, metadataSupplier, configurationFingerprint);
+            evictUnusedContainers();
+        } else {
+            REUSE_HITS.increment();
+            REGISTRY.touch(key);
+        }
+        REGISTRY.registerProperty(requestedProperty, key);
+        return container;
+    }
+
+    /**
+     * Returns the key of the container of the nearest scope, starting from the
+     * requested scope and walking up to the root scope, which is already started
+     * or being started. If there is none, returns the key for the owner scope.
+     */
+    private static Key sharedKey(Key requested) {
+        for (Scope scope : ScopeSharing.chain(requested.scope)) {
+            Key candidate = requested.withScope(scope);
+            if (REGISTRY.get(candidate) != null || STARTS_IN_FLIGHT.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+        return requested.withScope(SCOPE_SHARING.ownerOf(requested.scope));
+    }
+
+    /**
+     * Configures the sharing of containers along the scope tree. When enabled,
+     * a request in a scope reuses a container of the same identity which belongs
+     * to that scope or to one of its ancestors, and new containers are created
+     * for the ancestor of the requested scope at the owner level. A container
+     * created this way belongs to the owner scope: closing the scopes which use
+     * it doesn't stop it, so that scopes which run one after another share it.
+     * It is stopped when the owner scope or all containers are closed, or when
+     * it is evicted because it wasn't used.
+     *
+     * @param enabled true to share containers along the scope tree
+     * @param ownerLevel the number of segments of the scopes which own new containers, 0 for the root scope
+     */
+    public static void configureScopeSharing(boolean enabled, int ownerLevel) {
+        SCOPE_SHARING.configure(enabled, ownerLevel);
+    }
+
+    /**
+     * Starts the container for the supplied key, unless a start is already
+     * in progress for that key, in which case we attach to it. The in-flight
+     * entry is removed as soon as the start settles, after the container has
+     * been registered, so that no request can miss both. A failed start is
+     * recorded for the failure key, which belongs to the requested scope.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends GenericContainer<? extends T>> T startOrAwait(Key key,
+                                                                            Key failureKey,
+                                                                            String name,
+                                                                            Supplier<DockerImageName> imageNameSupplier,
+                                                                            Function<DockerImageName, T> creator,
+                                                                            Supplier<Optional<TestContainerMetadata>> metadataSupplier,
+                                                                            int configurationFingerprint) {
+        var start = new CompletableFuture<GenericContainer<?>>();
+        var inFlight = STARTS_IN_FLIGHT.putIfAbsent(key, start);
+        if (inFlight != null) {
+            LOGGER.debug("Waiting for in-flight start of container {}", name);
+            REUSE_HITS.increment();
+            return (T) await(inFlight);
+        }
+        try {
+            T container = REGISTRY.get(key);
+            if (container != null) {
+                REUSE_HITS.increment();
+            } else {
+                REUSE_MISSES.increment();
+                Optional<TestContainerMetadata> metadata = metadataSupplier.get();
+                int poolSize = metadata.map(TestContainerMetadata::getPoolCapacity).orElse(0);
+                long memory = metadata.flatMap(TestContainerMetadata::getMemory).orElse(0L);
+                Duration startupTimeout = metadata.flatMap(TestContainerMetadata::getStartupTimeout).orElse(null);
+                Key poolKey = key.withoutScope();
+                if (poolSize > 0) {
+                    container = (T) POOL.take(poolKey);
+                    if (container != null) {
+                        LOGGER.info("Using spare test container {} for scope {}", name, key.scope);
+                    }
+                }
                 if (container == null) {
-                    notifyStartOperation(PULLING, dockerImageName);
-                    try {
-                        container = creator.apply(dockerImageName);
-                    } finally {
-                        notifyEndOperation(PULLING, dockerImageName);
+                    // containers of a previous server are reused by this start, once the journal was looked up
+                    JOURNAL_LOOKUP.get().join();
+                    container = createAndStart(key, name, memory, startupTimeout, imageNameSupplier, creator, JOURNAL.get() != null);
+                }
+                REGISTRY.register(key, container, memory);
+                if (!metadata.map(TestContainerMetadata::hasCpuLimits).orElse(false)) {
+                    CPU_PARTITIONER.add(container.getContainerId());
+                }
+                EVENT_WATCHER.start();
+                var journal = JOURNAL.get();
+                if (journal != null) {
+                    var previous = journal.record(key.hash(), container.getContainerId());
+                    if (previous != null && !previous.equals(container.getContainerId())) {
+                        // the configuration changed since the previous server started its container
+                        BACKGROUND_EXECUTOR.execute(() -> ContainerJournal.remove(DockerClientFactory.instance().client(), previous));
                     }
+                }
+                if (poolSize > 0) {
+                    POOL.replenish(poolKey, poolSize, () -> createAndStart(poolKey, name, memory, startupTimeout, imageNameSupplier, creator, false));
+                }
+            }
+            start.complete(container);
+            return container;
+        } catch (RuntimeException | Error ex) {
+            if (!Thread.currentThread().isInterrupted() && !(ex instanceof StartBulkheads.Rejected)) {
+                START_FAILURES.record(failureKey, configurationFingerprint, ex, System.currentTimeMillis());
+            }
+            start.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            STARTS_IN_FLIGHT.remove(key, start);
+        }
+    }
+
+    private static void failIfRecentlyFailed(Key key, String name, int configurationFingerprint) {
+        long now = System.currentTimeMillis();
+        var failure = START_FAILURES.find(key, configurationFingerprint, now);
+        if (failure.isPresent()) {
+            var cause = failure.get().cause();
+            long retryIn = Duration.ofMillis(failure.get().retryAt() - now).toSeconds() + 1;
+            throw new TestResourcesResolutionException("Test container " + name + " failed to start recently, it will not be started again for "
+                + retryIn + "s unless the configuration changes: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Configures how long a container which failed to start is not started again.
+     * During that window, the resolution of the properties of that container fails
+     * immediately with the original cause, unless the configuration changes or the
+     * scope of the container is closed.
+     *
+     * @param backoff the backoff window, or null or zero to retry on every resolution
+     */
+    public static void configureStartFailureBackoff(Duration backoff) {
+        START_FAILURES.configure(backoff);
+    }
+
+    /**
+     * Configures the automatic partitioning of the cores of the Docker host.
+     * When enabled, each container which doesn't declare its own {@code cpus}
+     * or {@code cpuset} is pinned to its own range of cores, and the ranges
+     * are rebalanced every time such a container is started or stopped.
+     *
+     * @param enabled true to partition the cores across containers
+     * @param reservedCores the number of cores which are never assigned to containers, for example for the test JVMs
+     */
+    public static void configureCpuPartitioning(boolean enabled, int reservedCores) {
+        CPU_PARTITIONER.configure(enabled, reservedCores);
+    }
+
+    private static int dockerHostCores() {
+        try {
+            Integer cores = DockerClientFactory.instance().getInfo().getNCPU();
+            if (cores != null && cores > 0) {
+                return cores;
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.debug("Unable to determine the number of cores of the Docker host", ex);
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static void updateCpuset(String containerId, String cpuset) {
+        DockerClientFactory.instance().client()
+            .updateContainerCmd(containerId)
+            .withCpusetCpus(cpuset)
+            .exec();
+    }
+
+    private static GenericContainer<?> await(CompletableFuture<GenericContainer<?>> start) {
+        try {
+            return start.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TestResourcesResolutionException("Interrupted while waiting for container to start", e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new TestResourcesResolutionException(cause);
+        }
+    }
+
+    private static <T extends GenericContainer<? extends T>> T createAndStart(Key key,
+                                                                              String name,
+                                                                              long memory,
+                                                                              Duration startupTimeout,
+                                                                              Supplier<DockerImageName> imageNameSupplier,
+                                                                              Function<DockerImageName, T> creator,
+                                                                              boolean reusable) {
+        T container;
+        try {
+            var requestedImageName = imageNameSupplier.get();
+            var dockerImageName = IMAGE_LOCK.get().resolve(requestedImageName);
+            if (dockerImageName != null && DockerSupport.isDockerAvailable()) {
+                USED_IMAGES.add(requestedImageName);
+                IMAGE_PULLER.pull(dockerImageName);
+            }
+            container = newContainer(key, dockerImageName, creator, reusable);
+            String reattachable = reusable ? REATTACHABLE.remove(key.hash()) : null;
+            // once started, failed containers are released by startWithinDeadline
+            boolean started = false;
+            try {
+                notifyStartOperation(STARTING, dockerImageName);
+                if (DockerSupport.isDockerAvailable()) {
                     try {
-                        notifyStartOperation(STARTING, dockerImageName);
-                        if (DockerSupport.isDockerAvailable()) {
+                        var bulkhead = enterBulkhead(dockerImageName, name);
+                        AdmissionController.Permit permit = null;
+                        try {
+                            permit = admit(START_ADMISSION, name, memory);
                             LOGGER.info("Starting test container {}", name);
-                            container.start();
-                        } else {
-                            throw new TestResourcesResolutionException("Cannot start container " + name + " as Docker doesn't seem to be available");
+                            started = true;
+                            container = startWithinDeadline(name, dockerImageName, container, startupTimeout, reattachable != null,
+                                () -> newContainer(key, dockerImageName, creator, reusable));
+                            if (reattachable != null && reattachable.equals(container.getContainerId())) {
+                                LOGGER.info("Reattached to test container {} ({})", name, reattachable);
+                            }
+                            logTimeToFirstContainer();
+                        } finally {
+                            if (permit != null) {
+                                permit.close();
+                            }
+                            bulkhead.close();
+                        }
+                    } catch (RuntimeException ex) {
+                        if (DockerSupport.isDockerClientError(ex)) {
+                            // the Docker daemon may have gone away
+                            DockerSupport.recheck();
                         }
-                    } finally {
-                        notifyEndOperation(STARTING, dockerImageName);
+                        throw ex;
                     }
-                    T finalContainer = container;
-                    withMapLock("getOrCreate", () -> CONTAINERS_BY_KEY.put(key, finalContainer));
+                } else {
+                    throw new TestResourcesResolutionException("Cannot start container " + name + " as Docker doesn't seem to be available");
+                }
+            } catch (RuntimeException ex) {
+                if (!started) {
+                    HostNetwork.release(container);
                 }
-                T finalContainer = container;
-                withMapLock("getOrCreate", () ->
-                    CONTAINERS_BY_PROPERTY.computeIfAbsent(requestedProperty,
-                            e -> new LinkedHashSet<>())
-                        .add(finalContainer)
-                );
-                return container;
-            }  catch (ContainerFetchException ex) {
-                // unwrap message for clearer error on the client side
-                var message = ex.getCause().getMessage();
-                throw new TestResourcesResolutionException(message);
+                throw ex;
+            } finally {
+                notifyEndOperation(STARTING, dockerImageName);
             }
-        });
+            return container;
+        } catch (ContainerFetchException ex) {
+            // unwrap message for clearer error on the client side
+            var message = ex.getCause().getMessage();
+            throw new TestResourcesResolutionException(message);
+        }
     }
 
-    private static void notifyStartOperation(Map<DockerImageName, AtomicInteger> operation, DockerImageName dockerImageName) {
-        withMapLock("notifyStartOperation", () -> {
-            operation.computeIfAbsent(dockerImageName, unused -> new AtomicInteger(0))
-                .incrementAndGet();
-            return null;
-        });
+    /**
+     * Creates a container. A reusable container is kept for the next server if
+     * the journal is enabled: it is started with Testcontainers reuse, so that
+     * the container kept by a previous server with the same configuration is
+     * used instead of starting a new one, once it passed the wait strategy of
+     * the container.
+     */
+    private static <T extends GenericContainer<? extends T>> T newContainer(Key key,
+                                                                            DockerImageName dockerImageName,
+                                                                            Function<DockerImageName, T> creator,
+                                                                            boolean reusable) {
+        T container = creator.apply(dockerImageName);
+        container.withLabel(ContainerJournal.KEY_LABEL, key.hash());
+        var journal = reusable ? JOURNAL.get() : null;
+        if (journal != null) {
+            container.withLabel(ContainerReaper.JOURNAL_LABEL, journal.directory());
+            container.withReuse(true);
+        }
+        if (REAPER.isEnabled()) {
+            REAPER.labels(journal != null).forEach(container::withLabel);
+        }
+        return container;
+    }
+
+    /**
+     * Starts a container, recording how long the start took. If a deadline was
+     * learned for the image of the container, and if it is shorter than the
+     * configured startup timeout of the container, if any, the start is aborted
+     * once the deadline is exceeded, then retried once on a fresh container if
+     * retries are enabled.
+     * Neither is done for a container which is expected to be reattached, since
+     * reusing a running container doesn't tell how long a start takes.
+     */
+    private static <T extends GenericContainer<? extends T>> T startWithinDeadline(String name,
+                                                                                    DockerImageName dockerImageName,
+                                                                                    T container,
+                                                                                    Duration startupTimeout,
+                                                                                    boolean reattaching,
+                                                                                    Supplier<T> freshContainer) {
+        String image = dockerImageName == null || reattaching ? null : dockerImageName.asCanonicalNameString();
+        Duration deadline = image == null ? null : STARTUP_HISTORY.deadline(image)
+            .filter(learned -> startupTimeout == null || learned.compareTo(startupTimeout) < 0)
+            .orElse(null);
+        int attempts = deadline != null && STARTUP_HISTORY.isRetryEnabled() ? 2 : 1;
+        T current = container;
+        for (int attempt = 1; ; attempt++) {
+            if (deadline != null) {
+                LOGGER.debug("Using learned startup deadline of {}s for test container {}", deadline.toSeconds(), name);
+                current.withStartupTimeout(deadline);
+            }
+            long startedAt = System.nanoTime();
+            try {
+                current.start();
+                if (image != null) {
+                    STARTUP_HISTORY.record(image, StartupHistory.START, Duration.ofNanos(System.nanoTime() - startedAt));
+                }
+                return current;
+            } catch (RuntimeException ex) {
+                if (deadline == null || Duration.ofNanos(System.nanoTime() - startedAt).compareTo(deadline) < 0) {
+                    HostNetwork.release(current);
+                    throw ex;
+                }
+                if (attempt == attempts) {
+                    HostNetwork.release(current);
+                    throw new TestResourcesResolutionException("Test container " + name + " didn't start within its learned deadline of "
+                        + deadline.toSeconds() + "s: " + ex.getMessage(), ex);
+                }
+                LOGGER.warn("Test container {} didn't start within its learned deadline of {}s, retrying on a fresh container", name, deadline.toSeconds());
+                stop(current);
+                current = freshContainer.get();
+            }
+        }
+    }
+
+    /**
+     * Records how long it takes to pull images and to start containers in the
+     * supplied directory, so that the durations recorded by previous servers
+     * using the same directory are taken into account.
+     *
+     * @param directory the settings directory
+     */
+    public static void enableStartupHistory(Path directory) {
+        STARTUP_HISTORY.persistTo(directory);
+    }
+
+    /**
+     * Configures the startup deadlines learned from the recorded start durations.
+     * The deadline of the containers of an image is the 99th percentile of the
+     * recorded start durations of that image multiplied by {@code factor}, and
+     * at least {@code minimum}. It is only used once enough starts are recorded,
+     * and if it is shorter than the configured startup timeout of the container.
+     *
+     * @param adaptive true to abort the starts which exceed their learned deadline
+     * @param factor the factor applied to the 99th percentile of the start durations
+     * @param minimum the minimum deadline
+     * @param retry true to retry an aborted start once, on a fresh container
+     */
+    public static void configureAdaptiveStartupTimeouts(boolean adaptive, double factor, Duration minimum, boolean retry) {
+        STARTUP_HISTORY.configure(adaptive, factor, minimum, retry);
+    }
+
+    /**
+     * Returns the durations recorded for the pull of images and the start of
+     * containers, by image, with the deadlines learned from them.
+     *
+     * @return the startup statistics
+     */
+    public static List<StartupStatistics> startupStatistics() {
+        return STARTUP_HISTORY.statistics();
+    }
+
+    private static void logTimeToFirstContainer() {
+        if (FIRST_CONTAINER_STARTED.compareAndSet(false, true)) {
+            ProcessHandle.current().info().startInstant().ifPresent(vmStart ->
+                LOGGER.info("First test container started {}ms after the server was launched ({})",
+                    Duration.between(vmStart, Instant.now()).toMillis(),
+                    REAPER.isEnabled() && REAPER.isRyukDisabled() ? "built-in reaper" : "Ryuk"));
+        }
+    }
+
+    private static AdmissionController.Permit admit(AdmissionController admission, String description, long memory) {
+        try {
+            return admission.acquire(description, memory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TestResourcesResolutionException("Interrupted while waiting to start " + description, e);
+        }
+    }
+
+    private static AdmissionController.Permit enterBulkhead(DockerImageName dockerImageName, String name) {
+        try {
+            return START_BULKHEADS.acquire(dockerImageName == null ? name : dockerImageName.getUnversionedPart(), name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TestResourcesResolutionException("Interrupted while waiting to start " + name, e);
+        }
+    }
+
+    /**
+     * Configures the bulkheads which limit the concurrent starts of the containers
+     * of the same image, so that a burst of slow starts of one image doesn't delay
+     * the start of containers of other images. A start which cannot enter the
+     * bulkhead of its image, because its queue is full or because the queue timeout
+     * elapsed, fails immediately, without preventing the next resolution to start
+     * the container. Containers which are already started are never affected.
+     *
+     * @param maxConcurrentStartsPerImage the maximum number of containers of the same image started concurrently, or 0 for no limit
+     * @param maxQueuedStartsPerImage the maximum number of starts of the same image waiting for the bulkhead, or 0 for no limit
+     * @param queueTimeout the maximum time a start waits for the bulkhead, or null to wait until it is admitted
+     */
+    public static void configureBulkheads(int maxConcurrentStartsPerImage, int maxQueuedStartsPerImage, Duration queueTimeout) {
+        START_BULKHEADS.configure(maxConcurrentStartsPerImage, maxQueuedStartsPerImage, queueTimeout);
+    }
+
+    /**
+     * Returns the saturation of the bulkhead of each image which was started.
+     *
+     * @return the bulkhead statistics, by image
+     */
+    public static List<BulkheadStats> bulkheads() {
+        return START_BULKHEADS.stats();
+    }
+
+    /**
+     * Configures the admission control of container starts and image pulls.
+     * Unless a limit is configured, the number of containers started at the same
+     * time is only limited when the host CPU is saturated or when the memory declared
+     * by the containers being started doesn't fit in the budget or in the free memory
+     * of the host. Requests which cannot be admitted yet are queued in order,
+     * and reported by {@link #startingContainers()}.
+     *
+     * @param maxConcurrentStarts the maximum number of containers started concurrently, or 0 for no limit
+     * @param maxConcurrentPulls the maximum number of images pulled concurrently
+     * @param memoryBudget the maximum memory of the containers being started concurrently, for example "4g", or null for no limit
+     */
+    public static void configureAdmission(int maxConcurrentStarts, int maxConcurrentPulls, String memoryBudget) {
+        long budget = 0;
+        if (memoryBudget != null) {
+            Long parsed = MemoryUnitParser.parse(memoryBudget);
+            if (parsed == null) {
+                throw new IllegalArgumentException("Invalid memory budget: " + memoryBudget);
+            }
+            budget = parsed;
+        }
+        START_ADMISSION.configure(maxConcurrentStarts, budget);
+        PULL_ADMISSION.configure(maxConcurrentPulls, 0);
+    }
+
+    /**
+     * Returns the maximum number of containers started concurrently,
+     * which is {@link Integer#MAX_VALUE} if no limit is configured.
+     */
+    static int maxConcurrentStarts() {
+        int maxConcurrent = START_ADMISSION.maxConcurrent();
+        return maxConcurrent > 0 ? maxConcurrent : Integer.MAX_VALUE;
+    }
+
+    private static void notifyStartOperation(Map<DockerImageName, Integer> operation, DockerImageName dockerImageName) {
+        if (dockerImageName != null) {
+            operation.merge(dockerImageName, 1, Integer::sum);
+        }
+    }
+
+    private static void notifyEndOperation(Map<DockerImageName, Integer> operation, DockerImageName dockerImageName) {
+        if (dockerImageName != null) {
+            operation.computeIfPresent(dockerImageName, (unused, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Pulls the supplied images in the background, with at most
+     * {@code parallelism} concurrent pulls. Images being pulled are
+     * reported by {@link #pullingContainers()}. A failed pull is logged
+     * but doesn't fail the returned future, since the image will be
+     * pulled again when a container actually needs it.
+     *
+     * @param images the images to pull
+     * @param parallelism the maximum number of concurrent pulls
+     * @return a future completed when all pulls are done
+     */
+    public static CompletableFuture<Void> prefetch(Collection<DockerImageName> images, int parallelism) {
+        Set<DockerImageName> distinct = new LinkedHashSet<>(images);
+        if (distinct.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, distinct.size())),
+            daemonThreadFactory("test-resources-prefetch-"));
+        CompletableFuture<?>[] pulls = distinct.stream()
+            .map(image -> CompletableFuture.runAsync(() -> pull(image), executor))
+            .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(pulls).whenComplete((unused, error) -> executor.shutdown());
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        var threadCount = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static void pull(DockerImageName image) {
+        if (!DockerSupport.isDockerAvailable()) {
+            return;
+        }
+        try {
+            var permit = admit(PULL_ADMISSION, image.asCanonicalNameString(), 0);
+            try {
+                LOGGER.debug("Prefetching image {}", image);
+                USED_IMAGES.add(image);
+                IMAGE_PULLER.pull(IMAGE_LOCK.get().resolve(image));
+            } finally {
+                permit.close();
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Unable to prefetch image {}: {}", image, ex.getMessage());
+        }
+    }
+
+    private static boolean isImageAvailableLocally(DockerImageName image) {
+        try {
+            DockerClientFactory.instance().client().inspectImageCmd(image.asCanonicalNameString()).exec();
+            return true;
+        } catch (NotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static void pullFromRegistry(DockerImageName image) {
+        long startedAt = System.nanoTime();
+        new RemoteDockerImage(image).withImagePullPolicy(PullPolicy.alwaysPull()).get();
+        STARTUP_HISTORY.record(image.asCanonicalNameString(), StartupHistory.PULL, Duration.ofNanos(System.nanoTime() - startedAt));
     }
 
-    private static void notifyEndOperation(Map<DockerImageName, AtomicInteger> operation, DockerImageName dockerImageName) {
-        withMapLock("notifyEndOperation", () -> {
-            var remaining = operation.get(dockerImageName)
-                .decrementAndGet();
-            if (remaining == 0) {
-                operation.remove(dockerImageName);
+    /**
+     * Configures when images are pulled before containers are created. Concurrent
+     * requests for the same image always share a single pull.
+     *
+     * @param mode the pull mode
+     */
+    public static void configureImagePullMode(ImagePullMode mode) {
+        IMAGE_PULLER.configure(mode);
+    }
+
+    /**
+     * Configures the image lockfile, generated by the build tools. Images which
+     * are recorded in the lockfile are replaced with the digest they are locked to.
+     *
+     * @param lockfile the lockfile, or null to use the configured images as is
+     */
+    public static void configureImageLockfile(Path lockfile) {
+        IMAGE_LOCK.set(lockfile == null ? ImageLock.EMPTY : ImageLock.read(lockfile));
+    }
+
+    /**
+     * Returns the digests of the images which were used by this server, either to
+     * start containers or to prefetch them, by image as configured. Images which
+     * don't have a digest, for example images built locally, are not included.
+     *
+     * @return the locked reference of each image, sorted by image
+     */
+    public static Map<String, String> lockImages() {
+        Map<String, String> locked = new TreeMap<>();
+        if (!DockerSupport.isDockerAvailable()) {
+            return locked;
+        }
+        var client = DockerClientFactory.instance().client();
+        for (DockerImageName image : USED_IMAGES) {
+            var resolved = IMAGE_LOCK.get().resolve(image);
+            try {
+                var repoDigests = client.inspectImageCmd(resolved.asCanonicalNameString()).exec().getRepoDigests();
+                ImageLock.lockedReference(image, repoDigests)
+                    .ifPresent(reference -> locked.put(image.asCanonicalNameString(), reference));
+            } catch (NotFoundException ex) {
+                LOGGER.debug("Image {} is not available locally, it cannot be locked", resolved);
             }
-            return null;
+        }
+        return locked;
+    }
+
+    /**
+     * Enables the container journal in the supplied directory. Containers
+     * which are started are recorded in the journal, so that a server which
+     * is restarted with the same directory can reattach to them instead of
+     * starting new ones, provided they are still running and healthy.
+     * The running containers are looked up in the background, and
+     * containers are not started before the lookup is complete.
+     *
+     * @param directory the directory of the journal
+     */
+    public static void enableJournal(Path directory) {
+        enableJournal(directory, ContainerJournal.DEFAULT_TTL);
+    }
+
+    /**
+     * Enables the container journal in the supplied directory. Containers
+     * kept running when the VM exits are only reattached by a server started
+     * within the time to live of the journal. After that, they are removed by
+     * the next server started on the same host, whatever its journal.
+     * Reattaching uses Testcontainers reuse, so the journal is only enabled if
+     * reuse is enabled, for example with the <code>TESTCONTAINERS_REUSE_ENABLE</code>
+     * environment variable which the build tools set for the server process.
+     *
+     * @param directory the directory of the journal
+     * @param ttl the time during which containers are kept for the next server
+     */
+    public static void enableJournal(Path directory, Duration ttl) {
+        if (!TestcontainersConfiguration.getInstance().environmentSupportsReuse()) {
+            LOGGER.info("Testcontainers reuse is disabled, test containers will not be kept for the next server");
+            return;
+        }
+        useJournal(new ContainerJournal(directory, ttl));
+    }
+
+    static void useJournal(ContainerJournal journal) {
+        REAPER.setJournalTtl(journal.ttl());
+        JOURNAL.set(journal);
+        JOURNAL_LOOKUP.set(CompletableFuture.runAsync(() -> lookUpReattachableContainers(journal), BACKGROUND_EXECUTOR));
+    }
+
+    /**
+     * Writes the container journal again, so that the containers of this
+     * server are not removed by other servers while it runs, even if it
+     * doesn't start containers for longer than the time to live of the
+     * journal.
+     */
+    public static void touchJournal() {
+        var journal = JOURNAL.get();
+        if (journal != null) {
+            journal.touch();
+        }
+    }
+
+    /**
+     * Disables the container journal, which is only used by tests.
+     */
+    static void disableJournal() {
+        JOURNAL.set(null);
+        REATTACHABLE.clear();
+    }
+
+    private static void lookUpReattachableContainers(ContainerJournal journal) {
+        if (!DockerSupport.isDockerAvailable()) {
+            return;
+        }
+        try {
+            Map<String, String> reattachable = journal.findReattachableContainers(DockerClientFactory.instance().client());
+            REATTACHABLE.putAll(reattachable);
+            if (!reattachable.isEmpty()) {
+                LOGGER.info("Found {} running test containers which can be reattached", reattachable.size());
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Unable to look up containers from the journal: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Lets the server clean up the containers it starts, instead of the
+     * Testcontainers Ryuk container, which is disabled by the build tools
+     * with the <code>TESTCONTAINERS_RYUK_DISABLED</code> environment variable,
+     * saving the pull and the start of the Ryuk container before the first
+     * container. Containers are labeled with the session of the server, and
+     * are released when the VM exits.
+     *
+     * @see #shutdownAsync()
+     */
+    public static void enableReaper() {
+        if (REAPER.isEnabled()) {
+            return;
+        }
+        REAPER.enable();
+        if (REAPER.isRyukDisabled()) {
+            LOGGER.debug("Ryuk is disabled, containers are cleaned up by the test resources server");
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                shutdownAsync().get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                LOGGER.warn("Unable to stop all test containers: {}", e.getMessage());
+            }
+        }, "test-resources-reaper"));
+    }
+
+    /**
+     * Releases all containers when the VM exits. If the container journal is
+     * enabled, the containers are detached from this server but kept running,
+     * and their journal entries are kept, so that the next server using the same
+     * journal within its time to live reattaches them instead of starting new
+     * ones. Spare containers are always stopped. Without a journal, this is the
+     * same as {@link #closeAllAsync()}.
+     *
+     * @return a future completed when the containers which are not kept are stopped, with true if at least one container was released
+     */
+    public static CompletableFuture<Boolean> shutdownAsync() {
+        var journal = JOURNAL.get();
+        if (journal == null) {
+            return closeAllAsync();
+        }
+        List<GenericContainer<?>> spares = new ArrayList<>();
+        boolean released = withMapLock("shutdown", () -> {
+            spares.addAll(POOL.drain());
+            START_FAILURES.removeIf(key -> true);
+            // journal entries are kept, so that the next server reattaches these containers
+            var detached = REGISTRY.removeIf(key -> true);
+            if (!detached.isEmpty()) {
+                journal.touch();
+                LOGGER.info("Keeping {} test containers running, so that they can be reattached by the next server", detached.size());
+            }
+            return !detached.isEmpty();
         });
+        return stopAll(spares).thenApply(unused -> released);
+    }
+
+    /**
+     * Removes, in the background, the containers left behind by servers which
+     * didn't shut down cleanly, for example because they were killed. A container
+     * is left behind if the process or the port of the server which started it
+     * is gone. Containers which can be reattached from the journal are kept, and
+     * so are the containers of other journals, within their time to live.
+     *
+     * @param serverPort the port of this server, recorded on the containers it starts
+     * @return a future completed with the number of removed containers
+     */
+    public static CompletableFuture<Integer> reapOrphans(int serverPort) {
+        REAPER.setPort(serverPort);
+        if (!REAPER.isEnabled()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return JOURNAL_LOOKUP.get().thenApplyAsync(unused -> {
+            if (!DockerSupport.isDockerAvailable()) {
+                return 0;
+            }
+            try {
+                var journal = JOURNAL.get();
+                Set<String> kept = new HashSet<>(REATTACHABLE.values());
+                listAll().values().forEach(containers -> containers.forEach(c -> kept.add(c.getContainerId())));
+                return REAPER.sweep(DockerClientFactory.instance().client(), journal == null ? null : journal.directory(), kept);
+            } catch (Exception ex) {
+                LOGGER.warn("Unable to look up containers left behind by previous servers: {}", ex.getMessage());
+                return 0;
+            }
+        }, BACKGROUND_EXECUTOR);
+    }
+
+    private static void forget(Set<Key> keys) {
+        var journal = JOURNAL.get();
+        if (journal != null && !keys.isEmpty()) {
+            journal.forget(keys.stream().map(Key::hash).collect(Collectors.toSet()));
+        }
     }
 
     /**
@@ -174,9 +957,9 @@ public final class TestContainers {
      * @return the list of containers
      */
     public static List<String> startingContainers() {
-        return withMapLock("containersInProgress", () ->
-            STARTING.keySet().stream().map(DockerImageName::toString).sorted().toList()
-        );
+        List<String> starting = new ArrayList<>(STARTING.keySet().stream().map(DockerImageName::toString).sorted().toList());
+        starting.addAll(START_ADMISSION.queued());
+        return starting;
     }
 
     /**
@@ -185,9 +968,25 @@ public final class TestContainers {
      * @return the list of containers
      */
     public static List<String> pullingContainers() {
-        return withMapLock("containersInProgress", () ->
-            PULLING.keySet().stream().map(DockerImageName::toString).sorted().toList()
-        );
+        List<String> pulling = new ArrayList<>(IMAGE_PULLER.pulling().stream().map(DockerImageName::toString).sorted().toList());
+        pulling.addAll(PULL_ADMISSION.queued());
+        return pulling;
+    }
+
+    /**
+     * Returns how often container requests were served by a container which
+     * was already running or being started, since the server was started.
+     * Requests for the same container only share it if the properties which
+     * identify the container are the same.
+     *
+     * @return the reuse statistics
+     */
+    public static ContainerReuseStats reuseStats() {
+        return new ContainerReuseStats(REUSE_HITS.sum(), REUSE_MISSES.sum());
+    }
+
+    static int spareContainerCount() {
+        return POOL.size();
     }
 
     /**
@@ -205,98 +1004,230 @@ public final class TestContainers {
     }
 
     private static Map<Scope, List<GenericContainer<?>>> listByScope(Scope scope) {
-        return withMapLock("listByScope", () -> CONTAINERS_BY_KEY.entrySet()
-            .stream()
-            .filter(entry -> scope.includes(entry.getKey().scope))
-            .collect(Collectors.groupingBy(
-                entry -> entry.getKey().scope,
-                Collectors.mapping(
-                    Map.Entry::getValue,
-                    Collectors.toList()
-                )
-            ))
-        );
-    }
-
-    @SuppressWarnings("java:S6204") // toList() breaks the return type
-    private static List<GenericContainer<?>> filterByScope(Scope scope,
-                                                           Set<GenericContainer<?>> containers) {
-        if (containers.isEmpty()) {
-            return Collections.emptyList();
-        }
-        return withMapLock("filterByScope", () -> CONTAINERS_BY_KEY.entrySet()
-            .stream()
-            .filter(entry -> containers.contains(entry.getValue()) &&
-                             scope.includes(entry.getKey().scope))
-            .map(Map.Entry::getValue)
-            .collect(Collectors.toList())
-        );
+        return REGISTRY.listByScope(scope);
     }
 
     public static Network network(String name) {
-        return withMapLock("network",
-            () -> NETWORKS_BY_KEY.computeIfAbsent(name, k -> Network.newNetwork()));
+        return NETWORKS_BY_KEY.computeIfAbsent(name, k -> Network.newNetwork());
     }
 
+    /**
+     * Closes all containers, including spare containers, and networks,
+     * and waits for them to be stopped.
+     *
+     * @return true if at least one container was closed
+     */
     public static boolean closeAll() {
-        return withMapLock("closeAll", () -> {
-            boolean closed = false;
-            for (GenericContainer<?> container : CONTAINERS_BY_KEY.values()) {
-                container.close();
-                closed = true;
-            }
-            CONTAINERS_BY_KEY.clear();
-            CONTAINERS_BY_PROPERTY.clear();
-            NETWORKS_BY_KEY.values().forEach(Network::close);
+        return closeAllAsync().join();
+    }
+
+    /**
+     * Closes all containers, including spare containers, and networks,
+     * and forgets the containers which failed to start. Containers are removed from the registry immediately, so that they
+     * cannot be returned anymore, then they are stopped in parallel in the
+     * background. Networks are closed once all containers are stopped.
+     *
+     * @return a future completed when all containers are stopped, with true if at least one container was closed
+     */
+    public static CompletableFuture<Boolean> closeAllAsync() {
+        List<GenericContainer<?>> containers = new ArrayList<>();
+        List<Network> networks = new ArrayList<>();
+        boolean closed = withMapLock("closeAll", () -> {
+            containers.addAll(POOL.drain());
+            START_FAILURES.removeIf(key -> true);
+            var removed = REGISTRY.removeIf(key -> true);
+            containers.addAll(removed.values());
+            forget(removed.keySet());
+            networks.addAll(NETWORKS_BY_KEY.values());
             NETWORKS_BY_KEY.clear();
+            return !removed.isEmpty();
+        });
+        return stopAll(containers).thenApply(unused -> {
+            networks.forEach(Network::close);
             return closed;
         });
     }
 
+    private static CompletableFuture<Void> stopAll(Collection<GenericContainer<?>> containers) {
+        CPU_PARTITIONER.remove(containers.stream().map(GenericContainer::getContainerId).toList());
+        return CompletableFuture.allOf(containers.stream()
+            .map(container -> CompletableFuture.runAsync(() -> stop(container), BACKGROUND_EXECUTOR))
+            .toArray(CompletableFuture[]::new));
+    }
+
+    private static void stop(GenericContainer<?> container) {
+        LOGGER.debug("Stopping container {}", container.getContainerId());
+        try {
+            container.close();
+        } catch (Exception ex) {
+            LOGGER.warn("Unable to stop container {}: {}", container.getContainerId(), ex.getMessage());
+        } finally {
+            HostNetwork.release(container);
+        }
+    }
+
+    /**
+     * Removes the container with the supplied id from the registry, or from
+     * the pool of spare containers, because it died unexpectedly. The next
+     * resolution of a property which was provided by this container starts
+     * a new container.
+     *
+     * @param containerId the container id
+     * @param reason the reason of the eviction
+     * @return true if a container was evicted
+     */
+    static boolean evict(String containerId, String reason) {
+        Map<Key, GenericContainer<?>> removed = withMapLock("evict", () -> {
+            var detached = REGISTRY.removeIf(key -> {
+                GenericContainer<?> container = REGISTRY.get(key);
+                return container != null && containerId.equals(container.getContainerId());
+            });
+            forget(detached.keySet());
+            return detached;
+        });
+        List<GenericContainer<?>> evicted = new ArrayList<>(removed.values());
+        GenericContainer<?> spare = POOL.remove(containerId);
+        if (spare != null) {
+            evicted.add(spare);
+        }
+        for (GenericContainer<?> container : evicted) {
+            LOGGER.warn("Test container {} ({}) is not running anymore ({}), it will be started again on next use",
+                container.getContainerId(), container.getDockerImageName(), reason);
+        }
+        removed.forEach((key, container) -> recordEviction(key.scope.toString(), container, reason));
+        if (spare != null) {
+            recordEviction(null, spare, reason);
+        }
+        // cleans up the container, which may still exist even if it is not running anymore
+        stopAll(evicted);
+        return !evicted.isEmpty();
+    }
+
+    /**
+     * Configures the eviction of the containers of the root scope. Containers
+     * which haven't been used for longer than the idle timeout are stopped. If
+     * the total memory declared by the running containers exceeds the budget,
+     * the least recently used containers are stopped until it fits. Stopped
+     * containers are started again the next time they are needed.
+     *
+     * @param idleTimeout the time after which an unused container is stopped, or null to keep containers running
+     * @param memoryBudget the maximum memory of the running containers, for example "8g", or null for no limit
+     */
+    public static void configureEviction(Duration idleTimeout, String memoryBudget) {
+        long budget = 0;
+        if (memoryBudget != null) {
+            Long parsed = MemoryUnitParser.parse(memoryBudget);
+            if (parsed == null) {
+                throw new IllegalArgumentException("Invalid memory budget: " + memoryBudget);
+            }
+            budget = parsed;
+        }
+        EVICTION_POLICY.configure(idleTimeout, budget);
+    }
+
+    /**
+     * Stops the containers of the root scope which are selected by the eviction
+     * policy configured with {@link #configureEviction(Duration, String)}.
+     *
+     * @return the number of stopped containers
+     */
+    public static int evictUnusedContainers() {
+        if (!EVICTION_POLICY.isEnabled()) {
+            return 0;
+        }
+        Map<Key, String> reasons = new HashMap<>();
+        Map<Key, GenericContainer<?>> removed = withMapLock("evictUnused", () -> {
+            reasons.putAll(EVICTION_POLICY.select(REGISTRY.usages(key -> Scope.ROOT.equals(key.scope)), System.currentTimeMillis()));
+            var detached = REGISTRY.removeIf(reasons::containsKey);
+            forget(detached.keySet());
+            return detached;
+        });
+        removed.forEach((key, container) -> {
+            String reason = reasons.get(key);
+            LOGGER.info("Stopping test container {} ({}) because of the {} policy, it will be started again on next use",
+                key.name, container.getDockerImageName(), reason);
+            recordEviction(key.scope.toString(), container, reason);
+        });
+        stopAll(new ArrayList<>(removed.values()));
+        return removed.size();
+    }
+
+    private static void recordEviction(String scope, GenericContainer<?> container, String reason) {
+        RECENT_EVICTIONS.addFirst(new ContainerEviction(scope, container.getContainerId(), container.getDockerImageName(), reason, Instant.now()));
+        while (RECENT_EVICTIONS.size() > MAX_RECENT_EVICTIONS) {
+            RECENT_EVICTIONS.pollLast();
+        }
+    }
+
+    /**
+     * Returns the containers which were recently evicted, because they
+     * died unexpectedly or because of the eviction policy, most recent first.
+     *
+     * @return the recent evictions
+     */
+    public static List<ContainerEviction> recentEvictions() {
+        return List.copyOf(RECENT_EVICTIONS);
+    }
+
     public static Map<String, Network> getNetworks() {
         return Collections.unmodifiableMap(NETWORKS_BY_KEY);
     }
 
+    /**
+     * Closes the containers of a scope and of its nested scopes,
+     * and waits for them to be stopped.
+     *
+     * @param id the scope id
+     * @return true if at least one container was closed
+     */
     public static boolean closeScope(String id) {
+        return closeScopeAsync(id).join();
+    }
+
+    /**
+     * Closes the containers of a scope and of its nested scopes, and forgets
+     * the containers of these scopes which failed to start. Containers
+     * are removed from the registry immediately, then they are stopped in
+     * parallel in the background, without blocking other requests.
+     *
+     * @param id the scope id
+     * @return a future completed when all containers are stopped, with true if at least one container was closed
+     */
+    public static CompletableFuture<Boolean> closeScopeAsync(String id) {
         Scope scope = Scope.of(id);
-        return withMapLock("closeScope", () -> {
-            boolean closed = false;
-            Iterator<Map.Entry<Key, GenericContainer<?>>> iterator =
-                CONTAINERS_BY_KEY.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Map.Entry<Key, GenericContainer<?>> entry = iterator.next();
-                var existingScope = entry.getKey().scope;
-                if (scope.includes(existingScope)) {
-                    iterator.remove();
-                    GenericContainer<?> container = entry.getValue();
-                    LOGGER.debug("Stopping container {}", container.getContainerId());
-                    container.close();
-                    closed = true;
-                    for (Set<GenericContainer<?>> value : CONTAINERS_BY_PROPERTY.values()) {
-                        value.remove(container);
-                    }
-                }
-            }
-            return closed;
+        START_FAILURES.removeIf(key -> scope.includes(key.scope));
+        var removed = withMapLock("closeScope", () -> {
+            var detached = REGISTRY.removeIf(key -> scope.includes(key.scope));
+            forget(detached.keySet());
+            return detached;
         });
+        return stopAll(new ArrayList<>(removed.values())).thenApply(unused -> !removed.isEmpty());
     }
 
     public static List<GenericContainer<?>> findByRequestedProperty(Scope scope, String property) {
-        return withMapLock("findByRequestedProperty", () -> {
-            Set<GenericContainer<?>> byProperty =
-                CONTAINERS_BY_PROPERTY.getOrDefault(property, Collections.emptySet());
-            LOGGER.debug("Found {} containers for property {}. All properties: {}",
-                byProperty.size(), property, CONTAINERS_BY_PROPERTY.keySet());
-            return filterByScope(scope, byProperty);
-        });
+        List<GenericContainer<?>> containers = REGISTRY.findByRequestedProperty(scope, property);
+        if (containers.isEmpty() && SCOPE_SHARING.isEnabled()) {
+            // the container may be shared with an ancestor scope
+            for (Scope ancestor : ScopeSharing.chain(scope)) {
+                containers = REGISTRY.findByRequestedPropertyInScope(ancestor, property);
+                if (!containers.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        LOGGER.debug("Found {} containers for property {}. All properties: {}",
+            containers.size(), property, REGISTRY.requestedProperties());
+        return containers;
     }
 
-    private static final class Key {
+    static final class Key {
+        final Scope scope;
         private final Class<?> type;
         private final String name;
         private final Map<String, String> properties;
         private final int hashCode;
-        private final Scope scope;
+        private String hash;
+        private Key withoutScope;
 
         private Key(Class<?> type, String name, Scope scope, Map<String, String> properties) {
             this.type = type;
@@ -337,6 +1268,67 @@ public final class TestContainers {
             return hashCode;
         }
 
+        @Override
+        public String toString() {
+            return type.getSimpleName() + "/" + name + (scope.equals(Scope.ROOT) ? "" : "@" + scope);
+        }
+
+        /**
+         * Returns a hash of this key which is stable across server
+         * restarts, used to label containers and to reattach to them.
+         *
+         * @return the hash of this key
+         */
+        String hash() {
+            if (hash == null) {
+                String canonical = type.getName() + "|" + name + "|" + scope + "|" + new TreeMap<>(properties);
+                try {
+                    byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+                    hash = HexFormat.of().formatHex(digest);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return hash;
+        }
+
+        /**
+         * Returns the same key, but for the root scope, which is used
+         * to identify containers which can be bound to any scope.
+         *
+         * @return a key without scope
+         */
+        Key withoutScope() {
+            if (withoutScope == null) {
+                if (scope.equals(Scope.ROOT) && !properties.containsKey(Scope.PROPERTY_KEY)) {
+                    withoutScope = this;
+                } else {
+                    Map<String, String> unscoped = new HashMap<>(properties);
+                    unscoped.remove(Scope.PROPERTY_KEY);
+                    withoutScope = new Key(type, name, Scope.ROOT, Collections.unmodifiableMap(unscoped));
+                }
+            }
+            return withoutScope;
+        }
+
+        /**
+         * Returns the same key, but for the supplied scope.
+         *
+         * @param other the scope
+         * @return a key for the supplied scope
+         */
+        Key withScope(Scope other) {
+            if (other.equals(scope)) {
+                return this;
+            }
+            if (other.equals(Scope.ROOT)) {
+                return withoutScope();
+            }
+            Map<String, String> scoped = new HashMap<>(properties);
+            scoped.put(Scope.PROPERTY_KEY, other.toString());
+            return new Key(type, name, other, Collections.unmodifiableMap(scoped));
+        }
+
         static <T> Key of(Class<T> type, String name, Scope scope, Map<String, Object> properties) {
             if (properties.isEmpty()) {
                 return new Key(type, name, scope, Collections.emptyMap());
@@ -15,6 +15,7 @@
  */
 package io.micronaut.testresources.testcontainers;
 
+import io.micronaut.context.annotation.ConfigurationProperties;
 import io.micronaut.context.annotation.EachProperty;
 
 import java.util.List;
@@ -45,6 +46,8 @@ final class TestContainersConfiguration {
     private String memory;
     private String swapMemory;
     private String sharedMemory;
+    private Double cpus;
+    private String cpuset;
     private String network;
     private List<String> networkAliases;
     private String networkMode;
@@ -318,6 +321,40 @@ final class TestContainersConfiguration {
         this.sharedMemory = sharedMemory;
     }
 
+    /**
+     * The number of CPUs the container can use.
+     * @return the number of CPUs
+     */
+    public Double getCpus() {
+        return cpus;
+    }
+
+    /**
+     * The number of CPUs the container can use, which
+     * can be fractional (e.g 1.5).
+     * @param cpus the number of CPUs
+     */
+    public void setCpus(Double cpus) {
+        this.cpus = cpus;
+    }
+
+    /**
+     * The CPUs the container is allowed to run on.
+     * @return the CPUs the container is allowed to run on
+     */
+    public String getCpuset() {
+        return cpuset;
+    }
+
+    /**
+     * The CPUs the container is allowed to run on, as a list
+     * or a range of CPU indexes (e.g 0-3 or 0,2).
+     * @param cpuset the CPUs the container is allowed to run on
+     */
+    public void setCpuset(String cpuset) {
+        this.cpuset = cpuset;
+    }
+
     /**
      * The network this container will belong to.
      * @return the network.
@@ -383,4 +420,50 @@ final class TestContainersConfiguration {
     public void setDependencies(Set<String> dependencies) {
         this.dependencies = dependencies;
     }
+
+    /**
+     * Configuration of the pool of spare containers which are kept
+     * started in the background, so that a new test resources scope
+     * doesn't have to wait for a container to start.
+     */
+    @ConfigurationProperties("pool")
+    static final class Pool {
+        private int size;
+        private String maxMemory;
+
+        /**
+         * The number of spare containers to keep started.
+         * @return the number of spare containers
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * The number of spare containers to keep started. Defaults to 0,
+         * which disables the pool.
+         * @param size the number of spare containers
+         */
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        /**
+         * The maximum memory which can be used by spare containers.
+         * @return the maximum memory
+         */
+        public String getMaxMemory() {
+            return maxMemory;
+        }
+
+        /**
+         * The maximum memory which can be used by spare containers,
+         * for example "2g". It is only taken into account if the
+         * memory of the container is configured.
+         * @param maxMemory the maximum memory
+         */
+        public void setMaxMemory(String maxMemory) {
+            this.maxMemory = maxMemory;
+        }
+    }
 }
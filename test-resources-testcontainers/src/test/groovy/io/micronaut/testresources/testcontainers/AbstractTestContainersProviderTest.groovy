@@ -1,6 +1,8 @@
 package io.micronaut.testresources.testcontainers
 
+import io.micronaut.testresources.core.Scope
 import org.testcontainers.containers.GenericContainer
+import org.testcontainers.utility.DockerImageName
 import spock.lang.Specification
 
 class AbstractTestContainersProviderTest extends Specification {
@@ -18,4 +20,52 @@ class AbstractTestContainersProviderTest extends Specification {
         1 * provider.resolveWithoutContainer('foo', [request: 'value'], ['test-resources.foo': 'config']) >> Optional.empty()
         1 * provider.shouldAnswer('foo', [request: 'value'], ['test-resources.foo': 'config']) >> true
     }
+
+    def "only the properties declared by the provider identify the container, in addition to the scope"() {
+        def provider = new DatasourceProvider()
+
+        expect:
+        provider.identityOf('datasources.default.url', ['datasources.default.dialect': 'postgres']) == [datasource: 'default']
+        provider.identityOf('datasources.default.url', ['datasources.default.dialect': 'postgres', (Scope.PROPERTY_KEY): 'child']) == [datasource: 'default', (Scope.PROPERTY_KEY): 'child']
+    }
+
+    def "all request properties identify the container by default"() {
+        def provider = Spy(AbstractTestContainersProvider)
+        def properties = [request: 'value', (Scope.PROPERTY_KEY): 'child']
+
+        expect:
+        provider.identityOf('foo', properties).is(properties)
+    }
+
+    private static class DatasourceProvider extends AbstractTestContainersProvider<GenericContainer<?>> {
+        @Override
+        protected String getSimpleName() {
+            "test"
+        }
+
+        @Override
+        protected String getDefaultImageName() {
+            "my-image"
+        }
+
+        @Override
+        protected GenericContainer<?> createContainer(DockerImageName imageName, Map<String, Object> requestedProperties, Map<String, Object> testResourcesConfig) {
+            throw new UnsupportedOperationException()
+        }
+
+        @Override
+        protected Map<String, Object> containerIdentity(String propertyName, Map<String, Object> requestedProperties) {
+            [datasource: propertyName.split("\\.")[1]]
+        }
+
+        @Override
+        protected Optional<String> resolveProperty(String propertyName, GenericContainer<?> container) {
+            Optional.empty()
+        }
+
+        @Override
+        List<String> getResolvableProperties(Map<String, Collection<String>> propertyEntries, Map<String, Object> testResourcesConfig) {
+            []
+        }
+    }
 }
@@ -0,0 +1,163 @@
+package io.micronaut.testresources.testcontainers
+
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+class AdmissionControllerTest extends Specification {
+    private final HostMetricsStub metrics = new HostMetricsStub()
+    private final PollingConditions conditions = new PollingConditions(timeout: 5)
+    private final ExecutorService executor = Executors.newCachedThreadPool()
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "admits operations up to the concurrency limit and queues the others in order"() {
+        def admission = new AdmissionController("start", 1, 0, metrics)
+        def admitted = new CopyOnWriteArrayList<String>()
+
+        when:
+        def first = admission.acquire("a", 0)
+        def second = acquireAsync(admission, "b", 0, admitted)
+        conditions.eventually {
+            assert admission.queued() == ["b (queued, position 1)"]
+        }
+        def third = acquireAsync(admission, "c", 0, admitted)
+
+        then:
+        conditions.eventually {
+            assert admission.queued() == ["b (queued, position 1)", "c (queued, position 2)"]
+        }
+        admission.running() == 1
+
+        when:
+        first.close()
+
+        then:
+        conditions.eventually {
+            assert admitted == ["b"]
+            assert admission.queued() == ["c (queued, position 1)"]
+        }
+
+        when:
+        second.join().close()
+
+        then:
+        third.join() != null
+        admitted == ["b", "c"]
+        admission.queued().empty
+    }
+
+    def "admits any number of operations when no limit is configured"() {
+        def admission = new AdmissionController("start", 0, 0, metrics)
+
+        when:
+        def permits = (1..5).collect { admission.acquire("op$it", 0) }
+
+        then:
+        admission.running() == 5
+        admission.queued().empty
+
+        cleanup:
+        permits*.close()
+    }
+
+    def "delays operations which do not fit in the memory budget"() {
+        def admission = new AdmissionController("start", 4, 1000, metrics)
+        def admitted = new CopyOnWriteArrayList<String>()
+
+        when:
+        def first = admission.acquire("a", 600)
+        def second = acquireAsync(admission, "b", 600, admitted)
+
+        then:
+        conditions.eventually {
+            assert admission.queued() == ["b (queued, position 1)"]
+        }
+        admitted.empty
+
+        when:
+        first.close()
+
+        then:
+        conditions.eventually {
+            assert admitted == ["b"]
+        }
+        second.join().close()
+        admission.running() == 0
+    }
+
+    def "delays operations while the host is saturated"() {
+        def admission = new AdmissionController("start", 4, 0, metrics)
+        def admitted = new CopyOnWriteArrayList<String>()
+        metrics.cpuLoad = 0.95
+
+        when:
+        def first = admission.acquire("a", 0)
+        def second = acquireAsync(admission, "b", 0, admitted)
+
+        then:
+        conditions.eventually {
+            assert admission.queued() == ["b (queued, position 1)"]
+        }
+
+        when:
+        metrics.cpuLoad = 0.2
+
+        then:
+        conditions.eventually {
+            assert admitted == ["b"]
+        }
+        first.close()
+        second.join().close()
+    }
+
+    def "always admits an operation when nothing else is running"() {
+        def admission = new AdmissionController("start", 1, 100, metrics)
+        metrics.cpuLoad = 1
+        metrics.freeMemory = 10
+
+        when:
+        def permit = admission.acquire("a", 1000)
+
+        then:
+        admission.running() == 1
+
+        when:
+        permit.close()
+
+        then:
+        admission.running() == 0
+    }
+
+    private CompletableFuture<AdmissionController.Permit> acquireAsync(AdmissionController admission,
+                                                                       String description,
+                                                                       long memory,
+                                                                       List<String> admitted) {
+        CompletableFuture.supplyAsync({
+            def permit = admission.acquire(description, memory)
+            admitted << description
+            permit
+        }, executor)
+    }
+
+    private static class HostMetricsStub implements AdmissionController.HostMetrics {
+        volatile double cpuLoad = 0
+        volatile long freeMemory = -1
+
+        @Override
+        double cpuLoad() {
+            cpuLoad
+        }
+
+        @Override
+        long freeMemory() {
+            freeMemory
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.micronaut.testresources.testcontainers
+
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ContainerDependencySchedulerTest extends Specification {
+
+    def "detects cycles before starting anything"() {
+        def config = [
+                'containers.app.image-name': 'app',
+                'containers.app.depends-on': ['db'],
+                'containers.db.image-name': 'db',
+                'containers.db.depends-on': ['cache'],
+                'containers.cache.image-name': 'cache',
+                'containers.cache.depends-on': ['db'],
+        ]
+        def started = []
+
+        when:
+        scheduler(config, 'app', 'db', 'cache').startDependenciesOf(metadata(config, 'app')) {
+            started << it.id
+        }
+
+        then:
+        IllegalArgumentException ex = thrown()
+        ex.message == 'Cycle detected in container dependencies: db -> cache -> db'
+        started.empty
+    }
+
+    def "reports missing dependencies"() {
+        def config = [
+                'containers.app.image-name': 'app',
+                'containers.app.depends-on': ['db'],
+        ]
+
+        when:
+        scheduler(config, 'app').startDependenciesOf(metadata(config, 'app')) {}
+
+        then:
+        IllegalArgumentException ex = thrown()
+        ex.message == "Dependent container 'db' doesn't exist or cannot be resolved"
+    }
+
+    def "starts independent containers concurrently and dependents after their dependencies"() {
+        def config = [
+                'containers.app.image-name': 'app',
+                'containers.app.depends-on': ['db', 'broker'],
+                'containers.db.image-name': 'db',
+                'containers.db.depends-on': ['cache'],
+                'containers.cache.image-name': 'cache',
+                'containers.broker.image-name': 'broker',
+        ]
+        def bothRunning = new CountDownLatch(2)
+        def ready = new ConcurrentHashMap<String, Boolean>()
+        def concurrent = new ConcurrentHashMap<String, Boolean>()
+
+        when:
+        scheduler(config, 'app', 'db', 'cache', 'broker').startDependenciesOf(metadata(config, 'app')) {
+            if (it.id in ['cache', 'broker']) {
+                bothRunning.countDown()
+                concurrent[it.id] = bothRunning.await(5, TimeUnit.SECONDS)
+            }
+            if (it.id == 'db') {
+                assert ready.containsKey('cache')
+            }
+            ready[it.id] = true
+        }
+
+        then:
+        ready.keySet() == ['db', 'cache', 'broker'] as Set
+        concurrent == [cache: true, broker: true]
+    }
+
+    def "doesn't start more containers concurrently than the start parallelism"() {
+        def config = [
+                'containers.app.image-name': 'app',
+                'containers.app.depends-on': ['db', 'cache', 'broker'],
+                'containers.db.image-name': 'db',
+                'containers.cache.image-name': 'cache',
+                'containers.broker.image-name': 'broker',
+        ]
+        def running = new AtomicInteger()
+        def maxRunning = new AtomicInteger()
+        def threads = ConcurrentHashMap.newKeySet()
+
+        when:
+        scheduler(config, 2, 'app', 'db', 'cache', 'broker').startDependenciesOf(metadata(config, 'app')) {
+            threads << Thread.currentThread()
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max)
+            Thread.sleep(50)
+            running.decrementAndGet()
+        }
+
+        then:
+        maxRunning.get() <= 2
+        threads.size() <= 2
+        threads.every { it.daemon }
+    }
+
+    private static TestContainerMetadata metadata(Map<String, Object> config, String name) {
+        TestContainerMetadataSupport.convertToMetadata(config, name).get()
+    }
+
+    private static ContainerDependencyScheduler scheduler(Map<String, Object> config, String... names) {
+        scheduler(config, 4, names)
+    }
+
+    private static ContainerDependencyScheduler scheduler(Map<String, Object> config, int parallelism, String... names) {
+        new ContainerDependencyScheduler(names.collect { metadata(config, it) }, parallelism)
+    }
+}
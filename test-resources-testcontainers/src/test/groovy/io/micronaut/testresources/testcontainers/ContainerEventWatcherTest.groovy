@@ -0,0 +1,112 @@
+package io.micronaut.testresources.testcontainers
+
+import com.github.dockerjava.api.DockerClient
+import com.github.dockerjava.api.async.ResultCallback
+import com.github.dockerjava.api.command.EventsCmd
+import com.github.dockerjava.api.model.Event
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+
+class ContainerEventWatcherTest extends Specification {
+    private final executor = Executors.newCachedThreadPool()
+    private final callbacks = new CopyOnWriteArrayList<ResultCallback<Event>>()
+    private final filters = new CopyOnWriteArrayList<String>()
+    private final deaths = new CopyOnWriteArrayList<List<String>>()
+    private final conditions = new PollingConditions(timeout: 5)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "reports managed containers which die"() {
+        def watcher = watcher(stubClient())
+
+        when:
+        watcher.start()
+
+        then:
+        callbacks.size() == 1
+        filters.contains(ContainerJournal.KEY_LABEL)
+
+        when:
+        callbacks[0].onNext(new Event("oom", "abc", "redis", 1L).withAction("oom"))
+        callbacks[0].onNext(new Event("die", "def", "mysql", 2L))
+
+        then:
+        deaths == [["abc", "oom"], ["def", "die"]]
+    }
+
+    def "subscribes again when the event stream is interrupted"() {
+        def watcher = watcher(stubClient())
+
+        when:
+        watcher.start()
+        callbacks[0].onError(new IOException("connection reset"))
+
+        then:
+        conditions.eventually {
+            assert callbacks.size() == 2
+        }
+        def since = filters.findAll { it.startsWith('since=') }
+        since.size() == 2
+        since[0] == since[1]
+
+        when:
+        callbacks[1].onNext(new Event("die", "abc", "redis", 1L))
+
+        then:
+        deaths == [["abc", "die"]]
+
+        when:
+        watcher.stop()
+        callbacks[1].onComplete()
+        sleep 100
+
+        then:
+        callbacks.size() == 2
+        !watcher.started
+    }
+
+    def "keeps trying to subscribe while Docker is unavailable"() {
+        def client = stubClient()
+        def attempts = 0
+        def watcher = new ContainerEventWatcher({
+            if (attempts++ < 2) {
+                throw new IllegalStateException("Docker is not available")
+            }
+            client
+        }, this::onDeath, executor, Duration.ofMillis(10))
+
+        when:
+        watcher.start()
+
+        then:
+        conditions.eventually {
+            assert callbacks.size() == 1
+        }
+        attempts == 3
+    }
+
+    private ContainerEventWatcher watcher(DockerClient client) {
+        new ContainerEventWatcher({ client }, this::onDeath, executor, Duration.ofMillis(10))
+    }
+
+    private void onDeath(String containerId, String action) {
+        deaths << [containerId, action]
+    }
+
+    private DockerClient stubClient() {
+        EventsCmd cmd = Stub(EventsCmd)
+        cmd.withLabelFilter(_ as String[]) >> { args -> filters.addAll(args[0] as List); cmd }
+        cmd.withSince(_) >> { args -> filters << "since=${args[0]}".toString(); cmd }
+        cmd.exec(_) >> { args -> callbacks << args[0]; args[0] }
+        cmd._ >> cmd
+        Stub(DockerClient) {
+            eventsCmd() >> cmd
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.micronaut.testresources.testcontainers
+
+import com.github.dockerjava.api.DockerClient
+import com.github.dockerjava.api.command.InspectContainerCmd
+import com.github.dockerjava.api.command.InspectContainerResponse
+import com.github.dockerjava.api.command.ListContainersCmd
+import com.github.dockerjava.api.command.RemoveContainerCmd
+import com.github.dockerjava.api.model.Container
+import io.micronaut.testresources.core.Scope
+import org.testcontainers.containers.GenericContainer
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.time.Duration
+import java.time.Instant
+
+class ContainerJournalTest extends Specification {
+    @TempDir
+    Path journalDir
+
+    def "entries are persisted across journal instances"() {
+        def journal = new ContainerJournal(journalDir)
+
+        when:
+        journal.record('a', 'container-a')
+        journal.record('b', 'container-b')
+        journal.forget(['a'] as Set)
+
+        then:
+        readJournal() == [b: 'container-b']
+
+        when:
+        new ContainerJournal(journalDir).record('c', 'container-c')
+
+        then:
+        readJournal() == [b: 'container-b', c: 'container-c']
+    }
+
+    def "key hashes are stable and depend on scope and properties"() {
+        def key = TestContainers.Key.of(String, 'db', Scope.ROOT, [b: 2, a: 1])
+
+        expect:
+        key.hash() == TestContainers.Key.of(String, 'db', Scope.ROOT, [a: 1, b: 2]).hash()
+        key.hash() != TestContainers.Key.of(String, 'db', Scope.of('test'), [a: 1, b: 2]).hash()
+        key.hash() != TestContainers.Key.of(String, 'db', Scope.ROOT, [a: 1, b: 3]).hash()
+        key.hash() ==~ /[0-9a-f]{64}/
+    }
+
+    def "containers are kept running and can be reattached after the VM exits"() {
+        def container = Mock(GenericContainer) {
+            getContainerId() >> 'container-a'
+        }
+        def hash = TestContainers.Key.of(ContainerJournalTest, 'db', Scope.ROOT, [:]).hash()
+        TestContainers.useJournal(new ContainerJournal(journalDir))
+        TestContainers.getOrCreate('url', ContainerJournalTest, 'db', [:], () -> null) { container }
+
+        when:
+        def released = TestContainers.shutdownAsync().get()
+
+        then:
+        released
+        0 * container.close()
+        0 * container.stop()
+        TestContainers.listAll() == [:]
+        readJournal() == [(hash): 'container-a']
+
+        when:
+        def reattachable = new ContainerJournal(journalDir).findReattachableContainers(runningContainers(['container-a']))
+
+        then:
+        reattachable == [(hash): 'container-a']
+
+        cleanup:
+        TestContainers.disableJournal()
+        TestContainers.closeAll()
+    }
+
+    def "a journal keeps its containers for its time to live"() {
+        def journal = new ContainerJournal(journalDir)
+        journal.record("a", "container-a")
+        def file = journalDir.resolve("containers.properties")
+
+        expect:
+        ContainerJournal.isKept(journalDir, Duration.ofHours(1))
+        !ContainerJournal.isKept(journalDir.resolve("deleted"), Duration.ofHours(1))
+
+        when:
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now() - Duration.ofHours(2)))
+
+        then:
+        !ContainerJournal.isKept(journalDir, Duration.ofHours(1))
+        new ContainerJournal(journalDir, Duration.ofHours(1)).findReattachableContainers(Stub(DockerClient)).isEmpty()
+    }
+
+    def "containers of the journal which cannot be reattached are removed"() {
+        def journal = new ContainerJournal(journalDir)
+        journal.record('a', 'container-a')
+        journal.record('b', 'container-b')
+        def client = runningContainers(['container-a', 'container-c'])
+        def remove = Mock(RemoveContainerCmd)
+        client.removeContainerCmd(_) >> remove
+
+        when:
+        def reattachable = journal.findReattachableContainers(client)
+
+        then:
+        reattachable == [a: 'container-a']
+        readJournal() == [a: 'container-a']
+        1 * remove.withForce(true) >> remove
+        1 * remove.withRemoveVolumes(true) >> remove
+        1 * remove.exec()
+    }
+
+    private DockerClient runningContainers(List<String> containerIds) {
+        ListContainersCmd list = Stub(ListContainersCmd) {
+            exec() >> containerIds.collect { id -> Stub(Container) { getId() >> id } }
+        }
+        list.withShowAll(true) >> list
+        list.withLabelFilter([(ContainerReaper.JOURNAL_LABEL): journalDir.toAbsolutePath().toString()]) >> list
+        InspectContainerCmd inspect = Stub(InspectContainerCmd) {
+            exec() >> Stub(InspectContainerResponse) {
+                getState() >> Stub(InspectContainerResponse.ContainerState) {
+                    getRunning() >> true
+                }
+            }
+        }
+        Stub(DockerClient) {
+            listContainersCmd() >> list
+            inspectContainerCmd(_) >> inspect
+        }
+    }
+
+    private Map<String, String> readJournal() {
+        def props = new Properties()
+        journalDir.resolve('containers.properties').toFile().withInputStream { props.load(it) }
+        props as Map<String, String>
+    }
+}
@@ -0,0 +1,61 @@
+package io.micronaut.testresources.testcontainers
+
+import io.micronaut.testresources.core.Scope
+import org.testcontainers.containers.GenericContainer
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+
+class ContainerPoolTest extends Specification {
+    List<Runnable> tasks = []
+    ContainerPool pool = new ContainerPool({ Runnable task -> tasks << task } as Executor)
+    TestContainers.Key poolKey = TestContainers.Key.of(ContainerPoolTest, "c1", Scope.ROOT, [:])
+
+    def "starts the missing spare containers at once"() {
+        def starter = { Stub(GenericContainer) }
+
+        when:
+        pool.replenish(poolKey, 3, starter)
+
+        then:
+        tasks.size() == 3
+
+        when: "starts are still in progress"
+        pool.replenish(poolKey, 3, starter)
+
+        then:
+        tasks.size() == 3
+
+        when:
+        tasks*.run()
+        pool.replenish(poolKey, 3, starter)
+
+        then:
+        pool.size() == 3
+        tasks.size() == 3
+
+        when: "a spare is taken"
+        pool.take(poolKey)
+        pool.replenish(poolKey, 3, starter)
+
+        then:
+        tasks.size() == 4
+    }
+
+    def "a failed start of a spare container is started again on the next replenishment"() {
+        when:
+        pool.replenish(poolKey, 2, { throw new IllegalStateException("boom") })
+        tasks*.run()
+        pool.replenish(poolKey, 2, { Stub(GenericContainer) })
+
+        then:
+        tasks.size() == 4
+        pool.size() == 0
+
+        when:
+        tasks.drop(2)*.run()
+
+        then:
+        pool.size() == 2
+    }
+}
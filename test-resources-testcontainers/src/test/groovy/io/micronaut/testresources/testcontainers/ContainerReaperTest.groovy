@@ -0,0 +1,75 @@
+package io.micronaut.testresources.testcontainers
+
+import spock.lang.Specification
+
+class ContainerReaperTest extends Specification {
+    private final ContainerReaper reaper = new ContainerReaper()
+
+    def "labels containers with the session of the server"() {
+        reaper.port = 8123
+
+        when:
+        def labels = reaper.labels(false)
+
+        then:
+        labels[ContainerReaper.SESSION_LABEL]
+        labels[ContainerReaper.HOST_LABEL]
+        labels[ContainerReaper.PID_LABEL] == String.valueOf(ProcessHandle.current().pid())
+        labels[ContainerReaper.PORT_LABEL] == "8123"
+    }
+
+    def "containers kept for the next server are only labeled with the host"() {
+        reaper.port = 8123
+
+        expect:
+        reaper.labels(true).keySet() == [ContainerReaper.HOST_LABEL] as Set
+    }
+
+    def "selects the containers of servers which are gone"() {
+        def own = reaper.labels(false)
+        def candidates = [
+                mine     : own,
+                alive    : fromAnotherServer(own, 10, 8000),
+                dead     : fromAnotherServer(own, 11, 8001),
+                otherHost: fromAnotherServer(own, 12, 8002) + [(ContainerReaper.HOST_LABEL): "elsewhere"],
+        ]
+
+        when:
+        def orphans = reaper.selectOrphans(candidates, null, { pid, port -> pid == 10 }, { true })
+
+        then:
+        orphans == ["dead"]
+    }
+
+    def "selects the containers of another journal once that journal no longer keeps them"() {
+        def own = reaper.labels(false)
+        def candidates = [
+                sameJournal   : keptBy(own, "/a"),
+                keptJournal   : keptBy(own, "/b"),
+                expiredJournal: keptBy(own, "/c"),
+                otherHost     : keptBy(own, "/c") + [(ContainerReaper.HOST_LABEL): "elsewhere"],
+        ]
+        def kept = { it == "/b" }
+
+        expect:
+        reaper.selectOrphans(candidates, "/a", { pid, port -> false }, kept) == ["expiredJournal"]
+        reaper.selectOrphans(candidates, null, { pid, port -> false }, kept) == ["sameJournal", "expiredJournal"]
+        reaper.selectOrphans(candidates, null, { pid, port -> false }, { true }) == []
+    }
+
+    private static Map<String, String> fromAnotherServer(Map<String, String> own, long pid, int port) {
+        [
+                (ContainerReaper.SESSION_LABEL): UUID.randomUUID().toString(),
+                (ContainerReaper.HOST_LABEL)   : own[ContainerReaper.HOST_LABEL],
+                (ContainerReaper.PID_LABEL)    : String.valueOf(pid),
+                (ContainerReaper.PORT_LABEL)   : String.valueOf(port),
+        ]
+    }
+
+    private static Map<String, String> keptBy(Map<String, String> own, String journal) {
+        [
+                (ContainerReaper.HOST_LABEL)   : own[ContainerReaper.HOST_LABEL],
+                (ContainerReaper.JOURNAL_LABEL): journal,
+        ]
+    }
+}
@@ -0,0 +1,175 @@
+package io.micronaut.testresources.testcontainers
+
+import io.micronaut.testresources.core.Scope
+import org.testcontainers.containers.GenericContainer
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ContainerRegistryTest extends Specification {
+    ContainerRegistry registry = new ContainerRegistry()
+
+    def cleanup() {
+        TestContainers.closeAll()
+    }
+
+    def "finds registered containers by key, property and scope"() {
+        def root = Stub(GenericContainer)
+        def child = Stub(GenericContainer)
+        def rootKey = key("c1", null)
+        def childKey = key("c1", "child")
+
+        when:
+        registry.register(rootKey, root, 0)
+        registry.registerProperty("url", rootKey)
+        registry.register(childKey, child, 512)
+        registry.registerProperty("url", childKey)
+        registry.registerProperty("url", childKey)
+
+        then:
+        registry.get(rootKey).is(root)
+        registry.get(childKey).is(child)
+        registry.get(key("c2", null)) == null
+        registry.findByRequestedProperty(Scope.ROOT, "url") as Set == [root, child] as Set
+        registry.findByRequestedProperty(Scope.of("child"), "url") == [child]
+        registry.findByRequestedPropertyInScope(Scope.ROOT, "url") == [root]
+        registry.findByRequestedProperty(Scope.ROOT, "username").empty
+        registry.listByScope(Scope.ROOT) == [(Scope.ROOT): [root], (Scope.of("child")): [child]]
+        registry.listByScope(Scope.of("child")) == [(Scope.of("child")): [child]]
+        registry.usages { true }.collect { it.memory() } as Set == [0L, 512L] as Set
+        registry.requestedProperties() == ["url"] as Set
+    }
+
+    def "removing containers removes them from every index"() {
+        def root = Stub(GenericContainer)
+        def child = Stub(GenericContainer)
+        def rootKey = key("c1", null)
+        def childKey = key("c1", "child")
+        registry.register(rootKey, root, 0)
+        registry.registerProperty("url", rootKey)
+        registry.register(childKey, child, 0)
+        registry.registerProperty("url", childKey)
+        registry.registerProperty("username", childKey)
+
+        when:
+        def removed = registry.removeIf { it.scope == Scope.of("child") }
+
+        then:
+        removed == [(childKey): child]
+        registry.get(childKey) == null
+        registry.get(rootKey).is(root)
+        registry.findByRequestedProperty(Scope.ROOT, "url") == [root]
+        registry.listByScope(Scope.ROOT) == [(Scope.ROOT): [root]]
+        registry.usages { true }*.key() == [rootKey]
+        registry.requestedProperties() == ["url"] as Set
+
+        when:
+        removed = registry.removeIf { true }
+
+        then:
+        removed == [(rootKey): root]
+        registry.listByScope(Scope.ROOT).isEmpty()
+        registry.requestedProperties().isEmpty()
+        registry.removeIf { true }.isEmpty()
+    }
+
+    def "lookups are consistent with concurrent registrations and removals"() {
+        int scopes = 8
+        int rounds = 200
+        def executor = Executors.newFixedThreadPool(scopes * 2)
+        def inconsistencies = new AtomicInteger()
+        def stop = new CountDownLatch(1)
+
+        when:
+        def readers = (0..<scopes).collect { i ->
+            CompletableFuture.runAsync({
+                def k = key("c1", "scope$i")
+                while (stop.count > 0) {
+                    registry.get(k)
+                    // a key is registered once, so a lookup never finds more than one container
+                    if (registry.findByRequestedProperty(Scope.of("scope$i"), "url").size() > 1) {
+                        inconsistencies.incrementAndGet()
+                    }
+                    registry.listByScope(Scope.ROOT)
+                }
+            }, executor)
+        }
+        def writers = (0..<scopes).collect { i ->
+            CompletableFuture.runAsync({
+                def k = key("c1", "scope$i")
+                rounds.times {
+                    def container = Stub(GenericContainer)
+                    registry.register(k, container, 0)
+                    registry.registerProperty("url", k)
+                    if (!registry.get(k).is(container)) {
+                        inconsistencies.incrementAndGet()
+                    }
+                    def removed = registry.removeIf { it == k }
+                    if (removed.size() != 1 || !removed[k].is(container)) {
+                        inconsistencies.incrementAndGet()
+                    }
+                }
+            }, executor)
+        }
+        CompletableFuture.allOf(writers as CompletableFuture[]).get(30, TimeUnit.SECONDS)
+        stop.countDown()
+        CompletableFuture.allOf(readers as CompletableFuture[]).get(30, TimeUnit.SECONDS)
+
+        then:
+        inconsistencies.get() == 0
+        registry.listByScope(Scope.ROOT).isEmpty()
+        registry.findByRequestedProperty(Scope.ROOT, "url").empty
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "a lookup of a started container doesn't compute the image name nor take the lock"() {
+        def container = Stub(GenericContainer)
+        def imageNames = new AtomicInteger()
+        def creations = new AtomicInteger()
+        def lookup = {
+            TestContainers.getOrCreate("url", ContainerRegistryTest, "c1", [:], () -> {
+                imageNames.incrementAndGet()
+                null
+            }) {
+                creations.incrementAndGet()
+                container
+            }
+        }
+        lookup()
+        def locked = new CountDownLatch(1)
+        def unlock = new CountDownLatch(1)
+        def holder = Thread.start {
+            TestContainers.MAP_LOCK.lock()
+            try {
+                locked.countDown()
+                unlock.await(10, TimeUnit.SECONDS)
+            } finally {
+                TestContainers.MAP_LOCK.unlock()
+            }
+        }
+        locked.await(5, TimeUnit.SECONDS)
+        def before = imageNames.get()
+
+        when: "the lock is held by another thread"
+        def found = CompletableFuture.supplyAsync { lookup() }.get(5, TimeUnit.SECONDS)
+
+        then:
+        found.is(container)
+        imageNames.get() == before
+        creations.get() == 1
+
+        cleanup:
+        unlock.countDown()
+        holder?.join()
+    }
+
+    private static TestContainers.Key key(String name, String scope) {
+        TestContainers.Key.of(ContainerRegistryTest, name, Scope.of(scope), [:])
+    }
+}
@@ -0,0 +1,151 @@
+package io.micronaut.testresources.testcontainers
+
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
+import org.testcontainers.images.builder.Transferable
+import org.testcontainers.utility.MountableFile
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+
+class CopySourceCacheTest extends Specification {
+    @TempDir
+    Path tmpDir
+
+    def "files are only read again when they change"() {
+        def cache = new CopySourceCache(getClass().classLoader)
+        def file = tmpDir.resolve("seed.sql")
+        file.toFile().text = "insert into books values (1)"
+
+        when:
+        def first = cache.resolve(file.toString())
+        def second = cache.resolve(file.toString())
+
+        then:
+        first.is(second)
+        cache.size() == 1
+        contentOf(first, "/seed.sql") == "insert into books values (1)"
+
+        when:
+        file.toFile().text = "insert into books values (2)"
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000))
+        def changed = cache.resolve(file.toString())
+
+        then:
+        !changed.is(first)
+        cache.size() == 2
+        contentOf(changed, "/seed.sql") == "insert into books values (2)"
+    }
+
+    def "sources with the same content share the cached content"() {
+        def cache = new CopySourceCache(getClass().classLoader)
+        def a = tmpDir.resolve("a.sql")
+        def b = tmpDir.resolve("b.sql")
+        a.toFile().text = "select 1"
+        b.toFile().text = "select 1"
+
+        expect:
+        cache.resolve(a.toString()).is(cache.resolve(b.toString()))
+        cache.size() == 1
+    }
+
+    def "classpath resources from a jar are extracted once"() {
+        def jar = tmpDir.resolve("resources.jar")
+        new JarOutputStream(Files.newOutputStream(jar)).withCloseable {
+            it.putNextEntry(new JarEntry("init/init.sql"))
+            it.write("create table books".bytes)
+            it.closeEntry()
+        }
+        def loader = new URLClassLoader([jar.toUri().toURL()] as URL[], (ClassLoader) null)
+        def cache = new CopySourceCache(loader)
+
+        when:
+        def first = cache.resolve("classpath:/init/init.sql")
+        def second = cache.resolve("classpath:init/init.sql")
+        def third = cache.resolve("classpath:/init/init.sql")
+
+        then:
+        first.is(second)
+        first.is(third)
+        cache.size() == 1
+        first.fileMode == Transferable.DEFAULT_FILE_MODE
+        contentOf(first, "/docker-entrypoint-initdb.d/init.sql") == "create table books"
+
+        cleanup:
+        loader.close()
+    }
+
+    @Requires({ Files.isDirectory(Path.of("/proc/self/fd")) })
+    def "resolving a classpath resource from a jar doesn't keep the jar open"() {
+        def jar = tmpDir.resolve("resources.jar")
+        new JarOutputStream(Files.newOutputStream(jar)).withCloseable {
+            it.putNextEntry(new JarEntry("init/init.sql"))
+            it.write("create table books".bytes)
+            it.closeEntry()
+        }
+        def loader = new URLClassLoader([jar.toUri().toURL()] as URL[], (ClassLoader) null)
+        def cache = new CopySourceCache(loader)
+        // the class loader keeps its own handle on the jar
+        cache.resolve("classpath:/init/init.sql")
+        def before = openHandlesOf(jar)
+
+        when:
+        10.times {
+            cache.resolve("classpath:/init/init.sql")
+        }
+
+        then:
+        openHandlesOf(jar) == before
+        cache.size() == 1
+
+        cleanup:
+        loader.close()
+    }
+
+    def "directories are copied by Testcontainers"() {
+        def cache = new CopySourceCache(getClass().classLoader)
+
+        expect:
+        cache.resolve(tmpDir.toString()) instanceof MountableFile
+        cache.size() == 0
+    }
+
+    def "configured copies use the shared cache"() {
+        def copy = new TestContainerMetadata.CopyFileToContainer("classpath:/some/file.txt", "/file.txt")
+
+        expect:
+        copy.transferable.is(copy.transferable)
+        copy.file.resolvedPath.endsWith("file.txt")
+    }
+
+    private static long openHandlesOf(Path file) {
+        def target = file.toRealPath()
+        Files.list(Path.of("/proc/self/fd")).withCloseable { fds ->
+            fds.filter { fd ->
+                try {
+                    Files.readSymbolicLink(fd) == target
+                } catch (IOException ignored) {
+                    false
+                }
+            }.count()
+        }
+    }
+
+    private static String contentOf(Transferable transferable, String destination) {
+        def bytes = new ByteArrayOutputStream()
+        new TarArchiveOutputStream(bytes).withCloseable {
+            transferable.transferTo(it, destination)
+        }
+        new TarArchiveInputStream(new ByteArrayInputStream(bytes.toByteArray())).withCloseable {
+            def entry = it.nextEntry
+            assert entry.name == destination.substring(1)
+            new String(it.readAllBytes())
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.micronaut.testresources.testcontainers
+
+import spock.lang.Specification
+
+class CpuPartitionerTest extends Specification {
+    private final Map<String, String> updates = [:]
+    private int cores = 8
+    private final CpuPartitioner partitioner = new CpuPartitioner({ cores }, { id, cpuset -> updates[id] = cpuset })
+
+    def "splits cores into contiguous ranges"() {
+        expect:
+        CpuPartitioner.partition(first, cores, containers) == expected
+
+        where:
+        first | cores | containers | expected
+        0     | 8     | 1          | ["0-7"]
+        0     | 8     | 2          | ["0-3", "4-7"]
+        0     | 8     | 3          | ["0-1", "2-4", "5-7"]
+        2     | 6     | 2          | ["2-4", "5-7"]
+        0     | 2     | 3          | ["0", "1", "0"]
+    }
+
+    def "rebalances cores when containers are added or removed"() {
+        partitioner.configure(true, 0)
+
+        when:
+        partitioner.add("a")
+
+        then:
+        updates == [a: "0-7"]
+
+        when:
+        partitioner.add("b")
+
+        then:
+        updates == [a: "0-3", b: "4-7"]
+
+        when:
+        updates.clear()
+        partitioner.remove(["a"])
+
+        then:
+        updates == [b: "0-7"]
+        partitioner.assignments() == [b: "0-7"]
+    }
+
+    def "keeps reserved cores out of the partition"() {
+        partitioner.configure(true, 2)
+
+        when:
+        partitioner.add("a")
+        partitioner.add("b")
+
+        then:
+        updates == [a: "2-4", b: "5-7"]
+    }
+
+    def "does nothing when disabled"() {
+        when:
+        partitioner.add("a")
+        partitioner.remove(["a", null])
+
+        then:
+        updates.isEmpty()
+        partitioner.assignments().isEmpty()
+    }
+}
@@ -0,0 +1,141 @@
+package io.micronaut.testresources.testcontainers
+
+import io.micronaut.testresources.testcontainers.DockerSupport.CircuitState
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class DockerBootstrapTest extends Specification {
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor()
+    CountDownLatch probing = new CountDownLatch(1)
+    CountDownLatch probeCompletes = new CountDownLatch(1)
+    CountDownLatch warmUpCompletes = new CountDownLatch(1)
+    AtomicInteger probes = new AtomicInteger()
+    AtomicInteger warmUps = new AtomicInteger()
+    boolean dockerAvailable = true
+    DockerCircuitBreaker breaker = new DockerCircuitBreaker({
+        probes.incrementAndGet()
+        probing.countDown()
+        probeCompletes.await(10, TimeUnit.SECONDS)
+        dockerAvailable
+    }, Clock.systemUTC(), scheduler)
+    DockerBootstrap bootstrap = new DockerBootstrap(breaker, {
+        warmUps.incrementAndGet()
+        warmUpCompletes.await(10, TimeUnit.SECONDS)
+    }, scheduler, Duration.ofSeconds(5))
+
+    def cleanup() {
+        probeCompletes.countDown()
+        warmUpCompletes.countDown()
+        scheduler.shutdownNow()
+    }
+
+    def "the first check waits for the bootstrap, including the warm-up of the client"() {
+        when:
+        def started = bootstrap.start()
+        probing.await(5, TimeUnit.SECONDS)
+        def check = CompletableFuture.supplyAsync { bootstrap.isDockerAvailable() }
+        probeCompletes.countDown()
+        Thread.sleep(200)
+
+        then:
+        breaker.circuit().state() == CircuitState.CLOSED
+        !check.done
+        !started.done
+
+        when:
+        warmUpCompletes.countDown()
+
+        then:
+        check.get(5, TimeUnit.SECONDS)
+        started.get(5, TimeUnit.SECONDS)
+        warmUps.get() == 1
+    }
+
+    def "the bootstrap is only started once"() {
+        probeCompletes.countDown()
+        warmUpCompletes.countDown()
+
+        when:
+        def first = bootstrap.start()
+        def second = bootstrap.start()
+
+        then:
+        first.is(second)
+        first.get(5, TimeUnit.SECONDS)
+        probes.get() == 1
+        warmUps.get() == 1
+    }
+
+    def "the first check gives up once the bootstrap exceeds the Docker check timeout"() {
+        def bootstrap = new DockerBootstrap(breaker, { warmUpCompletes.await(10, TimeUnit.SECONDS) }, scheduler, Duration.ofMillis(300))
+
+        when:
+        bootstrap.start()
+        probing.await(5, TimeUnit.SECONDS)
+        def check = CompletableFuture.supplyAsync { bootstrap.isDockerAvailable() }
+        probeCompletes.countDown()
+
+        then:
+        !check.get(5, TimeUnit.SECONDS)
+
+        and: "later checks report the state of the circuit"
+        breaker.circuit().state() == CircuitState.CLOSED
+        bootstrap.isDockerAvailable()
+    }
+
+    def "the first check gives up once the first probe exceeds the Docker check timeout"() {
+        def bootstrap = new DockerBootstrap(breaker, { }, scheduler, Duration.ZERO)
+
+        when:
+        bootstrap.start()
+        long start = System.nanoTime()
+        def available = bootstrap.isDockerAvailable()
+
+        then:
+        !available
+        Duration.ofNanos(System.nanoTime() - start) >= Duration.ofSeconds(1)
+        breaker.circuit().state() == CircuitState.UNKNOWN
+    }
+
+    def "the client isn't warmed up if Docker is unavailable, and checks don't wait for the bootstrap once the circuit is open"() {
+        dockerAvailable = false
+        probeCompletes.countDown()
+
+        when:
+        def started = bootstrap.start()
+
+        then:
+        !started.get(5, TimeUnit.SECONDS)
+        breaker.circuit().state() == CircuitState.OPEN
+        !bootstrap.isDockerAvailable()
+        warmUps.get() == 0
+    }
+
+    def "checks after the first probe don't wait for the warm-up"() {
+        when:
+        def started = bootstrap.start()
+        probeCompletes.countDown()
+
+        then:
+        breaker.firstProbe().get(5, TimeUnit.SECONDS)
+        bootstrap.isDockerAvailable()
+        !started.done
+    }
+
+    def "without a bootstrap, the first check only waits for the first probe"() {
+        probeCompletes.countDown()
+
+        expect:
+        bootstrap.isDockerAvailable()
+        warmUps.get() == 0
+        probes.get() == 1
+    }
+}
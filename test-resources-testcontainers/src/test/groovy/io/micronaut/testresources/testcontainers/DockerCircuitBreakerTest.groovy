@@ -0,0 +1,145 @@
+package io.micronaut.testresources.testcontainers
+
+import io.micronaut.testresources.testcontainers.DockerSupport.CircuitState
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+class DockerCircuitBreakerTest extends Specification {
+    Instant now = Instant.parse("2026-01-01T00:00:00Z")
+    List<Boolean> results = []
+    List<CircuitState> statesDuringProbes = []
+    List<Long> delays = []
+    boolean cancellable
+    ScheduledExecutorService scheduler = Stub() {
+        execute(_) >> { Runnable task -> task.run() }
+        schedule(*_) >> { args ->
+            assert args[2] == TimeUnit.MILLISECONDS
+            delays << (args[1] as long)
+            Stub(ScheduledFuture) {
+                cancel(false) >> { cancellable }
+            }
+        }
+    }
+    DockerCircuitBreaker breaker = new DockerCircuitBreaker({
+        statesDuringProbes << breaker.circuit().state()
+        results.remove(0)
+    }, Clock.fixed(now, ZoneOffset.UTC), scheduler)
+
+    def "the first check waits for the first probe, then the result is cached"() {
+        results << true
+
+        expect:
+        breaker.circuit().state() == CircuitState.UNKNOWN
+        breaker.isAvailable(Duration.ofSeconds(1))
+        breaker.circuit().state() == CircuitState.CLOSED
+        breaker.circuit().lastProbe() == now
+        breaker.circuit().nextProbe() == now + DockerCircuitBreaker.HEALTHY_PROBE_INTERVAL
+        delays == [DockerCircuitBreaker.HEALTHY_PROBE_INTERVAL.toMillis()]
+
+        and: "later checks don't probe the daemon"
+        breaker.isAvailable(Duration.ofSeconds(1))
+        breaker.isAvailable(Duration.ofSeconds(1))
+        statesDuringProbes == [CircuitState.UNKNOWN]
+    }
+
+    def "the circuit opens when a probe fails, and is probed again with an exponential backoff"() {
+        results.addAll([false, false, false])
+
+        when:
+        breaker.start()
+        breaker.probeAndReschedule()
+        breaker.probeAndReschedule()
+
+        then:
+        breaker.circuit().state() == CircuitState.OPEN
+        breaker.circuit().consecutiveFailures() == 3
+        breaker.circuit().nextProbe() == now + Duration.ofSeconds(4)
+        delays == [1000L, 2000L, 4000L]
+        statesDuringProbes == [CircuitState.UNKNOWN, CircuitState.HALF_OPEN, CircuitState.HALF_OPEN]
+
+        and: "an open circuit is reported without probing"
+        !breaker.isAvailable(Duration.ofSeconds(1))
+        statesDuringProbes.size() == 3
+    }
+
+    def "the backoff is capped"() {
+        results.addAll([false] * 10)
+
+        when:
+        breaker.start()
+        9.times {
+            breaker.probeAndReschedule()
+        }
+
+        then:
+        delays.last() == DockerCircuitBreaker.MAX_BACKOFF.toMillis()
+        breaker.circuit().consecutiveFailures() == 10
+    }
+
+    def "a half open circuit closes when the probe succeeds"() {
+        results.addAll([false, true])
+
+        when:
+        breaker.start()
+
+        then:
+        breaker.circuit().state() == CircuitState.OPEN
+        !breaker.isAvailable(Duration.ofSeconds(1))
+
+        when:
+        breaker.probeAndReschedule()
+
+        then:
+        statesDuringProbes == [CircuitState.UNKNOWN, CircuitState.HALF_OPEN]
+        breaker.circuit().state() == CircuitState.CLOSED
+        breaker.circuit().consecutiveFailures() == 0
+        breaker.isAvailable(Duration.ofSeconds(1))
+        delays == [1000L, DockerCircuitBreaker.HEALTHY_PROBE_INTERVAL.toMillis()]
+    }
+
+    def "a half open circuit opens again when the probe fails"() {
+        results.addAll([true, false, false])
+
+        when:
+        breaker.start()
+        breaker.probeAndReschedule()
+
+        then:
+        breaker.circuit().state() == CircuitState.OPEN
+        breaker.circuit().consecutiveFailures() == 1
+
+        when:
+        breaker.probeAndReschedule()
+
+        then:
+        statesDuringProbes == [CircuitState.UNKNOWN, CircuitState.CLOSED, CircuitState.HALF_OPEN]
+        breaker.circuit().state() == CircuitState.OPEN
+        breaker.circuit().consecutiveFailures() == 2
+    }
+
+    def "a recheck probes immediately if the next probe can be cancelled"() {
+        results.addAll([true, false])
+        breaker.start()
+
+        when:
+        breaker.recheck()
+
+        then: "the scheduled probe is already running"
+        statesDuringProbes.size() == 1
+
+        when:
+        cancellable = true
+        breaker.recheck()
+
+        then:
+        statesDuringProbes.size() == 2
+        breaker.circuit().state() == CircuitState.OPEN
+    }
+}
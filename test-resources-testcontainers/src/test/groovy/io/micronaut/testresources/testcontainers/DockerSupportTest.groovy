@@ -0,0 +1,24 @@
+package io.micronaut.testresources.testcontainers
+
+import com.github.dockerjava.api.exception.DockerClientException
+import com.github.dockerjava.api.exception.InternalServerErrorException
+import org.testcontainers.containers.ContainerLaunchException
+import spock.lang.Specification
+
+class DockerSupportTest extends Specification {
+
+    def "recognizes the errors which come from the Docker client"() {
+        expect:
+        DockerSupport.isDockerClientError(error) == expected
+
+        where:
+        error                                                                                            | expected
+        new InternalServerErrorException("daemon error")                                                 | true
+        new DockerClientException("cannot connect")                                                      | true
+        new RuntimeException(new IOException("connection refused"))                                      | true
+        new ContainerLaunchException("failed", new RuntimeException(new IOException("broken pipe")))     | true
+        new ContainerLaunchException("Timed out waiting for container port to open")                     | false
+        new StartBulkheads.Rejected("too many starts")                                                  | false
+        new IllegalStateException("wait strategy failed")                                                | false
+    }
+}
@@ -0,0 +1,70 @@
+package io.micronaut.testresources.testcontainers
+
+import io.micronaut.testresources.core.Scope
+import spock.lang.Specification
+
+import java.time.Duration
+
+class EvictionPolicyTest extends Specification {
+    private static final long GB = 1024 * 1024 * 1024L
+
+    private final policy = new EvictionPolicy()
+
+    def "selects nothing when disabled"() {
+        expect:
+        !policy.enabled
+        policy.select([usage("a", 0, GB)], 1_000_000).isEmpty()
+    }
+
+    def "selects containers idle for longer than the timeout"() {
+        policy.configure(Duration.ofMinutes(10), 0)
+
+        expect:
+        policy.select([
+                usage("a", 0, 0),
+                usage("b", 500_000, 0),
+                usage("c", 50_000, 0),
+        ], 700_000) == [(key("a")): EvictionPolicy.IDLE, (key("c")): EvictionPolicy.IDLE]
+    }
+
+    def "selects least recently used containers until memory fits in the budget"() {
+        policy.configure(null, 3 * GB)
+
+        expect:
+        policy.select([
+                usage("a", 300, GB),
+                usage("b", 100, 2 * GB),
+                usage("c", 200, GB),
+                usage("d", 400, 2 * GB),
+        ], 500) == [(key("b")): EvictionPolicy.MEMORY_BUDGET, (key("c")): EvictionPolicy.MEMORY_BUDGET]
+    }
+
+    def "idle containers count towards freeing the budget"() {
+        policy.configure(Duration.ofMillis(100), 2 * GB)
+
+        expect:
+        policy.select([
+                usage("a", 0, 2 * GB),
+                usage("b", 450, GB),
+                usage("c", 480, GB),
+        ], 500) == [(key("a")): EvictionPolicy.IDLE]
+    }
+
+    def "never selects the most recently used container or containers without declared memory"() {
+        policy.configure(null, GB)
+
+        expect:
+        policy.select([
+                usage("a", 100, 0),
+                usage("b", 200, 4 * GB),
+        ], 500).isEmpty()
+    }
+
+    private static EvictionPolicy.Usage usage(String name, long lastUsed, long memory) {
+        new EvictionPolicy.Usage(key(name), lastUsed, memory)
+    }
+
+    private static TestContainers.Key key(String name) {
+        TestContainers.Key.of(EvictionPolicyTest, name, Scope.ROOT, [:])
+    }
+}
@@ -0,0 +1,131 @@
+package io.micronaut.testresources.testcontainers
+
+import com.github.dockerjava.api.command.InspectContainerResponse
+import com.github.dockerjava.api.model.ContainerConfig
+import com.github.dockerjava.api.model.ExposedPort
+import com.github.dockerjava.api.model.NetworkSettings
+import com.github.dockerjava.api.model.Ports
+import org.testcontainers.containers.ContainerLaunchException
+import org.testcontainers.containers.GenericContainer
+import org.testcontainers.containers.wait.strategy.WaitStrategy
+import org.testcontainers.containers.wait.strategy.WaitStrategyTarget
+import spock.lang.Specification
+
+import java.time.Duration
+
+class HostNetworkTest extends Specification {
+
+    def "allocates distinct free ports"() {
+        when:
+        def first = HostNetwork.allocatePorts([5432, 6379])
+        def second = HostNetwork.allocatePorts([5432])
+
+        then:
+        first.keySet() == [5432, 6379] as Set
+        second.keySet() == [5432] as Set
+        (first.values() + second.values()).toSet().size() == 3
+        first.values().every { it > 0 }
+
+        cleanup:
+        HostNetwork.release(first.values() + second.values())
+    }
+
+    def "ports are released when the container is released"() {
+        def container = new GenericContainer<>("redis")
+        def ports = HostNetwork.allocatePorts([6379])
+        HostNetwork.publish(container, ports, Stub(WaitStrategy))
+
+        expect:
+        HostNetwork.ALLOCATED.containsAll(ports.values())
+
+        when:
+        HostNetwork.release(container)
+
+        then:
+        !HostNetwork.ALLOCATED.any { it in ports.values() }
+    }
+
+    def "reports the allocated ports as the mapped ports of the container"() {
+        def container = new GenericContainer<>("redis").withExposedPorts(6379)
+        List<Integer> livenessPorts = null
+        Integer mappedPort = null
+        Duration timeout = null
+        def waitStrategy = Stub(WaitStrategy) {
+            waitUntilReady(_) >> { WaitStrategyTarget target ->
+                livenessPorts = target.livenessCheckPortNumbers as List
+                mappedPort = container.getMappedPort(6379)
+            }
+            withStartupTimeout(_) >> { Duration startupTimeout ->
+                timeout = startupTimeout
+                null
+            }
+        }
+
+        when:
+        HostNetwork.publish(container, [6379: 41234], waitStrategy)
+
+        then:
+        container.labels[HostNetwork.PORTS_LABEL] == "6379:41234"
+        container.exposedPorts.empty
+
+        when:
+        container.withStartupTimeout(Duration.ofSeconds(5))
+        def response = inspectResponse()
+        response.config.labels = container.labels
+        container.@containerId = "abc"
+        container.@containerInfo = response
+        container.@waitStrategy.waitUntilReady(container)
+
+        then:
+        timeout == Duration.ofSeconds(5)
+        livenessPorts == [41234]
+        mappedPort == 41234
+        container.getMappedPort(6379) == 41234
+    }
+
+    def "fails to start if the ports cannot be reported"() {
+        def container = new GenericContainer<>("redis")
+        HostNetwork.publish(container, [6379: 41235], Stub(WaitStrategy))
+        def response = inspectResponse()
+        response.config.labels = container.labels
+        response.networkSettings.@ports = null
+        container.@containerInfo = response
+
+        when:
+        container.@waitStrategy.waitUntilReady(container)
+
+        then:
+        thrown(ContainerLaunchException)
+
+        cleanup:
+        HostNetwork.release(container)
+    }
+
+    def "containers without allocated ports are left unchanged"() {
+        def response = inspectResponse()
+        response.config.labels = [:]
+
+        expect:
+        !HostNetwork.withMappedPorts(response)
+        response.networkSettings.ports.bindings.isEmpty()
+
+        when:
+        response.config.labels = [(HostNetwork.PORTS_LABEL): "5432:40001,8080:40002"]
+
+        then:
+        HostNetwork.withMappedPorts(response)
+        response.networkSettings.ports.bindings[new ExposedPort(5432)][0].hostPortSpec == "40001"
+        response.networkSettings.ports.bindings[new ExposedPort(8080)][0].hostPortSpec == "40002"
+    }
+
+    private static InspectContainerResponse inspectResponse() {
+        def config = new ContainerConfig()
+        def response = new InspectContainerResponse()
+        def networkSettings = new NetworkSettings()
+        networkSettings.@ports = new Ports()
+        response.@id = "abc"
+        response.@config = config
+        response.@networkSettings = networkSettings
+        response
+    }
+}
@@ -0,0 +1,51 @@
+package io.micronaut.testresources.testcontainers
+
+import org.testcontainers.utility.DockerImageName
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ImageLockTest extends Specification {
+    private static final String DIGEST = "sha256:4ec37d2a07a0067f176fdcc9d4bb633a5724d2cc4f892c7a2046d054bb6939e5"
+
+    @TempDir
+    Path tmpDir
+
+    def "resolves locked images to their digest"() {
+        def lockfile = tmpDir.resolve("images.lock")
+        Files.write(lockfile, [
+                "# comment",
+                "",
+                "postgres:16 postgres@$DIGEST".toString()
+        ])
+        def lock = ImageLock.read(lockfile)
+
+        when:
+        def resolved = lock.resolve(DockerImageName.parse("postgres:16"))
+
+        then:
+        resolved.asCanonicalNameString() == "postgres@$DIGEST"
+        resolved.isCompatibleWith(DockerImageName.parse("postgres"))
+
+        and:
+        lock.resolve(DockerImageName.parse("redis:7")) == DockerImageName.parse("redis:7")
+        lock.resolve(null) == null
+    }
+
+    def "a missing lockfile doesn't lock any image"() {
+        expect:
+        ImageLock.read(tmpDir.resolve("missing.lock")).is(ImageLock.EMPTY)
+    }
+
+    def "selects the digest of the repository of the image"() {
+        def image = DockerImageName.parse("postgres:16")
+
+        expect:
+        ImageLock.lockedReference(image, ["mirror.local/postgres@sha256:other", "postgres@$DIGEST".toString()]) == Optional.of("postgres@$DIGEST".toString())
+        ImageLock.lockedReference(image, ["mirror.local/postgres@$DIGEST".toString()]) == Optional.of("postgres@$DIGEST".toString())
+        ImageLock.lockedReference(image, []) == Optional.empty()
+        ImageLock.lockedReference(image, null) == Optional.empty()
+    }
+}
@@ -0,0 +1,125 @@
+package io.micronaut.testresources.testcontainers
+
+import io.micronaut.testresources.core.TestResourcesResolutionException
+import org.testcontainers.utility.DockerImageName
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+class ImagePullerTest extends Specification {
+    private static final DockerImageName POSTGRES = DockerImageName.parse("postgres:16")
+
+    private final executor = Executors.newCachedThreadPool()
+    private final local = [] as Set<DockerImageName>
+    private final pulls = new CopyOnWriteArrayList<DockerImageName>()
+    private final conditions = new PollingConditions(timeout: 5)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "concurrent requests for the same image share a single pull"() {
+        def release = new CountDownLatch(1)
+        def puller = new ImagePuller(local::contains, { image ->
+            pulls << image
+            release.await()
+        })
+
+        when:
+        def first = CompletableFuture.runAsync({ puller.pull(POSTGRES) }, executor)
+        conditions.eventually {
+            assert puller.pulling() == [POSTGRES]
+        }
+        def second = CompletableFuture.runAsync({ puller.pull(DockerImageName.parse("postgres:16")) }, executor)
+        sleep 100
+        release.countDown()
+        first.join()
+        second.join()
+
+        then:
+        pulls == [POSTGRES]
+        puller.pulling().empty
+    }
+
+    def "requests waiting for a pull fail with the same exception"() {
+        def release = new CountDownLatch(1)
+        def failure = new IllegalStateException("manifest unknown")
+        def puller = new ImagePuller(local::contains, { image ->
+            pulls << image
+            release.await()
+            throw failure
+        })
+
+        when:
+        def first = CompletableFuture.runAsync({ puller.pull(POSTGRES) }, executor)
+        conditions.eventually {
+            assert !puller.pulling().empty
+        }
+        def second = CompletableFuture.runAsync({ puller.pull(POSTGRES) }, executor)
+        sleep 100
+        release.countDown()
+        def errors = [first, second].collect {
+            try {
+                it.join()
+                null
+            } catch (CompletionException ex) {
+                ex.cause
+            }
+        }
+
+        then:
+        pulls.size() == 1
+        errors.every { it.is(failure) }
+    }
+
+    def "images available locally are only pulled in always mode"() {
+        local << POSTGRES
+        def puller = new ImagePuller(local::contains, pulls::add)
+
+        when:
+        puller.pull(POSTGRES)
+        puller.pull(DockerImageName.parse("redis:7"))
+
+        then:
+        pulls == [DockerImageName.parse("redis:7")]
+
+        when:
+        puller.configure(ImagePullMode.ALWAYS)
+        puller.pull(POSTGRES)
+
+        then:
+        pulls.last() == POSTGRES
+    }
+
+    def "images are never pulled in never mode"() {
+        local << POSTGRES
+        def puller = new ImagePuller(local::contains, pulls::add)
+        puller.configure(ImagePullMode.NEVER)
+
+        when:
+        puller.pull(POSTGRES)
+
+        then:
+        pulls.empty
+
+        when:
+        puller.pull(DockerImageName.parse("redis:7"))
+
+        then:
+        def ex = thrown(TestResourcesResolutionException)
+        ex.message.contains("redis:7")
+        pulls.empty
+    }
+
+    def "parses pull modes"() {
+        expect:
+        ImagePullMode.of("if-missing") == ImagePullMode.IF_MISSING
+        ImagePullMode.of("Always") == ImagePullMode.ALWAYS
+        ImagePullMode.of("never") == ImagePullMode.NEVER
+    }
+}
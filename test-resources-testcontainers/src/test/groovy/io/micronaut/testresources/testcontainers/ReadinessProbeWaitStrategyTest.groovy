@@ -0,0 +1,49 @@
+package io.micronaut.testresources.testcontainers
+
+import org.testcontainers.containers.ContainerLaunchException
+import org.testcontainers.containers.wait.strategy.WaitStrategyTarget
+import spock.lang.Specification
+
+import java.time.Duration
+
+class ReadinessProbeWaitStrategyTest extends Specification {
+
+    def "probes with exponential backoff until the container is ready"() {
+        def attempts = []
+        def strategy = new ReadinessProbeWaitStrategy(() -> {
+            attempts << System.nanoTime()
+            if (attempts.size() < 3) {
+                throw new IOException("connection refused")
+            }
+            attempts.size() == 5
+        }, Duration.ofMillis(20), Duration.ofMillis(40))
+
+        when:
+        strategy.waitUntilReady(Stub(WaitStrategyTarget))
+
+        then:
+        attempts.size() == 5
+        def delays = (1..<attempts.size()).collect { Duration.ofNanos(attempts[it] - attempts[it - 1]).toMillis() }
+        delays[0] >= 20
+        delays[1] >= 40
+        delays[2] >= 40
+    }
+
+    def "fails when the container isn't ready before the startup timeout"() {
+        def attempts = 0
+        def strategy = new ReadinessProbeWaitStrategy(() -> {
+            attempts++
+            throw new IOException("connection refused")
+        })
+        strategy.withStartupTimeout(Duration.ofMillis(200))
+
+        when:
+        strategy.waitUntilReady(Stub(WaitStrategyTarget))
+
+        then:
+        ContainerLaunchException ex = thrown()
+        ex.message.startsWith("Timed out waiting for container to be ready")
+        ex.cause instanceof IOException
+        attempts > 3
+    }
+}
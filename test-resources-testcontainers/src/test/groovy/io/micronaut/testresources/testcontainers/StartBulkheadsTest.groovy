@@ -0,0 +1,102 @@
+package io.micronaut.testresources.testcontainers
+
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+class StartBulkheadsTest extends Specification {
+    private final PollingConditions conditions = new PollingConditions(timeout: 5)
+    private final ExecutorService executor = Executors.newCachedThreadPool()
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "limits concurrent starts per image without affecting other images"() {
+        def bulkheads = new StartBulkheads(1)
+        def admitted = new CopyOnWriteArrayList<String>()
+
+        when:
+        def oracle = bulkheads.acquire("oracle", "oracle-1")
+        def queued = acquireAsync(bulkheads, "oracle", "oracle-2", admitted)
+        def redis = bulkheads.acquire("redis", "redis-1")
+
+        then:
+        conditions.eventually {
+            assert bulkheads.stats() == [
+                    new BulkheadStats("oracle", 1, 1, 1, 0),
+                    new BulkheadStats("redis", 1, 0, 1, 0)
+            ]
+        }
+        bulkheads.stats()[0].saturated()
+        admitted.empty
+
+        when:
+        oracle.close()
+
+        then:
+        conditions.eventually {
+            assert admitted == ["oracle-2"]
+        }
+        queued.join().close()
+        redis.close()
+        bulkheads.stats().every { it.running() == 0 && it.queued() == 0 }
+    }
+
+    def "rejects starts when the queue is full or when the queue timeout elapses"() {
+        def bulkheads = new StartBulkheads(1)
+        bulkheads.configure(1, 1, Duration.ofMillis(200))
+
+        when:
+        def first = bulkheads.acquire("oracle", "oracle-1")
+        def second = acquireAsync(bulkheads, "oracle", "oracle-2", [])
+        conditions.eventually {
+            assert bulkheads.stats()[0].queued() == 1
+        }
+        bulkheads.acquire("oracle", "oracle-3")
+
+        then:
+        def full = thrown(StartBulkheads.Rejected)
+        full.message.contains("waiting to be started")
+
+        when:
+        second.join()
+
+        then:
+        def timeout = thrown(Exception)
+        timeout.cause instanceof StartBulkheads.Rejected
+        bulkheads.stats()[0].rejected() == 2
+
+        cleanup:
+        first?.close()
+    }
+
+    def "does not limit starts when disabled"() {
+        def bulkheads = new StartBulkheads(0)
+
+        when:
+        def permits = (1..3).collect { bulkheads.acquire("oracle", "oracle-$it") }
+
+        then:
+        bulkheads.stats().empty
+
+        cleanup:
+        permits*.close()
+    }
+
+    private CompletableFuture<AdmissionController.Permit> acquireAsync(StartBulkheads bulkheads,
+                                                                       String image,
+                                                                       String description,
+                                                                       List<String> admitted) {
+        CompletableFuture.supplyAsync({
+            def permit = bulkheads.acquire(image, description)
+            admitted << description
+            permit
+        }, executor)
+    }
+}
@@ -0,0 +1,103 @@
+package io.micronaut.testresources.testcontainers
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Path
+import java.time.Duration
+
+class StartupHistoryTest extends Specification {
+    @TempDir
+    Path settingsDir
+
+    def "learns a deadline once enough starts are recorded"() {
+        def history = new StartupHistory()
+        history.configure(true, 2, Duration.ofSeconds(1), false)
+
+        when:
+        (StartupHistory.MIN_SAMPLES - 1).times {
+            history.record("redis:7", StartupHistory.START, Duration.ofSeconds(2))
+        }
+
+        then:
+        !history.deadline("redis:7").present
+
+        when:
+        history.record("redis:7", StartupHistory.START, Duration.ofSeconds(5))
+
+        then:
+        history.deadline("redis:7").get() == Duration.ofSeconds(10)
+        !history.deadline("mysql:8").present
+    }
+
+    def "learned deadlines are never shorter than the minimum, and only used when enabled"() {
+        def history = new StartupHistory()
+        StartupHistory.MIN_SAMPLES.times {
+            history.record("redis:7", StartupHistory.START, Duration.ofMillis(100))
+        }
+
+        expect:
+        !history.deadline("redis:7").present
+
+        when:
+        history.configure(true, 3, Duration.ofSeconds(30), true)
+
+        then:
+        history.deadline("redis:7").get() == Duration.ofSeconds(30)
+        history.retryEnabled
+    }
+
+    def "keeps the most recent durations and reports statistics"() {
+        def history = new StartupHistory()
+        history.configure(true, 2, Duration.ZERO, false)
+
+        when:
+        history.record("redis:7", StartupHistory.PULL, Duration.ofSeconds(20))
+        (StartupHistory.MAX_SAMPLES + 5).times {
+            history.record("redis:7", StartupHistory.START, Duration.ofMillis(it < 5 ? 60_000 : 1_000 + it))
+        }
+        def statistics = history.statistics()
+
+        then:
+        statistics.size() == 2
+        with(statistics.find { it.phase() == StartupHistory.PULL }) {
+            image() == "redis:7"
+            samples() == 1
+            median() == Duration.ofSeconds(20)
+            deadline() == null
+        }
+        with(statistics.find { it.phase() == StartupHistory.START }) {
+            samples() == StartupHistory.MAX_SAMPLES
+            p99() == Duration.ofMillis(1_024)
+            deadline() == Duration.ofMillis(2_048)
+        }
+    }
+
+    def "durations are persisted in the settings directory"() {
+        def history = new StartupHistory()
+        history.persistTo(settingsDir)
+
+        when:
+        StartupHistory.MIN_SAMPLES.times {
+            history.record("docker.io/library/redis:7", StartupHistory.START, Duration.ofSeconds(10))
+        }
+        def reloaded = new StartupHistory()
+        reloaded.persistTo(settingsDir)
+        reloaded.configure(true, 3, Duration.ZERO, false)
+
+        then:
+        reloaded.deadline("docker.io/library/redis:7").get() == Duration.ofSeconds(30)
+    }
+
+    def "computes percentiles using the nearest rank"() {
+        expect:
+        StartupHistory.percentile(durations, percentile) == expected
+
+        where:
+        durations       | percentile | expected
+        [1L]            | 0.99       | 1
+        [1L, 2L, 3L]    | 0.5        | 2
+        (1L..100L)      | 0.99       | 99
+        (1L..20L)       | 0.99       | 20
+    }
+}
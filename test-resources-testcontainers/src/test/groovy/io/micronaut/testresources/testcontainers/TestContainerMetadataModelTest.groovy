@@ -0,0 +1,47 @@
+package io.micronaut.testresources.testcontainers
+
+import spock.lang.Specification
+
+class TestContainerMetadataModelTest extends Specification {
+
+    def "models are cached by configuration content"() {
+        def config = config()
+
+        expect:
+        TestContainerMetadataModel.of(config).is(TestContainerMetadataModel.of(config))
+        TestContainerMetadataModel.of(config).is(TestContainerMetadataModel.of(new HashMap<>(config)))
+        !TestContainerMetadataModel.of(config).is(TestContainerMetadataModel.of(config + ['containers.smtp.image-tag': '2.1']))
+    }
+
+    def "indexes containers by resolvable property"() {
+        def model = TestContainerMetadataModel.of(config())
+
+        expect:
+        model.containers()*.id == ['smtp', 'noimage']
+        model.resolvableProperties() == ['smtp.port', 'smtp.host', 'other.port']
+        model.containerForProperty('smtp.port').get().id == 'smtp'
+        model.containerForProperty('smtp.host').get().id == 'smtp'
+        !model.containerForProperty('other.port').present
+        !model.containerForProperty('unknown').present
+        model.metadata('smtp').get().is(model.metadata('smtp').get())
+        !model.metadata('kafka').present
+    }
+
+    def "returns a new wait strategy for each container"() {
+        def md = TestContainerMetadataModel.of(config()).metadata('smtp').get()
+
+        expect:
+        md.waitStrategy.present
+        !md.waitStrategy.get().is(md.waitStrategy.get())
+    }
+
+    private static Map<String, Object> config() {
+        def config = new LinkedHashMap<String, Object>()
+        config['containers.smtp.image-name'] = 'ghusta/fakesmtp'
+        config['containers.smtp.exposed-ports'] = [['smtp.port': 25]]
+        config['containers.smtp.hostnames'] = ['smtp.host']
+        config['containers.smtp.wait-strategy'] = 'port'
+        config['containers.noimage.exposed-ports'] = [['other.port': 80]]
+        config
+    }
+}
@@ -282,6 +282,92 @@ class TestContainerMetadataSupportTest extends Specification {
         '2.5G'  | 2684354560L
     }
 
+    def "reads CPU parameters"() {
+        def config = """
+                containers:
+                    foo:
+                        cpus: 1.5
+                        cpuset: 0-3
+                    bar:
+                        image-name: bar
+"""
+        when:
+        def foo = metadataFrom(config, "foo").get()
+        def bar = metadataFrom(config, "bar").get()
+
+        then:
+        foo.cpus.get() == 1.5d
+        foo.cpuset.get() == "0-3"
+        foo.hasCpuLimits()
+        !bar.cpus.present
+        !bar.cpuset.present
+        !bar.hasCpuLimits()
+    }
+
+    def "reads pool parameters"() {
+        def config = """
+                containers:
+                    foo:
+                        pool:
+                            size: $size
+                            max-memory: 1g
+"""
+        when:
+        def md = metadataFrom(config, "foo").get()
+
+        then:
+        md.poolSize.get() == 2
+        md.poolMaxMemory.get() == 1073741824L
+
+        where:
+        size << ['2', "'2'"]
+    }
+
+    def "containers with dependencies are not pooled"() {
+        def config = """
+                containers:
+                    foo:
+                        pool:
+                            size: 2
+                    bar:
+                        depends-on: foo
+                        pool:
+                            size: 2
+"""
+        expect:
+        metadataFrom(config, "foo").get().poolCapacity == 2
+        metadataFrom(config, "bar").get().poolCapacity == 0
+    }
+
+    def "reports the property of an invalid pool size"() {
+        def config = """
+                containers:
+                    foo:
+                        pool:
+                            size: two
+"""
+        when:
+        metadataFrom(config, "foo")
+
+        then:
+        IllegalArgumentException ex = thrown()
+        ex.message == "Invalid value 'two' for containers.foo.pool.size, expected a number"
+    }
+
+    def "reports the property of an invalid CPU limit"() {
+        def config = """
+                containers:
+                    foo:
+                        cpus: half
+"""
+        when:
+        metadataFrom(config, "foo")
+
+        then:
+        IllegalArgumentException ex = thrown()
+        ex.message == "Invalid value 'half' for containers.foo.cpus, expected a number"
+    }
+
     def "reads swap memory parameters"() {
         def config = """
                 containers:
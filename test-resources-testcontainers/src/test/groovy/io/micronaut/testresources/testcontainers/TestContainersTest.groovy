@@ -1,12 +1,24 @@
 package io.micronaut.testresources.testcontainers
 
 import io.micronaut.testresources.core.Scope
+import io.micronaut.testresources.core.TestResourcesResolutionException
 import org.testcontainers.containers.GenericContainer
 import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 class TestContainersTest extends Specification {
 
     def cleanup() {
+        TestContainers.configureEviction(null, null)
+        TestContainers.configureStartFailureBackoff(StartFailureCache.DEFAULT_BACKOFF)
+        TestContainers.configureScopeSharing(false, 0)
         TestContainers.closeAll()
     }
 
@@ -61,6 +73,411 @@ class TestContainersTest extends Specification {
         ]
     }
 
+    def "closing a scope detaches containers immediately and stops them in parallel"() {
+        def bothStopping = new CountDownLatch(2)
+        def release = new CountDownLatch(1)
+        def container1 = new BlockingStopContainer(bothStopping, release)
+        def container2 = new BlockingStopContainer(bothStopping, release)
+        create("c1", "child", container1)
+        create("c2", "child", container2)
+
+        when:
+        def close = TestContainers.closeScopeAsync("child")
+
+        then:
+        TestContainers.listAll() == [:]
+        bothStopping.await(5, TimeUnit.SECONDS)
+        !close.done
+
+        when:
+        release.countDown()
+
+        then:
+        close.get(5, TimeUnit.SECONDS)
+    }
+
+    def "concurrent requests for the same container share a single start"() {
+        def creations = new AtomicInteger()
+        def release = new CountDownLatch(1)
+        def failure = new IllegalStateException("boom")
+        def creator = { imageName ->
+            creations.incrementAndGet()
+            release.await()
+            throw failure
+        }
+
+        when:
+        def first = CompletableFuture.supplyAsync {
+            TestContainers.getOrCreate("foo", TestContainersTest, "c1", [:], () -> null, creator)
+        }
+        def second = CompletableFuture.supplyAsync {
+            TestContainers.getOrCreate("bar", TestContainersTest, "c1", [:], () -> null, creator)
+        }
+        Thread.sleep(500)
+        release.countDown()
+        def errors = [first, second].collect {
+            try {
+                it.join()
+                null
+            } catch (CompletionException ex) {
+                ex.cause
+            }
+        }
+
+        then:
+        creations.get() == 1
+        errors.every { it.is(failure) }
+        TestContainers.listAll() == [:]
+    }
+
+    def "a new scope is bound to a spare container from the pool"() {
+        def containers = [Stub(GenericContainer), Stub(GenericContainer), Stub(GenericContainer)]
+        def created = new AtomicInteger()
+        def creator = { imageName -> containers[created.getAndIncrement()] }
+        def conditions = new PollingConditions(timeout: 5)
+        def metadata = TestContainerMetadataSupport.convertToMetadata(['containers.pooled.pool.size': 1], 'pooled')
+
+        when:
+        def first = TestContainers.getOrCreate("foo", TestContainersTest, "pooled", [(Scope.PROPERTY_KEY): "a"], () -> null, creator, () -> metadata, 0)
+
+        then:
+        first.is(containers[0])
+        conditions.eventually {
+            assert TestContainers.spareContainerCount() == 1
+        }
+
+        when:
+        def second = TestContainers.getOrCreate("foo", TestContainersTest, "pooled", [(Scope.PROPERTY_KEY): "b"], () -> null, creator, () -> metadata, 0)
+
+        then:
+        second.is(containers[1])
+        TestContainers.listAll() == [
+                (Scope.of("a")): [containers[0]],
+                (Scope.of("b")): [containers[1]]
+        ]
+        conditions.eventually {
+            assert TestContainers.spareContainerCount() == 1
+            assert created.get() == 3
+        }
+    }
+
+    def "containers which die are evicted and started again on next use"() {
+        def dead = Stub(GenericContainer) {
+            getContainerId() >> "dead"
+            getDockerImageName() >> "redis"
+        }
+        def alive = Stub(GenericContainer) {
+            getContainerId() >> "alive"
+        }
+        def replacement = Stub(GenericContainer)
+        create("c1", "child", dead)
+        create("c2", "child", alive)
+
+        when:
+        def evicted = TestContainers.evict("dead", "oom")
+
+        then:
+        evicted
+        TestContainers.listAll() == [(Scope.of("child")): [alive]]
+        TestContainers.findByRequestedProperty(Scope.of("child"), "foo") == [alive]
+        with(TestContainers.recentEvictions().first()) {
+            scope == "child"
+            containerId == "dead"
+            imageName == "redis"
+            reason == "oom"
+        }
+
+        when:
+        create("c1", "child", replacement)
+
+        then:
+        TestContainers.listAll()[Scope.of("child")] as Set == [alive, replacement] as Set
+
+        !TestContainers.evict("unknown", "die")
+    }
+
+    def "least recently used containers are stopped when the memory budget is exceeded, and started again on next use"() {
+        def config = [
+                'containers.a.memory': '1g',
+                'containers.b.memory': '1g',
+                'containers.c.memory': '1g',
+        ]
+        def started = []
+        def resolve = { String name ->
+            TestContainers.getOrCreate("foo", TestContainersTest, name, [:], () -> null, {
+                def container = Stub(GenericContainer)
+                started << name
+                container
+            }, () -> TestContainerMetadataSupport.convertToMetadata(config, name), 0)
+        }
+        TestContainers.configureEviction(null, "2g")
+
+        when:
+        def a = resolve("a")
+        sleep 5
+        resolve("b")
+        sleep 5
+        resolve("a")
+        sleep 5
+        resolve("c")
+
+        then:
+        started == ["a", "b", "c"]
+        TestContainers.listAll()[Scope.ROOT].size() == 2
+        TestContainers.listAll()[Scope.ROOT].contains(a)
+        TestContainers.recentEvictions().first().reason() == EvictionPolicy.MEMORY_BUDGET
+
+        when:
+        resolve("b")
+
+        then:
+        started == ["a", "b", "c", "b"]
+        TestContainers.listAll()[Scope.ROOT].size() == 2
+    }
+
+    def "containers which have not been used for longer than the idle timeout are stopped"() {
+        def container = Stub(GenericContainer)
+        create("c1", null, container)
+        create("c2", "child", Stub(GenericContainer))
+        TestContainers.configureEviction(Duration.ofMillis(1), null)
+        sleep 10
+
+        when:
+        def evicted = TestContainers.evictUnusedContainers()
+
+        then:
+        evicted == 1
+        TestContainers.listAll().keySet() == [Scope.of("child")] as Set
+    }
+
+    def "a container which failed to start is not started again until the backoff elapses or the configuration changes"() {
+        def failure = new IllegalStateException("image not found")
+        def creations = new AtomicInteger()
+        def resolve = { String property, int fingerprint ->
+            TestContainers.getOrCreate(property, TestContainersTest, "c1", [:], () -> null, {
+                creations.incrementAndGet()
+                throw failure
+            }, Optional::empty, fingerprint)
+        }
+        TestContainers.configureStartFailureBackoff(Duration.ofMillis(200))
+
+        when:
+        resolve("url", 1)
+
+        then:
+        def first = thrown(IllegalStateException)
+        first.is(failure)
+        creations.get() == 1
+
+        when:
+        resolve("username", 1)
+
+        then:
+        def second = thrown(TestResourcesResolutionException)
+        second.cause.is(failure)
+        second.message.contains("image not found")
+        creations.get() == 1
+
+        when: "the configuration changes"
+        resolve("username", 2)
+
+        then:
+        thrown(IllegalStateException)
+        creations.get() == 2
+
+        when: "the backoff window elapses"
+        sleep 250
+        resolve("password", 2)
+
+        then:
+        thrown(IllegalStateException)
+        creations.get() == 3
+    }
+
+    def "closing a scope forgets the containers of that scope which failed to start"() {
+        def creations = new AtomicInteger()
+        def resolve = { String scope ->
+            TestContainers.getOrCreate("url", TestContainersTest, "c1", [(Scope.PROPERTY_KEY): scope], () -> null, {
+                creations.incrementAndGet()
+                throw new IllegalStateException("boom")
+            }, Optional::empty, 0)
+        }
+
+        when:
+        resolve("child")
+
+        then:
+        thrown(IllegalStateException)
+
+        when:
+        resolve("child")
+
+        then:
+        thrown(TestResourcesResolutionException)
+        creations.get() == 1
+
+        when:
+        TestContainers.closeScope("child")
+        resolve("child")
+
+        then:
+        thrown(IllegalStateException)
+        creations.get() == 2
+    }
+
+    def "reports how often requests reuse a container"() {
+        def before = TestContainers.reuseStats()
+        def container = Stub(GenericContainer)
+
+        when:
+        create("c1", null, container)
+        create("c1", null, container)
+        create("c1", "child", container)
+        create("c1", "child", container)
+        def stats = TestContainers.reuseStats()
+
+        then:
+        stats.hits() - before.hits() == 2
+        stats.misses() - before.misses() == 2
+        new ContainerReuseStats(3, 1).hitRate() == 0.75d
+        new ContainerReuseStats(0, 0).hitRate() == 0d
+    }
+
+    def "child scopes reuse the containers of their ancestors when sharing is enabled"() {
+        def root = Stub(GenericContainer)
+        def owned = Stub(GenericContainer)
+        def unused = Stub(GenericContainer)
+        TestContainers.configureScopeSharing(true, 1)
+        TestContainers.getOrCreate("foo", TestContainersTest, "c1", [:], () -> null) { root }
+
+        when:
+        create("c1", "com.acme.FooTest", unused)
+        create("c2", "com.acme.FooTest", owned)
+        create("c2", "com.acme.BarTest", unused)
+
+        then:
+        TestContainers.listAll() == [
+                (Scope.ROOT)     : [root],
+                (Scope.of("com")): [owned]
+        ]
+        TestContainers.findByRequestedProperty(Scope.of("com.acme.BarTest"), "foo") == [owned]
+
+        when:
+        TestContainers.closeScope("com.acme.FooTest")
+
+        then:
+        TestContainers.listAll()[Scope.of("com")] == [owned]
+
+        when:
+        TestContainers.closeScope("com.acme.BarTest")
+        create("c2", "com.acme.BazTest", unused)
+
+        then:
+        TestContainers.listAll() == [
+                (Scope.ROOT)     : [root],
+                (Scope.of("com")): [owned]
+        ]
+
+        when:
+        TestContainers.closeScope("com")
+
+        then:
+        TestContainers.listAll() == [(Scope.ROOT): [root]]
+    }
+
+    def "a shared container is kept when the scopes which use it are closed, even if one was closed while it was starting"() {
+        def container = Stub(GenericContainer)
+        def starting = new CountDownLatch(1)
+        def started = new CountDownLatch(1)
+        def request = { String scope ->
+            CompletableFuture.supplyAsync {
+                TestContainers.getOrCreate("foo", TestContainersTest, "c1", [(Scope.PROPERTY_KEY): scope], () -> null) {
+                    starting.countDown()
+                    started.await(5, TimeUnit.SECONDS)
+                    container
+                }
+            }
+        }
+        TestContainers.configureScopeSharing(true, 1)
+
+        when:
+        def bar = request("com.acme.BarTest")
+        starting.await(5, TimeUnit.SECONDS)
+        def hits = TestContainers.reuseStats().hits()
+        def foo = request("com.acme.FooTest")
+        new PollingConditions(timeout: 5).eventually {
+            assert TestContainers.reuseStats().hits() > hits
+        }
+        TestContainers.closeScope("com.acme.BarTest")
+        started.countDown()
+
+        then:
+        bar.join().is(container)
+        foo.join().is(container)
+        TestContainers.listAll() == [(Scope.of("com")): [container]]
+
+        when:
+        TestContainers.closeScope("com.acme.FooTest")
+
+        then:
+        TestContainers.listAll() == [(Scope.of("com")): [container]]
+
+        when:
+        TestContainers.closeAll()
+
+        then:
+        TestContainers.listAll().isEmpty()
+    }
+
+    def "closing a scope forgets the shared containers it failed to start"() {
+        def creations = new AtomicInteger()
+        def resolve = { String scope ->
+            TestContainers.getOrCreate("url", TestContainersTest, "c1", [(Scope.PROPERTY_KEY): scope], () -> null, {
+                creations.incrementAndGet()
+                throw new IllegalStateException("boom")
+            }, Optional::empty, 0)
+        }
+        TestContainers.configureScopeSharing(true, 1)
+
+        when:
+        resolve("com.acme.FooTest")
+
+        then:
+        thrown(IllegalStateException)
+
+        when:
+        resolve("com.acme.FooTest")
+
+        then:
+        thrown(TestResourcesResolutionException)
+        creations.get() == 1
+
+        when:
+        TestContainers.closeScope("com.acme.FooTest")
+        resolve("com.acme.FooTest")
+
+        then:
+        thrown(IllegalStateException)
+        creations.get() == 2
+    }
+
+    def "computes the owner scope and the scope chain"() {
+        def sharing = new ScopeSharing()
+        sharing.configure(true, level)
+
+        expect:
+        sharing.ownerOf(Scope.of(scope)) == Scope.of(owner)
+        ScopeSharing.chain(Scope.of("a.b")) == [Scope.of("a.b"), Scope.of("a"), Scope.ROOT]
+
+        where:
+        scope   | level | owner
+        "a.b.c" | 0     | null
+        "a.b.c" | 1     | "a"
+        "a.b.c" | 2     | "a.b"
+        "a.b"   | 3     | "a.b"
+        null    | 1     | null
+    }
+
     void create(String name, String scope, GenericContainer container) {
         TestContainers.getOrCreate("foo", TestContainersTest, name, [
                 (Scope.PROPERTY_KEY): scope
@@ -68,4 +485,25 @@ class TestContainersTest extends Specification {
             container
         }
     }
+
+    private static class BlockingStopContainer extends GenericContainer<BlockingStopContainer> {
+        private final CountDownLatch stopping
+        private final CountDownLatch release
+
+        BlockingStopContainer(CountDownLatch stopping, CountDownLatch release) {
+            super("scratch")
+            this.stopping = stopping
+            this.release = release
+        }
+
+        @Override
+        void start() {
+        }
+
+        @Override
+        void close() {
+            stopping.countDown()
+            release.await()
+        }
+    }
 }
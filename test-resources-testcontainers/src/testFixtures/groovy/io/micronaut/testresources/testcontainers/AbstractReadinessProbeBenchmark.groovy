@@ -0,0 +1,59 @@
+package io.micronaut.testresources.testcontainers
+
+import org.testcontainers.containers.GenericContainer
+import org.testcontainers.images.RemoteDockerImage
+import org.testcontainers.utility.DockerImageName
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.time.Duration
+
+/**
+ * Compares the time it takes for a container to be considered ready
+ * with its default wait strategy and with the readiness probe of the
+ * provider. Only runs when the <code>benchmark</code> system property
+ * is set, and the number of starts of each variant can be configured
+ * with the <code>benchmark.iterations</code> system property.
+ */
+@Requires({ sys['benchmark'] })
+abstract class AbstractReadinessProbeBenchmark<T extends GenericContainer<? extends T>> extends Specification {
+
+    abstract AbstractTestContainersProvider<T> getProvider()
+
+    Map<String, Object> getTestResourcesConfig() {
+        [:]
+    }
+
+    def "compares time to ready of the default wait strategy and of the readiness probe"() {
+        def iterations = Integer.getInteger('benchmark.iterations', 5)
+        def imageName = DockerImageName.parse(provider.defaultImageName)
+        new RemoteDockerImage(imageName).get()
+
+        when:
+        def withDefaultStrategy = medianTimeToReady(imageName, iterations) {}
+        def withProbe = medianTimeToReady(imageName, iterations) { T container ->
+            def probe = provider.readinessProbe().get()
+            container.waitingFor(new ReadinessProbeWaitStrategy(() -> probe.isReady(container)))
+        }
+        println "${provider.displayName} time to ready (median of $iterations starts): " +
+                "default wait strategy ${withDefaultStrategy.toMillis()}ms, readiness probe ${withProbe.toMillis()}ms"
+
+        then:
+        provider.readinessProbe().present
+    }
+
+    private Duration medianTimeToReady(DockerImageName imageName, int iterations, Closure<?> configure) {
+        def durations = (1..iterations).collect {
+            T container = provider.createContainer(imageName, [:], testResourcesConfig)
+            configure(container)
+            long start = System.nanoTime()
+            try {
+                container.start()
+                Duration.ofNanos(System.nanoTime() - start)
+            } finally {
+                container.stop()
+            }
+        }.sort()
+        durations[iterations.intdiv(2)]
+    }
+}